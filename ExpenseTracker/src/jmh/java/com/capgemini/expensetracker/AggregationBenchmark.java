@@ -0,0 +1,65 @@
+package com.capgemini.expensetracker;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// full per-category scans of the store, sequential and fork/join over pools of different sizes
+// run with: mvn -Pjmh package && java -jar target/benchmarks.jar AggregationBenchmark
+// scaling only shows on a machine with at least as many cores as the largest pool
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AggregationBenchmark {
+    @State(Scope.Benchmark)
+    public static class Dataset {
+        @Param({"1000000", "10000000"})
+        int size;
+
+        @Param({"10", "1000", "100000"})
+        int categories;
+
+        ExpenseTracker tracker;
+
+        @Setup(Level.Trial)
+        public void fill() {
+            TrackerBenchmark.Feed feed = new TrackerBenchmark.Feed(size, categories, 365, 42);
+            tracker = new ExpenseTracker();
+            for (int i = 0; i < size; i++) {
+                tracker.addExpenseCents(feed.categories[i], feed.amountCents[i], feed.dates[i]);
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Pool {
+        @Param({"1", "2", "4", "8"})
+        int threads;
+
+        ForkJoinPool pool;
+
+        @Setup(Level.Trial)
+        public void start() {
+            pool = new ForkJoinPool(threads);
+        }
+
+        @TearDown(Level.Trial)
+        public void shutdown() {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public long[] sequential(Dataset dataset) {
+        return dataset.tracker.store().sumAmountsByCategory();
+    }
+
+    @Benchmark
+    public long[] forkJoin(Dataset dataset, Pool pool) {
+        return ParallelAggregation.sumByCategory(dataset.tracker.store(), dataset.tracker.categories().size(),
+                pool.pool, ParallelAggregation.SEQUENTIAL_THRESHOLD);
+    }
+}
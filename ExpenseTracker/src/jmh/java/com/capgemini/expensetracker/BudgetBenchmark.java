@@ -0,0 +1,53 @@
+package com.capgemini.expensetracker;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// addExpense throughput with rolling window budgets spread over the feed's categories
+// run with: mvn -Pjmh package && java -jar target/benchmarks.jar BudgetBenchmark
+// with budgets=0 this is TrackerBenchmark.addExpense; the cost of budgets grows with those of the added category
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BudgetBenchmark {
+    @State(Scope.Benchmark)
+    public static class Ingest {
+        @Param({"100"})
+        int categories;
+
+        @Param({"0", "1000", "10000"})
+        int budgets;
+
+        TrackerBenchmark.Feed feed;
+        ExpenseTracker tracker;
+        int next;
+        long alerts;
+
+        @Setup(Level.Trial)
+        public void generate() {
+            feed = new TrackerBenchmark.Feed(1 << 20, categories, 365, 7);
+        }
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            tracker = new ExpenseTracker();
+            Random random = new Random(11);
+            for (int i = 0; i < budgets; i++) {
+                // windows from a week to a quarter, limits that some windows do go over
+                tracker.addBudgetCents("Category" + (i % categories), 100_000 + random.nextInt(10_000_000),
+                        7 + random.nextInt(84), alert -> alerts++);
+            }
+            next = 0;
+        }
+    }
+
+    @Benchmark
+    public void addExpense(Ingest state) {
+        int i = state.next++;
+        state.tracker.addExpenseCents(state.feed.category(i), state.feed.amountCents(i), state.feed.date(i));
+    }
+}
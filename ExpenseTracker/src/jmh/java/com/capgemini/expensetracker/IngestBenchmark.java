@@ -0,0 +1,69 @@
+package com.capgemini.expensetracker;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// rows per second into a tracker: one addExpense call per row, versus producers submitting batches to a
+// BatchIngestor whose writer merges them; run with more producers with -t, e.g. -t 4
+// run with: mvn -Pjmh package && java -jar target/benchmarks.jar IngestBenchmark
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(IngestBenchmark.BATCH_ROWS)
+public class IngestBenchmark {
+    static final int BATCH_ROWS = 1000;
+
+    @State(Scope.Benchmark)
+    public static class Target {
+        @Param({"1000"})
+        int categories;
+
+        TrackerBenchmark.Feed feed;
+        ExpenseTracker tracker;
+        BatchIngestor ingestor;
+
+        @Setup(Level.Trial)
+        public void generate() {
+            feed = new TrackerBenchmark.Feed(1 << 20, categories, 365, 3);
+        }
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            tracker = new ExpenseTracker();
+            ingestor = new BatchIngestor(tracker);
+        }
+
+        @TearDown(Level.Iteration)
+        public void stop() {
+            ingestor.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Producer {
+        int next;
+    }
+
+    // one round trip per expense, as Main does
+    @Benchmark
+    @Threads(1)
+    public void addExpense(Target target, Producer producer) {
+        for (int i = 0; i < BATCH_ROWS; i++) {
+            int row = producer.next++;
+            target.tracker.addExpenseCents(target.feed.category(row), target.feed.amountCents(row), target.feed.date(row));
+        }
+    }
+
+    @Benchmark
+    public void submitBatch(Target target, Producer producer) throws InterruptedException {
+        ExpenseBatch batch = new ExpenseBatch(BATCH_ROWS);
+        for (int i = 0; i < BATCH_ROWS; i++) {
+            int row = producer.next++;
+            batch.addCents(target.feed.category(row), target.feed.amountCents(row), target.feed.date(row));
+        }
+        target.ingestor.submit(batch);
+    }
+}
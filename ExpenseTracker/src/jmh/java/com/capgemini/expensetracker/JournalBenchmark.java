@@ -0,0 +1,114 @@
+package com.capgemini.expensetracker;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// append throughput of a journaled tracker per sync policy, and restore time of large histories
+// run with: mvn -Pjmh package && java -jar target/benchmarks.jar JournalBenchmark
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JournalBenchmark {
+    private static final String[] CATEGORIES = {"Food", "Transport", "Rent", "Utilities", "Entertainment",
+            "Health", "Travel", "Shopping", "Education", "Gifts"};
+    private static final int START_DAY = (int) LocalDate.of(2020, 1, 1).toEpochDay();
+
+    // the i-th expense of a synthetic feed, dates move forward about one day per 300 expenses
+    static void addExpense(ExpenseTracker tracker, int i) {
+        tracker.addExpense(CATEGORIES[i % CATEGORIES.length], (i % 10_000) / 100.0 + 1,
+                LocalDate.ofEpochDay(START_DAY + i / 300));
+    }
+
+    static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class AppendState {
+        @Param({"OS", "BATCH", "EVERY_WRITE"})
+        ExpenseJournal.SyncPolicy syncPolicy;
+
+        Path directory;
+        ExpenseTracker tracker;
+        ExpenseJournal journal;
+        int next;
+
+        @Setup(Level.Iteration)
+        public void open() throws IOException {
+            directory = Files.createTempDirectory("journal-append");
+            tracker = new ExpenseTracker();
+            journal = ExpenseJournal.open(directory, tracker, syncPolicy,
+                    ExpenseJournal.DEFAULT_BATCH_SIZE, ExpenseJournal.DEFAULT_SNAPSHOT_INTERVAL);
+            next = 0;
+        }
+
+        @TearDown(Level.Iteration)
+        public void close() throws IOException {
+            journal.close();
+            deleteRecursively(directory);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class RestoreState {
+        @Param({"1000000", "10000000"})
+        int expenses;
+
+        // SNAPSHOT: snapshots every million expenses, so restore reads a snapshot plus a short journal tail
+        // JOURNAL: no snapshot, restore replays the whole history from the journal
+        @Param({"SNAPSHOT", "JOURNAL"})
+        String layout;
+
+        Path directory;
+
+        @Setup(Level.Trial)
+        public void write() throws IOException {
+            directory = Files.createTempDirectory("journal-restore");
+            int snapshotInterval = layout.equals("SNAPSHOT") ? ExpenseJournal.DEFAULT_SNAPSHOT_INTERVAL : Integer.MAX_VALUE;
+            ExpenseTracker tracker = new ExpenseTracker();
+            ExpenseJournal journal = ExpenseJournal.open(directory, tracker, ExpenseJournal.SyncPolicy.OS,
+                    ExpenseJournal.DEFAULT_BATCH_SIZE, snapshotInterval);
+            try {
+                for (int i = 0; i < expenses; i++) {
+                    addExpense(tracker, i);
+                }
+            } finally {
+                journal.close();
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void delete() throws IOException {
+            deleteRecursively(directory);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void append(AppendState state) {
+        addExpense(state.tracker, state.next++);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 5)
+    public ExpenseTracker restore(RestoreState state) throws IOException {
+        ExpenseTracker tracker = new ExpenseTracker();
+        ExpenseJournal.open(state.directory, tracker).close();
+        return tracker;
+    }
+}
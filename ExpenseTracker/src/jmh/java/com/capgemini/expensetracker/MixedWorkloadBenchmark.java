@@ -0,0 +1,97 @@
+package com.capgemini.expensetracker;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+// a prefilled tracker under a mix of adds, updates and removals, with and without reading the extremes
+// after every change; the extremes are kept up to date incrementally, so reading them should stay cheap
+// run with: mvn -Pjmh package && java -jar target/benchmarks.jar MixedWorkloadBenchmark -prof gc
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MixedWorkloadBenchmark {
+
+    @State(Scope.Thread)
+    public static class Workload {
+        @Param({"100000", "1000000"})
+        int size;
+
+        @Param({"1000"})
+        int categories;
+
+        // percentages of adds, updates and removals, the rest of each mix
+        @Param({"80/10/10", "50/25/25", "10/45/45"})
+        String mix;
+
+        TrackerBenchmark.Feed feed;
+        ExpenseTracker tracker;
+        Random random;
+        int addPercent;
+        int updatePercent;
+        int next;
+        // ids of the live expenses, a removal swaps the last one into the hole
+        long[] liveIds;
+        int liveCount;
+
+        @Setup(Level.Iteration)
+        public void fill() {
+            String[] parts = mix.split("/");
+            addPercent = Integer.parseInt(parts[0]);
+            updatePercent = Integer.parseInt(parts[1]);
+            feed = new TrackerBenchmark.Feed(size, categories, 365, 42);
+            tracker = new ExpenseTracker();
+            liveIds = new long[size * 2];
+            for (int i = 0; i < size; i++) {
+                liveIds[i] = tracker.addExpenseCents(feed.categories[i], feed.amountCents[i], feed.dates[i]);
+            }
+            liveCount = size;
+            next = size;
+            random = new Random(11);
+        }
+
+        void change() {
+            int roll = random.nextInt(100);
+            if (roll < addPercent || liveCount == 0) {
+                int i = next++;
+                long id = tracker.addExpenseCents(feed.category(i), feed.amountCents(i), feed.date(i));
+                if (liveCount == liveIds.length) {
+                    liveIds = Arrays.copyOf(liveIds, liveCount * 2);
+                }
+                liveIds[liveCount++] = id;
+                return;
+            }
+            int slot = random.nextInt(liveCount);
+            if (roll < addPercent + updatePercent) {
+                int i = random.nextInt(size);
+                LocalDate date = feed.dates[i];
+                tracker.updateExpenseCents(liveIds[slot], feed.categories[i], feed.amountCents[i], date);
+            } else {
+                tracker.removeExpense(liveIds[slot]);
+                liveIds[slot] = liveIds[--liveCount];
+            }
+        }
+    }
+
+    @Benchmark
+    public void change(Workload workload) {
+        workload.change();
+    }
+
+    // a dashboard that shows the highest and lowest category after every change
+    @Benchmark
+    public Optional<CategoryExtreme> changeThenExtremes(Workload workload) {
+        workload.change();
+        return workload.tracker.getCategoryExtremes();
+    }
+
+    // the same read, recomputed from every row, which is what a change would cost without the heaps
+    @Benchmark
+    public Optional<CategoryExtreme> rescanExtremes(Workload workload) {
+        return workload.tracker.rescanCategoryExtremes();
+    }
+}
@@ -0,0 +1,79 @@
+package com.capgemini.expensetracker;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// a filtered, grouped query run through ExpenseQuery and through a stream pipeline over getExpenses()
+// run with: mvn -Pjmh package && java -jar target/benchmarks.jar QueryBenchmark -prof gc
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueryBenchmark {
+    private static final LocalDate FROM = TrackerBenchmark.END_DATE.minusDays(90);
+    private static final LocalDate TO = TrackerBenchmark.END_DATE.minusDays(30);
+
+    @State(Scope.Benchmark)
+    public static class Dataset {
+        @Param({"1000000"})
+        int size;
+
+        @Param({"100"})
+        int categories;
+
+        ExpenseTracker tracker;
+        Set<String> selected;
+
+        @Setup(Level.Trial)
+        public void fill() {
+            TrackerBenchmark.Feed feed = new TrackerBenchmark.Feed(size, categories, 365, 42);
+            tracker = new ExpenseTracker();
+            for (int i = 0; i < size; i++) {
+                tracker.addExpenseCents(feed.categories[i], feed.amountCents[i], feed.dates[i]);
+            }
+            selected = new HashSet<>();
+            for (int i = 0; i < categories; i += 10) {
+                selected.add("Category" + i);
+            }
+        }
+    }
+
+    // two months, every tenth category, amounts from 10 to 500, by category and month
+    @Benchmark
+    public List<QueryRow> query(Dataset dataset) {
+        return dataset.tracker.query()
+                .categories(dataset.selected)
+                .amountBetween(10, 500)
+                .between(FROM, TO)
+                .groupBy(ExpenseQuery.GroupBy.CATEGORY_AND_MONTH)
+                .run();
+    }
+
+    @Benchmark
+    public Map<String, Map<YearMonth, LongSummaryStatistics>> stream(Dataset dataset) {
+        long min = Money.toCents(10);
+        long max = Money.toCents(500);
+        return dataset.tracker.getExpenses().stream()
+                .filter(e -> dataset.selected.contains(e.getCategory()))
+                .filter(e -> e.getAmountCents() >= min && e.getAmountCents() <= max)
+                .filter(e -> !e.getDate().isBefore(FROM) && !e.getDate().isAfter(TO))
+                .collect(Collectors.groupingBy(Expense::getCategory,
+                        Collectors.groupingBy(e -> YearMonth.from(e.getDate()),
+                                Collectors.summarizingLong(Expense::getAmountCents))));
+    }
+
+    // whole-year total from the per-day index
+    @Benchmark
+    public List<QueryRow> querySum(Dataset dataset) {
+        return dataset.tracker.query()
+                .between(FROM.minusDays(270), TO)
+                .aggregates(ExpenseQuery.Aggregate.SUM)
+                .run();
+    }
+}
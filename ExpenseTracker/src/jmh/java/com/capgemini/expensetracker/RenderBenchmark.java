@@ -0,0 +1,70 @@
+package com.capgemini.expensetracker;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// time to print the expense trend table, as Main.showTrends did with printf and as it does with TableRenderer
+// both write to a discarding stream, so the numbers are formatting, locking and encoding without a terminal
+// run with: mvn -Pjmh package && java -jar target/benchmarks.jar RenderBenchmark
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RenderBenchmark {
+    @State(Scope.Benchmark)
+    public static class Dataset {
+        @Param({"1000000"})
+        int size;
+
+        ExpenseTracker tracker;
+
+        @Setup(Level.Trial)
+        public void fill() {
+            TrackerBenchmark.Feed feed = new TrackerBenchmark.Feed(size, 100, 365, 42);
+            tracker = new ExpenseTracker();
+            for (int i = 0; i < size; i++) {
+                tracker.addExpenseCents(feed.categories[i], feed.amountCents[i], feed.dates[i]);
+            }
+        }
+    }
+
+    // System.out is an autoflushing PrintStream, so each printf line is flushed like it was on the console
+    @Benchmark
+    public void printf(Dataset dataset) {
+        PrintStream out = new PrintStream(OutputStream.nullOutputStream(), true, StandardCharsets.UTF_8);
+        out.printf("%-6s | %-12s | %-15s | %10s%n", "Id", "Date", "Category", "Amount");
+        out.println("----------------------------------------------------");
+        for (Expense expense : dataset.tracker.getExpensesByDate()) {
+            out.printf("%-6d | %-12s | %-15s | %10.2f%n",
+                    expense.getId(),
+                    expense.getDate(),
+                    expense.getCategory(),
+                    expense.getAmount());
+        }
+    }
+
+    @Benchmark
+    public void renderer(Dataset dataset) {
+        PrintStream out = new PrintStream(OutputStream.nullOutputStream(), true, StandardCharsets.UTF_8);
+        TableRenderer renderer = new TableRenderer(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        renderer.expenseHeader();
+        renderer.expenseRows(dataset.tracker, 0, dataset.tracker.getExpensesByDate().size());
+        renderer.flush();
+    }
+
+    // the first page, which is all the paged trend renders before its first prompt
+    @Benchmark
+    public void rendererFirstPage(Dataset dataset) {
+        PrintStream out = new PrintStream(OutputStream.nullOutputStream(), true, StandardCharsets.UTF_8);
+        TableRenderer renderer = new TableRenderer(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        renderer.expenseHeader();
+        renderer.expenseRows(dataset.tracker, 0, Main.PAGE_ROWS);
+        renderer.flush();
+    }
+}
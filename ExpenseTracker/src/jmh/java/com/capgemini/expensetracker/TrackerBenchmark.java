@@ -0,0 +1,176 @@
+package com.capgemini.expensetracker;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// hot paths of ExpenseTracker over synthetic datasets of different sizes and category cardinalities
+// run with: mvn -Pjmh package && java -jar target/benchmarks.jar TrackerBenchmark -prof gc
+// -prof gc adds the allocation rate (gc.alloc.rate.norm is bytes per operation) next to each score
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+public class TrackerBenchmark {
+    static final LocalDate END_DATE = LocalDate.of(2025, 12, 31);
+
+    // a reproducible feed of expenses: a few categories get most of the expenses, most expenses arrive
+    // in date order over dateSpread days, and one in ten is backdated by up to a month
+    static final class Feed {
+        final String[] categories;
+        final long[] amountCents;
+        final LocalDate[] dates;
+        final int dateSpread;
+
+        Feed(int size, int cardinality, int dateSpread, long seed) {
+            this.dateSpread = dateSpread;
+            String[] names = new String[cardinality];
+            for (int i = 0; i < cardinality; i++) {
+                names[i] = "Category" + i;
+            }
+            Random random = new Random(seed);
+            categories = new String[size];
+            amountCents = new long[size];
+            dates = new LocalDate[size];
+            LocalDate start = END_DATE.minusDays(dateSpread - 1);
+            for (int i = 0; i < size; i++) {
+                // skewed towards low ids, roughly like real spending
+                categories[i] = names[random.nextInt(random.nextInt(cardinality) + 1)];
+                amountCents[i] = 100 + random.nextInt(20_000);
+                long day = (long) i * dateSpread / size;
+                if (random.nextInt(10) == 0) {
+                    day = Math.max(0, day - random.nextInt(31));
+                }
+                dates[i] = start.plusDays(day);
+            }
+        }
+
+        String category(int i) {
+            return categories[i % categories.length];
+        }
+
+        long amountCents(int i) {
+            return amountCents[i % amountCents.length];
+        }
+
+        // past the end of the feed it repeats, shifted forward so dates keep moving on as they would
+        LocalDate date(int i) {
+            if (i < dates.length) {
+                return dates[i];
+            }
+            return dates[i % dates.length].plusDays((long) (i / dates.length) * dateSpread);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Dataset {
+        @Param({"1000", "100000", "1000000", "10000000"})
+        int size;
+
+        @Param({"10", "1000", "100000"})
+        int categories;
+
+        @Param({"365"})
+        int dateSpread;
+
+        ExpenseTracker tracker;
+        LocalDate from;
+        LocalDate to;
+
+        @Setup(Level.Trial)
+        public void fill() {
+            Feed feed = new Feed(size, categories, dateSpread, 42);
+            tracker = new ExpenseTracker();
+            for (int i = 0; i < size; i++) {
+                tracker.addExpenseCents(feed.categories[i], feed.amountCents[i], feed.dates[i]);
+            }
+            // the middle third of the dates, a typical "last few months" query
+            from = END_DATE.minusDays(dateSpread * 2L / 3);
+            to = END_DATE.minusDays(dateSpread / 3L);
+        }
+    }
+
+    // a tracker that keeps growing across the iteration, so addExpense is measured at realistic sizes
+    @State(Scope.Thread)
+    public static class Ingest {
+        @Param({"10", "1000", "100000"})
+        int categories;
+
+        // -p metrics=true attaches TrackerMetrics, to see what timing every add costs
+        @Param({"false"})
+        boolean metrics;
+
+        Feed feed;
+        ExpenseTracker tracker;
+        int next;
+
+        @Setup(Level.Trial)
+        public void generate() {
+            feed = new Feed(1 << 20, categories, 365, 7);
+        }
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            tracker = new ExpenseTracker();
+            if (metrics) {
+                tracker.setMetrics(new TrackerMetrics());
+            }
+            next = 0;
+        }
+    }
+
+    @Benchmark
+    public void addExpense(Ingest state) {
+        int i = state.next++;
+        state.tracker.addExpenseCents(state.feed.category(i), state.feed.amountCents(i), state.feed.date(i));
+    }
+
+    @Benchmark
+    public double getTotal(Dataset dataset) {
+        return dataset.tracker.getTotal();
+    }
+
+    @Benchmark
+    public Map<String, Double> getTotalByCategory(Dataset dataset) {
+        return dataset.tracker.getTotalByCategory();
+    }
+
+    @Benchmark
+    public Optional<CategoryExtreme> getCategoryExtremes(Dataset dataset) {
+        return dataset.tracker.getCategoryExtremes();
+    }
+
+    @Benchmark
+    public double getTotalBetween(Dataset dataset) {
+        return dataset.tracker.getTotalBetween(dataset.from, dataset.to);
+    }
+
+    // what Main.showTrends did before the date order index: copy and sort every expense
+    @Benchmark
+    public List<Expense> sortByDateLegacy(Dataset dataset) {
+        return dataset.tracker.getExpenses()
+                .stream()
+                .sorted(Comparator.comparing(Expense::getDate))
+                .collect(Collectors.toList());
+    }
+
+    // what Main.showTrends does now: walk the date order index
+    @Benchmark
+    public void iterateByDate(Dataset dataset, Blackhole blackhole) {
+        for (Expense expense : dataset.tracker.getExpensesByDate()) {
+            blackhole.consume(expense);
+        }
+    }
+
+    // one page of the date order view, as a paged UI would read it
+    @Benchmark
+    public void firstPageByDate(Dataset dataset, Blackhole blackhole) {
+        for (Expense expense : dataset.tracker.getExpensesByDate(0, 50)) {
+            blackhole.consume(expense);
+        }
+    }
+}
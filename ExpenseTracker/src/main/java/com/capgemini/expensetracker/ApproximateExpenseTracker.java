@@ -0,0 +1,192 @@
+package com.capgemini.expensetracker;
+
+import java.time.LocalDate;
+import java.util.*;
+
+// an opt-in alternative to ExpenseTracker for free-text categories with millions of distinct values: it keeps
+// no rows and no per-category map, only fixed-size sketches, so its memory does not grow with the number of
+// categories (date range totals still take 16 bytes per day spanned)
+//
+// what stays exact: the total, the expense count and date range totals
+// what is estimated, with these bounds:
+// - a category's total: a count-min sketch over the positive amounts and one over the negative ones; each
+//   overestimates its part by at most errorBound (e / width of the amounts it has seen) except with probability
+//   e^-depth per query, and never underestimates it. a category that holds a heavy hitter slot also caps its
+//   positive part at the slot's sum
+// - the heavy hitters: space-saving over the positive amounts; every category whose positive amounts add up to
+//   more than 1 / heavyHitters of all positive amounts is among them
+// - the number of distinct categories: hyperloglog, relative standard error 1.04 / sqrt(2^precision)
+//
+// the defaults (1024 heavy hitters, width 8192, depth 5, precision 14) take about 750 KB: each estimate is
+// within 0.033% of the positive or negative amounts seen, except with probability 0.7%, and distinct
+// counts have a 0.8% standard error
+public class ApproximateExpenseTracker {
+    public static final int DEFAULT_HEAVY_HITTERS = 1024;
+    public static final int DEFAULT_WIDTH = 8192;
+    public static final int DEFAULT_DEPTH = 5;
+    public static final int DEFAULT_PRECISION = 14;
+
+    private final CountMinSketch positive;
+    private final CountMinSketch negative;
+    private final SpaceSaving heavyHitters;
+    private final HyperLogLog distinct;
+    private final DailyTotals dailyTotals = new DailyTotals();
+    private long total;
+    private long count;
+
+    public ApproximateExpenseTracker() {
+        this(DEFAULT_HEAVY_HITTERS, DEFAULT_WIDTH, DEFAULT_DEPTH, DEFAULT_PRECISION);
+    }
+
+    // width is rounded up to a power of two, precision is from 4 to 18
+    public ApproximateExpenseTracker(int heavyHitters, int width, int depth, int precision) {
+        positive = new CountMinSketch(width, depth);
+        negative = new CountMinSketch(width, depth);
+        this.heavyHitters = new SpaceSaving(heavyHitters);
+        distinct = new HyperLogLog(precision);
+    }
+
+    // the amount is rounded to the nearest cent
+    public void addExpense(String category, double amount, LocalDate date) {
+        addExpenseCents(category, Money.toCents(amount), date);
+    }
+
+    public void addExpenseCents(String category, long amountCents, LocalDate date) {
+        Objects.requireNonNull(category, "category");
+        add(category, amountCents, Math.toIntExact(date.toEpochDay()));
+    }
+
+    public void addExpenses(ExpenseBatch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            add(batch.categoryAt(i), batch.amountCentsAt(i), batch.epochDayAt(i));
+        }
+    }
+
+    private void add(String category, long cents, int epochDay) {
+        long hash = hash(category);
+        if (cents >= 0) {
+            positive.add(hash, cents);
+            heavyHitters.add(category, cents);
+        } else {
+            negative.add(hash, -cents);
+        }
+        distinct.add(hash);
+        dailyTotals.add(epochDay, cents);
+        total += cents;
+        count++;
+    }
+
+    // exact
+    public double getTotal() {
+        return Money.toAmount(total);
+    }
+
+    public long getTotalCents() {
+        return total;
+    }
+
+    public long getExpenseCount() {
+        return count;
+    }
+
+    // exact, from one date to another, both inclusive
+    public double getTotalBetween(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date " + from + " is after end date " + to);
+        }
+        int fromDay = (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, from.toEpochDay()));
+        int toDay = (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, to.toEpochDay()));
+        return Money.toAmount(dailyTotals.sumBetween(fromDay, toDay));
+    }
+
+    // the estimated total of a category, see the bounds above; 0 for a category never seen unless it collides
+    public double getEstimatedTotal(String category) {
+        return Money.toAmount(getEstimatedTotalCents(category));
+    }
+
+    public long getEstimatedTotalCents(String category) {
+        long hash = hash(category);
+        long positiveCents = positive.estimate(hash);
+        long slotSum = heavyHitters.upperBound(category);
+        if (slotSum >= 0) {
+            positiveCents = Math.min(positiveCents, slotSum);
+        } else if (heavyHitters.minimum() > 0) {
+            positiveCents = Math.min(positiveCents, heavyHitters.minimum());
+        }
+        return positiveCents - negative.estimate(hash);
+    }
+
+    // estimated totals of the heavy hitters only; every category above 1 / heavyHitters of the positive
+    // amounts is in it, smaller ones may or may not be
+    public Map<String, Double> getTotalByCategory() {
+        Map<String, Double> totals = new HashMap<>();
+        for (String category : heavyHitters.keys()) {
+            totals.put(category, getEstimatedTotal(category));
+        }
+        return totals;
+    }
+
+    // the k heavy hitters with the highest estimated totals, k at most the number of heavy hitter slots
+    public List<CategoryRank> getTopCategories(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        List<String> categories = new ArrayList<>(heavyHitters.keys());
+        long[] estimates = new long[categories.size()];
+        Integer[] order = new Integer[categories.size()];
+        for (int i = 0; i < order.length; i++) {
+            estimates[i] = getEstimatedTotalCents(categories.get(i));
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> estimates[a] != estimates[b]
+                ? Long.compare(estimates[b], estimates[a])
+                : categories.get(a).compareTo(categories.get(b)));
+        List<CategoryRank> ranks = new ArrayList<>();
+        for (int i = 0; i < Math.min(k, order.length); i++) {
+            ranks.add(new CategoryRank(i + 1, categories.get(order[i]), estimates[order[i]]));
+        }
+        return ranks;
+    }
+
+    // estimated number of distinct categories
+    public long getDistinctCategoryCount() {
+        return distinct.estimate();
+    }
+
+    // how far a category estimate may be above (positive part) or below (negative part) its true total,
+    // except with probability getErrorProbability()
+    public long getOverestimateBoundCents() {
+        return positive.errorBound();
+    }
+
+    public long getUnderestimateBoundCents() {
+        return negative.errorBound();
+    }
+
+    public double getErrorProbability() {
+        return positive.errorProbability();
+    }
+
+    public double getDistinctCountStandardError() {
+        return distinct.standardError();
+    }
+
+    long estimatedBytes() {
+        return positive.estimatedBytes() + negative.estimatedBytes() + heavyHitters.estimatedBytes()
+                + distinct.estimatedBytes() + dailyTotals.estimatedBytes() + 64;
+    }
+
+    // 64-bit FNV-1a over the chars, finished with the murmur3 mixer so every bit depends on every char
+    static long hash(String category) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < category.length(); i++) {
+            hash = (hash ^ category.charAt(i)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
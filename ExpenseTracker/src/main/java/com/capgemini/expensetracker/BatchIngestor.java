@@ -0,0 +1,286 @@
+package com.capgemini.expensetracker;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+// asynchronous ingestion in front of an ExpenseTracker: any number of producer threads submit batches into a
+// bounded queue, and a single writer thread drains whatever has queued up, merges small batches into large
+// ones and adds each with one addExpenses call. a full queue blocks submit, so producers that outrun the writer are
+// slowed down instead of filling the heap.
+//
+// the tracker must only be used through this ingestor while it runs. queries go through read(), which takes the
+// same lock the writer holds while it adds a merged batch, so a query sees all of a batch or none of it. the lock
+// is not a read-write lock because tracker queries update caches of their own (the query cache, the lazily built
+// per-category indexes), which are not safe to update from several threads at once
+//
+// producers hold the read side of acceptLock from their closed check until their batch is queued, and close()
+// takes the write side to set closed, so every batch accepted before close is queued ahead of the END marker
+public class BatchIngestor implements Closeable {
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+    public static final int DEFAULT_MAX_BATCH_ROWS = 64 * 1024;
+
+    // tells the writer that nothing more will be submitted
+    private static final ExpenseBatch END = new ExpenseBatch(1);
+
+    private final ExpenseTracker tracker;
+    private final BlockingQueue<ExpenseBatch> queue;
+    private final ReentrantLock trackerLock = new ReentrantLock();
+    private final ReentrantReadWriteLock acceptLock = new ReentrantReadWriteLock();
+    private final int maxBatchRows;
+    private final ExpenseBatch merged;
+    private final Thread writer;
+
+    // batches submitted and applied so far, guarded by progress; flush waits on it
+    private final Object progress = new Object();
+    private long submitted;
+    private long applied;
+    private long appliedRows;
+    private long mergedBatches;
+    private RuntimeException failure;
+    private boolean closed;
+
+    public BatchIngestor(ExpenseTracker tracker) {
+        this(tracker, DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_BATCH_ROWS);
+    }
+
+    // queueCapacity: batches that may wait before submit blocks; maxBatchRows: rows merged into one addExpenses
+    public BatchIngestor(ExpenseTracker tracker, int queueCapacity, int maxBatchRows) {
+        if (queueCapacity < 1 || maxBatchRows < 1) {
+            throw new IllegalArgumentException("Queue capacity and batch rows must be positive");
+        }
+        this.tracker = tracker;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchRows = maxBatchRows;
+        this.merged = new ExpenseBatch(maxBatchRows);
+        this.writer = new Thread(this::drain, "expense-ingestor");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // queues the batch, waiting while the queue is full; the ingestor owns the batch from now on
+    public void submit(ExpenseBatch batch) throws InterruptedException {
+        acceptLock.readLock().lockInterruptibly();
+        try {
+            checkAccepting();
+            synchronized (progress) {
+                submitted++;
+            }
+            try {
+                queue.put(batch);
+            } catch (InterruptedException e) {
+                unsubmit();
+                throw e;
+            }
+        } finally {
+            acceptLock.readLock().unlock();
+        }
+    }
+
+    // queues the batch if there is room within the timeout, returns false (and keeps nothing) otherwise
+    public boolean offer(ExpenseBatch batch, long timeout, TimeUnit unit) throws InterruptedException {
+        acceptLock.readLock().lockInterruptibly();
+        try {
+            checkAccepting();
+            synchronized (progress) {
+                submitted++;
+            }
+            boolean queued = false;
+            try {
+                queued = queue.offer(batch, timeout, unit);
+            } finally {
+                if (!queued) {
+                    unsubmit();
+                }
+            }
+            return queued;
+        } finally {
+            acceptLock.readLock().unlock();
+        }
+    }
+
+    private void unsubmit() {
+        synchronized (progress) {
+            submitted--;
+        }
+    }
+
+    // waits until every batch submitted before the call is in the tracker
+    public void flush() throws InterruptedException {
+        synchronized (progress) {
+            long target = submitted;
+            while (applied < target && failure == null) {
+                progress.wait();
+            }
+            checkFailure();
+        }
+    }
+
+    // runs a query against the tracker between two merged batches
+    public <T> T read(Function<ExpenseTracker, T> query) {
+        trackerLock.lock();
+        try {
+            return query.apply(tracker);
+        } finally {
+            trackerLock.unlock();
+        }
+    }
+
+    // stats
+    public long getAppliedBatches() {
+        synchronized (progress) {
+            return applied;
+        }
+    }
+
+    public long getAppliedRows() {
+        synchronized (progress) {
+            return appliedRows;
+        }
+    }
+
+    // addExpenses calls made so far, each one covering one or more submitted batches
+    public long getMergedBatches() {
+        synchronized (progress) {
+            return mergedBatches;
+        }
+    }
+
+    // stops taking batches, applies everything already queued and stops the writer
+    @Override
+    public void close() {
+        // waits for producers still queueing a batch, the writer keeps taking them so they do get in
+        acceptLock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            acceptLock.writeLock().unlock();
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(END);
+                writer.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (progress) {
+            checkFailure();
+        }
+    }
+
+    // the writer: takes one batch, drains what else is queued, and adds them in as few calls as fit maxBatchRows
+    // after a failure (or an interrupt) it keeps taking batches and drops them until the END marker, so producers
+    // blocked on a full queue get free and close() does not wait forever
+    private void drain() {
+        List<ExpenseBatch> batches = new ArrayList<>();
+        boolean failed = false;
+        while (true) {
+            try {
+                batches.add(queue.take());
+            } catch (InterruptedException e) {
+                if (!failed) {
+                    fail(new IllegalStateException("Ingestor writer was interrupted", e));
+                    failed = true;
+                }
+                continue;
+            }
+            queue.drainTo(batches);
+            boolean end = batches.remove(END);
+            if (!failed) {
+                try {
+                    apply(batches);
+                } catch (RuntimeException e) {
+                    fail(e);
+                    failed = true;
+                }
+            }
+            batches.clear();
+            if (end) {
+                return;
+            }
+        }
+    }
+
+    // groups consecutive batches up to maxBatchRows; a group of one batch is added as is, larger ones are
+    // copied into the merged batch first
+    private void apply(List<ExpenseBatch> batches) {
+        int from = 0;
+        int rows = 0;
+        for (int i = 0; i < batches.size(); i++) {
+            int size = batches.get(i).size();
+            if (i > from && rows + size > maxBatchRows) {
+                addGroup(batches, from, i, rows);
+                from = i;
+                rows = 0;
+            }
+            rows += size;
+        }
+        if (from < batches.size()) {
+            addGroup(batches, from, batches.size(), rows);
+        }
+    }
+
+    private void addGroup(List<ExpenseBatch> batches, int from, int to, int rows) {
+        ExpenseBatch group = batches.get(from);
+        if (to - from > 1) {
+            for (int b = from; b < to; b++) {
+                ExpenseBatch batch = batches.get(b);
+                for (int i = 0; i < batch.size(); i++) {
+                    merged.addCents(batch.categoryAt(i), batch.amountCentsAt(i), batch.epochDayAt(i));
+                }
+            }
+            group = merged;
+        }
+        trackerLock.lock();
+        try {
+            if (!group.isEmpty()) {
+                tracker.addExpenses(group);
+            }
+        } finally {
+            trackerLock.unlock();
+            merged.clear();
+        }
+        synchronized (progress) {
+            applied += to - from;
+            appliedRows += rows;
+            mergedBatches++;
+            progress.notifyAll();
+        }
+    }
+
+    private void fail(RuntimeException e) {
+        synchronized (progress) {
+            failure = e;
+            progress.notifyAll();
+        }
+    }
+
+    private void checkAccepting() {
+        if (closed) {
+            throw new IllegalStateException("Ingestor is closed");
+        }
+        synchronized (progress) {
+            checkFailure();
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new IllegalStateException("Ingestion failed, later batches were dropped", failure);
+        }
+    }
+}
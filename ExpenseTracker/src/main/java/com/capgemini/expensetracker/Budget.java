@@ -0,0 +1,60 @@
+package com.capgemini.expensetracker;
+
+import java.util.function.Consumer;
+
+// a limit on what one category may spend in any rolling window of days, e.g. Food over 500 in 30 days
+// registered with ExpenseTracker.addBudget, which keeps the window total up to date as expenses arrive and
+// calls the listener each time the total goes over the limit (again after it had come back under it)
+public class Budget {
+
+    private final String category;
+    private final long limitCents;
+    private final int windowDays;
+    final Consumer<BudgetAlert> listener;
+
+    // kept by BudgetMonitor: the total of the window ending at the category's latest day, and whether it is over
+    long windowTotalCents;
+    boolean over;
+
+    Budget(String category, long limitCents, int windowDays, Consumer<BudgetAlert> listener) {
+        this.category = category;
+        this.limitCents = limitCents;
+        this.windowDays = windowDays;
+        this.listener = listener;
+    }
+
+    // getters
+    public String getCategory() {
+        return category;
+    }
+
+    public double getLimit() {
+        return Money.toAmount(limitCents);
+    }
+
+    public long getLimitCents() {
+        return limitCents;
+    }
+
+    public int getWindowDays() {
+        return windowDays;
+    }
+
+    // the category's total over the window ending at its latest expense
+    public double getWindowTotal() {
+        return Money.toAmount(windowTotalCents);
+    }
+
+    public long getWindowTotalCents() {
+        return windowTotalCents;
+    }
+
+    public boolean isOver() {
+        return over;
+    }
+
+    @Override
+    public String toString() {
+        return category + " over " + Money.format(limitCents) + " in " + windowDays + " days";
+    }
+}
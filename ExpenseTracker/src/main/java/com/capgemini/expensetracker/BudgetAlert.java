@@ -0,0 +1,47 @@
+package com.capgemini.expensetracker;
+
+import java.time.LocalDate;
+
+// a budget whose category went over its limit: the window that did it and the category's total in it
+public class BudgetAlert {
+
+    private final Budget budget;
+    private final LocalDate windowStart;
+    private final LocalDate windowEnd;
+    private final long totalCents;
+
+    BudgetAlert(Budget budget, LocalDate windowStart, LocalDate windowEnd, long totalCents) {
+        this.budget = budget;
+        this.windowStart = windowStart;
+        this.windowEnd = windowEnd;
+        this.totalCents = totalCents;
+    }
+
+    // getters
+    public Budget getBudget() {
+        return budget;
+    }
+
+    // first and last day of the window, both inclusive
+    public LocalDate getWindowStart() {
+        return windowStart;
+    }
+
+    public LocalDate getWindowEnd() {
+        return windowEnd;
+    }
+
+    public double getTotal() {
+        return Money.toAmount(totalCents);
+    }
+
+    public long getTotalCents() {
+        return totalCents;
+    }
+
+    @Override
+    public String toString() {
+        return budget.getCategory() + " spent " + Money.format(totalCents) + " from " + windowStart + " to "
+                + windowEnd + ", over its limit of " + Money.format(budget.getLimitCents());
+    }
+}
@@ -0,0 +1,187 @@
+package com.capgemini.expensetracker;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.IntToLongFunction;
+
+// the rolling window totals behind a tracker's budgets, updated from ExpenseTracker.fold as expenses come and go
+//
+// every category with budgets has a ring of per-day totals keyed by epoch day modulo the ring size, which covers
+// the longest of its windows and ends at the category's latest day (the head). every budget keeps the total of its
+// own window ending at the head, so an expense inside it is one addition and one comparison per budget. moving
+// the head forward by some days subtracts those days' totals as they leave each window and clears their ring
+// slots, so over time that costs O(1) per budget per day. windows follow the latest date seen in the category:
+// an expense dated before every window still counts in the tracker's totals but cannot trip a budget
+//
+// limits are checked by deliver() once the tracker has finished a change, against the totals it ended with,
+// so an update (taken out, then added back) or a window sliding before the new expense lands cannot raise an
+// alert the tracker never showed. a listener sees (and may query) a consistent tracker, and one that throws
+// cannot leave it half updated
+final class BudgetMonitor {
+    private Windows[] windows = new Windows[16];
+    private final List<Budget> budgets = new ArrayList<>();
+    private final List<Windows> changed = new ArrayList<>();
+
+    // the ring and budgets of one category
+    private static final class Windows {
+        long[] ring;
+        int head;
+        boolean started;
+        Budget[] budgets = new Budget[4];
+        int count;
+        boolean changed;
+    }
+
+    // registers a budget; dailySum gives the category's total of a day so far, and head is the day the windows
+    // end at if the category has no windows yet (the category's latest day, null while it has no expenses). the budget
+    // starts out over if its window already is, without an alert
+    void add(int categoryId, Budget budget, IntToLongFunction dailySum, Integer head) {
+        if (categoryId >= windows.length) {
+            windows = Arrays.copyOf(windows, Math.max(windows.length * 2, categoryId + 1));
+        }
+        Windows category = windows[categoryId];
+        if (category == null) {
+            category = new Windows();
+            category.started = head != null;
+            category.head = head == null ? 0 : head;
+            windows[categoryId] = category;
+        }
+        if (category.count == category.budgets.length) {
+            category.budgets = Arrays.copyOf(category.budgets, category.count * 2);
+        }
+        category.budgets[category.count++] = budget;
+        budgets.add(budget);
+
+        if (category.ring == null || category.ring.length < budget.getWindowDays()) {
+            // a longer window than the ring covers: rebuild the ring from the tracker's per-day totals
+            int size = Integer.highestOneBit(Math.max(budget.getWindowDays() - 1, 1)) << 1;
+            category.ring = new long[size];
+            if (category.started) {
+                for (int day = category.head - size + 1; day <= category.head; day++) {
+                    category.ring[day & (size - 1)] = dailySum.applyAsLong(day);
+                }
+            }
+        }
+        budget.windowTotalCents = 0;
+        if (category.started) {
+            for (int day = category.head - budget.getWindowDays() + 1; day <= category.head; day++) {
+                budget.windowTotalCents += category.ring[day & (category.ring.length - 1)];
+            }
+        }
+        budget.over = budget.windowTotalCents > budget.getLimitCents();
+    }
+
+    // unregisters a budget, returns false if it was not registered
+    boolean remove(int categoryId, Budget budget) {
+        Windows category = categoryId < windows.length ? windows[categoryId] : null;
+        if (category == null) {
+            return false;
+        }
+        for (int i = 0; i < category.count; i++) {
+            if (category.budgets[i] == budget) {
+                category.budgets[i] = category.budgets[--category.count];
+                category.budgets[category.count] = null;
+                budgets.remove(budget);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    List<Budget> budgets() {
+        return Collections.unmodifiableList(budgets);
+    }
+
+    // adds cents (negative to take an expense out) to the category's day and the budgets whose window holds it
+    void fold(int categoryId, long cents, int epochDay) {
+        Windows category = categoryId < windows.length ? windows[categoryId] : null;
+        if (category == null) {
+            return;
+        }
+        if (!category.started) {
+            category.head = epochDay;
+            category.started = true;
+        } else if (epochDay > category.head) {
+            advance(category, epochDay);
+        }
+        int mask = category.ring.length - 1;
+        if ((long) epochDay <= (long) category.head - category.ring.length) {
+            return;
+        }
+        category.ring[epochDay & mask] += cents;
+        for (int i = 0; i < category.count; i++) {
+            Budget budget = category.budgets[i];
+            if (epochDay > category.head - budget.getWindowDays()) {
+                budget.windowTotalCents += cents;
+            }
+        }
+        if (!category.changed) {
+            category.changed = true;
+            changed.add(category);
+        }
+    }
+
+    // moves the head to a later day: the days that leave each window are subtracted from it, the ring slots of
+    // the new days are cleared
+    private void advance(Windows category, int day) {
+        int mask = category.ring.length - 1;
+        long steps = (long) day - category.head;
+        if (steps >= category.ring.length) {
+            Arrays.fill(category.ring, 0);
+            for (int i = 0; i < category.count; i++) {
+                category.budgets[i].windowTotalCents = 0;
+            }
+        } else {
+            for (int i = 0; i < category.count; i++) {
+                Budget budget = category.budgets[i];
+                int window = budget.getWindowDays();
+                if (steps >= window) {
+                    budget.windowTotalCents = 0;
+                } else {
+                    for (int leaving = category.head - window + 1; leaving <= day - window; leaving++) {
+                        budget.windowTotalCents -= category.ring[leaving & mask];
+                    }
+                }
+            }
+            for (int entering = category.head + 1; entering <= day; entering++) {
+                category.ring[entering & mask] = 0;
+            }
+        }
+        category.head = day;
+    }
+
+    // checks the budgets of the categories changed since the last call and calls the listener of each one that
+    // went over its limit
+    void deliver() {
+        if (changed.isEmpty()) {
+            return;
+        }
+        List<BudgetAlert> alerts = new ArrayList<>();
+        for (Windows category : changed) {
+            category.changed = false;
+            for (int i = 0; i < category.count; i++) {
+                Budget budget = category.budgets[i];
+                boolean over = budget.windowTotalCents > budget.getLimitCents();
+                if (over && !budget.over) {
+                    alerts.add(new BudgetAlert(budget, LocalDate.ofEpochDay(category.head - budget.getWindowDays() + 1),
+                            LocalDate.ofEpochDay(category.head), budget.windowTotalCents));
+                }
+                budget.over = over;
+            }
+        }
+        changed.clear();
+        for (BudgetAlert alert : alerts) {
+            alert.getBudget().listener.accept(alert);
+        }
+    }
+
+    long estimatedBytes() {
+        long bytes = 16L * windows.length + 64;
+        for (Windows category : windows) {
+            if (category != null) {
+                bytes += 8L * category.ring.length + 8L * category.budgets.length + 48;
+            }
+        }
+        return bytes + 64L * budgets.size();
+    }
+}
@@ -0,0 +1,40 @@
+package com.capgemini.expensetracker;
+
+// hit and miss counts of a tracker's query cache, see ExpenseTracker.getQueryCacheStats
+public class CacheStats {
+
+    private final long hits;
+    private final long misses;
+    private final int size;
+
+    CacheStats(long hits, long misses, int size) {
+        this.hits = hits;
+        this.misses = misses;
+        this.size = size;
+    }
+
+    // getters
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    // number of query results currently cached
+    public int getSize() {
+        return size;
+    }
+
+    // share of lookups served from the cache, 0 before the first lookup
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return hits + " hits, " + misses + " misses, " + size + " cached";
+    }
+}
@@ -0,0 +1,57 @@
+package com.capgemini.expensetracker;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// interns category names to dense int ids (0, 1, 2, ...) in the order they are first seen
+// the ids index straight into per-category arrays, so aggregation never hashes a category string
+class CategoryDictionary {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<String, Integer> ids;
+    private String[] names;
+    private int size;
+
+    CategoryDictionary() {
+        ids = new HashMap<>();
+        names = new String[INITIAL_CAPACITY];
+    }
+
+    // returns the id for the category, assigning the next free id the first time a name is seen
+    int intern(String category) {
+        Integer id = ids.get(category);
+        if (id != null) {
+            return id;
+        }
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+        }
+        names[size] = category;
+        ids.put(category, size);
+        return size++;
+    }
+
+    // returns the id for the category, or -1 if it has never been interned
+    int idOf(String category) {
+        Integer id = ids.get(category);
+        return id == null ? -1 : id;
+    }
+
+    // returns the canonical name instance for the id
+    String name(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Unknown category id: " + id);
+        }
+        return names[id];
+    }
+
+    int size() {
+        return size;
+    }
+
+    // approximate heap footprint: the names array plus a hash map entry and a short name per category
+    long estimatedBytes() {
+        return 8L * names.length + 120L * size + 64;
+    }
+}
@@ -3,15 +3,25 @@ package com.capgemini.expensetracker;
 public class CategoryExtreme {
 
     private final String highestCategory;
-    private final double highestAmount;
+    private final long highestAmountCents;
     private final String lowestCategory;
-    private final double lowestAmount;
+    private final long lowestAmountCents;
 
+    // amounts are rounded to the nearest cent
     public CategoryExtreme(String highestCategory, double highestAmount, String lowestCategory, double lowestAmount) {
+        this(highestCategory, Money.toCents(highestAmount), lowestCategory, Money.toCents(lowestAmount));
+    }
+
+    private CategoryExtreme(String highestCategory, long highestAmountCents, String lowestCategory, long lowestAmountCents) {
         this.highestCategory = highestCategory;
-        this.highestAmount = highestAmount;
+        this.highestAmountCents = highestAmountCents;
         this.lowestCategory = lowestCategory;
-        this.lowestAmount = lowestAmount;
+        this.lowestAmountCents = lowestAmountCents;
+    }
+
+    public static CategoryExtreme ofCents(String highestCategory, long highestAmountCents,
+                                          String lowestCategory, long lowestAmountCents) {
+        return new CategoryExtreme(highestCategory, highestAmountCents, lowestCategory, lowestAmountCents);
     }
 
     // getters
@@ -20,7 +30,11 @@ public class CategoryExtreme {
     }
 
     public double getHighestAmount() {
-        return highestAmount;
+        return Money.toAmount(highestAmountCents);
+    }
+
+    public long getHighestAmountCents() {
+        return highestAmountCents;
     }
 
     public String getLowestCategory() {
@@ -28,7 +42,11 @@ public class CategoryExtreme {
     }
 
     public double getLowestAmount() {
-        return lowestAmount;
+        return Money.toAmount(lowestAmountCents);
+    }
+
+    public long getLowestAmountCents() {
+        return lowestAmountCents;
     }
 
 }
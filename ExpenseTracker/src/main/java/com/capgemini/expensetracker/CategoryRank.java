@@ -0,0 +1,37 @@
+package com.capgemini.expensetracker;
+
+// one entry of a category ranking: the category, its total and its 1-based position in the ranking
+public class CategoryRank {
+
+    private final int rank;
+    private final String category;
+    private final long amountCents;
+
+    CategoryRank(int rank, String category, long amountCents) {
+        this.rank = rank;
+        this.category = category;
+        this.amountCents = amountCents;
+    }
+
+    // getters
+    public int getRank() {
+        return rank;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public double getAmount() {
+        return Money.toAmount(amountCents);
+    }
+
+    public long getAmountCents() {
+        return amountCents;
+    }
+
+    @Override
+    public String toString() {
+        return rank + ". " + category + " " + Money.format(amountCents);
+    }
+}
@@ -0,0 +1,335 @@
+package com.capgemini.expensetracker;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+// thread-safe variant of ExpenseTracker for concurrent ingestion and querying
+//
+// expenses go into stripes, each an append-only log of fixed-size chunks with its own total and per-category
+// totals in cents. a writer appends to the stripe of its thread, or to the next free one if that is busy, under
+// the stripe's write lock, so writers on different stripes do not contend and the sums do not depend on the
+// order the adds land in. a row and the totals that include it are published by the same unlock.
+//
+// readers never take a lock in the common case: they read each stripe optimistically and retry if a writer
+// got in between, falling back to the stripe's read lock only after repeated retries. every query is answered
+// from a Snapshot, so its totals, category totals and rows always describe the same set of expenses; only
+// getTotal reads the stripes' totals directly. a snapshot lists the stripes one after the other, so expenses
+// come in no particular order, not even those of one thread, which moves on to another stripe when its own is busy
+public class ConcurrentExpenseTracker {
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int MAX_STRIPES = 64;
+    private static final int OPTIMISTIC_ATTEMPTS = 4;
+
+    private final Stripe[] stripes;
+    private final ConcurrentHashMap<String, Integer> categoryIds = new ConcurrentHashMap<>();
+    // names by category id; both are written by register, the names are read by snapshots
+    private volatile String[] categoryNames = new String[16];
+    private int categoryCount;
+
+    // one append-only log and its running totals; fields are written under the write lock and read by
+    // snapshots through an optimistic read that is validated afterwards
+    private static final class Stripe {
+        final StampedLock lock = new StampedLock();
+        Chunk[] chunks = new Chunk[4];
+        int size;
+        long total;
+        long[] categoryTotals = new long[16];
+        int[] categoryCounts = new int[16];
+    }
+
+    private static final class Chunk {
+        final int[] categoryIds = new int[CHUNK_SIZE];
+        final long[] amountCents = new long[CHUNK_SIZE];
+        final int[] epochDays = new int[CHUNK_SIZE];
+    }
+
+    public ConcurrentExpenseTracker() {
+        // a power of two of at least twice the cores, so writers rarely find their stripe busy
+        int count = 1;
+        while (count < MAX_STRIPES && count < 2 * Runtime.getRuntime().availableProcessors()) {
+            count <<= 1;
+        }
+        stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    // adds an expense, rounded to the nearest cent; safe to call from any number of threads
+    public void addExpense(String category, double amount, LocalDate date) {
+        addExpenseCents(category, Money.toCents(amount), date);
+    }
+
+    // adds an expense whose amount is given in cents; safe to call from any number of threads
+    public void addExpenseCents(String category, long amountCents, LocalDate date) {
+        int epochDay = Math.toIntExact(date.toEpochDay());
+        int categoryId = categoryIds.computeIfAbsent(category, this::register);
+
+        // the thread's own stripe if it is free, else the first free one after it, else wait for the own one
+        int home = (int) Thread.currentThread().threadId() & (stripes.length - 1);
+        Stripe stripe = null;
+        long stamp = 0;
+        for (int i = 0; i < stripes.length && stamp == 0; i++) {
+            stripe = stripes[(home + i) & (stripes.length - 1)];
+            stamp = stripe.lock.tryWriteLock();
+        }
+        if (stamp == 0) {
+            stripe = stripes[home];
+            stamp = stripe.lock.writeLock();
+        }
+        try {
+            append(stripe, categoryId, amountCents, epochDay);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    // gives a new category the next id, called once per category from computeIfAbsent
+    private int register(String category) {
+        synchronized (categoryIds) {
+            int id = categoryCount++;
+            String[] names = categoryNames;
+            if (id == names.length) {
+                names = Arrays.copyOf(names, names.length * 2);
+            }
+            names[id] = category;
+            // publishes the name before any row can use the id
+            categoryNames = names;
+            return id;
+        }
+    }
+
+    private static void append(Stripe stripe, int categoryId, long amountCents, int epochDay) {
+        int row = stripe.size;
+        int chunkIndex = row >>> CHUNK_BITS;
+        if (chunkIndex == stripe.chunks.length) {
+            stripe.chunks = Arrays.copyOf(stripe.chunks, stripe.chunks.length * 2);
+        }
+        Chunk chunk = stripe.chunks[chunkIndex];
+        if (chunk == null) {
+            chunk = new Chunk();
+            stripe.chunks[chunkIndex] = chunk;
+        }
+        int offset = row & CHUNK_MASK;
+        chunk.categoryIds[offset] = categoryId;
+        chunk.amountCents[offset] = amountCents;
+        chunk.epochDays[offset] = epochDay;
+        if (categoryId >= stripe.categoryTotals.length) {
+            int capacity = Math.max(stripe.categoryTotals.length * 2, categoryId + 1);
+            stripe.categoryTotals = Arrays.copyOf(stripe.categoryTotals, capacity);
+            stripe.categoryCounts = Arrays.copyOf(stripe.categoryCounts, capacity);
+        }
+        stripe.categoryTotals[categoryId] += amountCents;
+        stripe.categoryCounts[categoryId]++;
+        stripe.total += amountCents;
+        stripe.size = row + 1;
+    }
+
+    // the expenses added so far and their totals, as of one moment per stripe
+    public Snapshot snapshot() {
+        int stripeCount = stripes.length;
+        Chunk[][] chunks = new Chunk[stripeCount][];
+        int[] sizes = new int[stripeCount];
+        long total = 0;
+        long[] categoryTotals = new long[0];
+        int[] categoryCounts = new int[0];
+        for (int i = 0; i < stripeCount; i++) {
+            Stripe stripe = stripes[i];
+            Chunk[] stripeChunks;
+            int size;
+            long stripeTotal;
+            long[] totals;
+            int[] counts;
+            int attempt = 0;
+            while (true) {
+                boolean locked = attempt++ == OPTIMISTIC_ATTEMPTS;
+                long stamp = locked ? stripe.lock.readLock() : stripe.lock.tryOptimisticRead();
+                try {
+                    stripeChunks = stripe.chunks;
+                    size = stripe.size;
+                    stripeTotal = stripe.total;
+                    totals = stripe.categoryTotals.clone();
+                    counts = stripe.categoryCounts.clone();
+                } finally {
+                    if (locked) {
+                        stripe.lock.unlockRead(stamp);
+                    }
+                }
+                if (locked || stamp != 0 && stripe.lock.validate(stamp)) {
+                    break;
+                }
+            }
+            chunks[i] = stripeChunks;
+            sizes[i] = size;
+            total += stripeTotal;
+            if (totals.length > categoryTotals.length) {
+                categoryTotals = Arrays.copyOf(categoryTotals, totals.length);
+                categoryCounts = Arrays.copyOf(categoryCounts, totals.length);
+            }
+            for (int id = 0; id < totals.length; id++) {
+                categoryTotals[id] += totals[id];
+                categoryCounts[id] += counts[id];
+            }
+        }
+        // read after the stripes, so it names every category their rows use
+        return new Snapshot(categoryNames, chunks, sizes, total, categoryTotals, categoryCounts);
+    }
+
+    // returns total amount
+    public double getTotal() {
+        return Money.toAmount(getTotalCents());
+    }
+
+    // returns total amount in cents, read stripe by stripe like snapshot() but without copying anything
+    public long getTotalCents() {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            total += readTotal(stripe);
+        }
+        return total;
+    }
+
+    private static long readTotal(Stripe stripe) {
+        for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+            long stamp = stripe.lock.tryOptimisticRead();
+            long total = stripe.total;
+            if (stamp != 0 && stripe.lock.validate(stamp)) {
+                return total;
+            }
+        }
+        long stamp = stripe.lock.readLock();
+        try {
+            return stripe.total;
+        } finally {
+            stripe.lock.unlockRead(stamp);
+        }
+    }
+
+    // returns totals grouped by category
+    public Map<String, Double> getTotalByCategory() {
+        return snapshot().getTotalByCategory();
+    }
+
+    // shows category with highest and lowest total expense amounts
+    public Optional<CategoryExtreme> getCategoryExtremes() {
+        return snapshot().getCategoryExtremes();
+    }
+
+    // returns a read-only snapshot of the expenses added so far
+    // later adds do not show up in it, and iterating it never throws ConcurrentModificationException
+    public List<Expense> getExpenses() {
+        return snapshot().getExpenses();
+    }
+
+    // the tracker as of snapshot(): the totals are those of exactly the expenses it lists
+    public static final class Snapshot {
+        private final String[] categoryNames;
+        private final long total;
+        private final long[] categoryTotals;
+        private final int[] categoryCounts;
+        private final List<Expense> expenses;
+
+        private Snapshot(String[] categoryNames, Chunk[][] chunks, int[] sizes, long total,
+                         long[] categoryTotals, int[] categoryCounts) {
+            this.categoryNames = categoryNames;
+            this.total = total;
+            this.categoryTotals = categoryTotals;
+            this.categoryCounts = categoryCounts;
+            this.expenses = new Rows(categoryNames, chunks, sizes);
+        }
+
+        public double getTotal() {
+            return Money.toAmount(total);
+        }
+
+        public long getTotalCents() {
+            return total;
+        }
+
+        // categories without an expense in the snapshot are left out
+        public Map<String, Double> getTotalByCategory() {
+            Map<String, Double> totals = new HashMap<>();
+            for (int id = 0; id < categoryTotals.length; id++) {
+                if (categoryCounts[id] > 0) {
+                    totals.put(categoryNames[id], Money.toAmount(categoryTotals[id]));
+                }
+            }
+            return totals;
+        }
+
+        // the category added first wins ties
+        public Optional<CategoryExtreme> getCategoryExtremes() {
+            int highestId = -1;
+            int lowestId = -1;
+            for (int id = 0; id < categoryTotals.length; id++) {
+                if (categoryCounts[id] == 0) {
+                    continue;
+                }
+                if (highestId < 0 || categoryTotals[id] > categoryTotals[highestId]) {
+                    highestId = id;
+                }
+                if (lowestId < 0 || categoryTotals[id] < categoryTotals[lowestId]) {
+                    lowestId = id;
+                }
+            }
+            if (highestId < 0) {
+                return Optional.empty();
+            }
+            return Optional.of(CategoryExtreme.ofCents(categoryNames[highestId], categoryTotals[highestId],
+                    categoryNames[lowestId], categoryTotals[lowestId]));
+        }
+
+        public List<Expense> getExpenses() {
+            return expenses;
+        }
+    }
+
+    // the rows of every stripe up to its size in the snapshot, one stripe after the other
+    private static final class Rows extends AbstractList<Expense> implements RandomAccess {
+        private final String[] categoryNames;
+        private final Chunk[][] chunks;
+        // starts[i] is the index of stripe i's first row
+        private final int[] starts;
+        private final int size;
+
+        Rows(String[] categoryNames, Chunk[][] chunks, int[] sizes) {
+            this.categoryNames = categoryNames;
+            this.chunks = chunks;
+            this.starts = new int[sizes.length];
+            int size = 0;
+            for (int i = 0; i < sizes.length; i++) {
+                starts[i] = size;
+                size += sizes[i];
+            }
+            this.size = size;
+        }
+
+        @Override
+        public Expense get(int index) {
+            Objects.checkIndex(index, size);
+            int stripe = Arrays.binarySearch(starts, index);
+            if (stripe < 0) {
+                stripe = -stripe - 2;
+            } else {
+                // stripes without rows share a start with the next one
+                while (stripe + 1 < starts.length && starts[stripe + 1] == index) {
+                    stripe++;
+                }
+            }
+            int row = index - starts[stripe];
+            Chunk chunk = chunks[stripe][row >>> CHUNK_BITS];
+            int offset = row & CHUNK_MASK;
+            return Expense.ofCents(categoryNames[chunk.categoryIds[offset]], chunk.amountCents[offset],
+                    LocalDate.ofEpochDay(chunk.epochDays[offset]));
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
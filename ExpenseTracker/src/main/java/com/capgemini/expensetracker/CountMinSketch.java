@@ -0,0 +1,69 @@
+package com.capgemini.expensetracker;
+
+// per-key sums of non-negative amounts in a fixed table of depth rows by width counters (Cormode-Muthukrishnan)
+//
+// a key adds its amount to one counter in every row, picked by a different hash per row, and its sum is
+// estimated by the smallest of those counters. collisions only ever add to a counter, so the estimate never
+// falls below the true sum, and with width w and depth d it exceeds it by more than (e / w) * total with a
+// probability of at most e^-d, however many keys there are. updates are conservative: a counter is only raised as
+// far as the new estimate needs, which keeps the same bounds with less overshoot
+final class CountMinSketch {
+    private final int width;
+    private final int depth;
+    private final long[] counters;
+    private long total;
+
+    // width is rounded up to a power of two
+    CountMinSketch(int width, int depth) {
+        if (width < 1 || depth < 1) {
+            throw new IllegalArgumentException("Width and depth must be positive");
+        }
+        this.width = width == 1 ? 1 : Integer.highestOneBit(width - 1) << 1;
+        this.depth = depth;
+        this.counters = new long[this.width * depth];
+    }
+
+    // hash is a 64-bit hash of the key; its two halves make the row hashes (Kirsch-Mitzenmacher)
+    void add(long hash, long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Amount must not be negative: " + amount);
+        }
+        long estimate = estimate(hash) + amount;
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int row = 0; row < depth; row++) {
+            int index = row * width + ((h1 + row * h2) & (width - 1));
+            if (counters[index] < estimate) {
+                counters[index] = estimate;
+            }
+        }
+        total += amount;
+    }
+
+    long estimate(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[row * width + ((h1 + row * h2) & (width - 1))]);
+        }
+        return estimate;
+    }
+
+    // the amount an estimate exceeds the true sum by, except with probability errorProbability()
+    long errorBound() {
+        return (long) Math.ceil(Math.E / width * total);
+    }
+
+    double errorProbability() {
+        return Math.exp(-depth);
+    }
+
+    long total() {
+        return total;
+    }
+
+    long estimatedBytes() {
+        return 8L * counters.length + 64;
+    }
+}
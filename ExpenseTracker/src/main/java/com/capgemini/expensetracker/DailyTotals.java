@@ -0,0 +1,115 @@
+package com.capgemini.expensetracker;
+
+import java.util.TreeMap;
+
+// per-day totals in cents over a contiguous range of epoch days, backed by a Fenwick (binary indexed) tree
+// adding an amount and summing any date range both cost O(log days); the range grows by doubling as needed
+// up to MAX_DENSE_DAYS. days that would stretch it further (a mistyped year, say) are kept in a sparse map
+// instead, which a range sum walks one entry at a time
+class DailyTotals {
+    private static final int INITIAL_CAPACITY = 64;
+    // about 179 years, 2 MB of arrays at most
+    static final int MAX_DENSE_DAYS = 1 << 16;
+
+    private int baseDay;
+    private long[] daily; // plain per-day totals, offset from baseDay, kept to rebuild the tree on growth
+    private long[] tree;  // 1-based Fenwick tree over daily
+    // totals of the days outside the dense range, days whose total is back to 0 are dropped
+    private final TreeMap<Integer, Long> sparse = new TreeMap<>();
+
+    private boolean empty = true;
+
+    DailyTotals() {
+        daily = new long[INITIAL_CAPACITY];
+        tree = new long[INITIAL_CAPACITY + 1];
+    }
+
+    // adds cents to the total of the given day, negative cents take an amount out again
+    void add(int epochDay, long cents) {
+        if (empty) {
+            baseDay = epochDay;
+            empty = false;
+        } else if (!ensureCovers(epochDay)) {
+            sparse.merge(epochDay, cents, (total, more) -> total + more == 0 ? null : total + more);
+            return;
+        }
+
+        int offset = epochDay - baseDay;
+        daily[offset] += cents;
+        for (int i = offset + 1; i < tree.length; i += i & -i) {
+            tree[i] += cents;
+        }
+    }
+
+    // returns the sum of all days from fromDay to toDay, both inclusive
+    long sumBetween(int fromDay, int toDay) {
+        if (empty || fromDay > toDay) {
+            return 0;
+        }
+        long sum = 0;
+        if (!sparse.isEmpty()) {
+            for (long cents : sparse.subMap(fromDay, true, toDay, true).values()) {
+                sum += cents;
+            }
+        }
+        long from = Math.max(fromDay, baseDay) - (long) baseDay;
+        long to = Math.min(toDay, (long) baseDay + daily.length - 1) - baseDay;
+        if (from > to) {
+            return sum;
+        }
+        return sum + prefixSum((int) to) - prefixSum((int) from - 1);
+    }
+
+    // approximate heap footprint, see ExpenseTracker.estimatedBytes
+    long estimatedBytes() {
+        return 16L * daily.length + 48L * sparse.size() + 64;
+    }
+
+    // sum of offsets 0..offset inclusive
+    private long prefixSum(int offset) {
+        long sum = 0;
+        for (int i = offset + 1; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    // widens the covered range to include epochDay, doubling the capacity until it fits; false, leaving the
+    // range as it is, when that would take more than MAX_DENSE_DAYS
+    private boolean ensureCovers(int epochDay) {
+        int capacity = daily.length;
+        if (epochDay >= baseDay && epochDay < (long) baseDay + capacity) {
+            return true;
+        }
+        long low = Math.min(baseDay, epochDay);
+        long high = Math.max((long) baseDay + capacity - 1, epochDay);
+        if (high - low + 1 > MAX_DENSE_DAYS) {
+            return false;
+        }
+        int newCapacity = capacity;
+        while (high - low + 1 > newCapacity) {
+            newCapacity *= 2;
+        }
+        // keep the slack on the side we are growing towards, without going below the smallest int day
+        int newBaseDay = epochDay < baseDay ? (int) Math.max(Integer.MIN_VALUE, high - newCapacity + 1) : baseDay;
+
+        long[] newDaily = new long[newCapacity];
+        System.arraycopy(daily, 0, newDaily, baseDay - newBaseDay, capacity);
+        baseDay = newBaseDay;
+        daily = newDaily;
+        rebuildTree();
+        return true;
+    }
+
+    // builds the Fenwick tree from the daily totals in O(capacity)
+    private void rebuildTree() {
+        tree = new long[daily.length + 1];
+        for (int i = 1; i < tree.length; i++) {
+            tree[i] += daily[i - 1];
+            int parent = i + (i & -i);
+            if (parent < tree.length) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+}
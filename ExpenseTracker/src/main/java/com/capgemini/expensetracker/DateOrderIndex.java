@@ -0,0 +1,312 @@
+package com.capgemini.expensetracker;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+// row numbers of an ExpenseStore kept sorted by (date, row), i.e. by date with ties in insertion order
+// the rows are split into blocks of at most BLOCK_CAPACITY, so an insert or removal in the middle only
+// shifts the rows of one block instead of everything after it
+// appending a date on or after the latest one is O(1), so mostly-in-order feeds never pay for sorting;
+// an older date is binary searched over the blocks and then within its block
+class DateOrderIndex {
+    static final int BLOCK_CAPACITY = 1024;
+
+    private final ExpenseStore store;
+    private int[][] blocks = new int[4][];
+    private int[] blockSizes = new int[4];
+    private int blockCount;
+    private int size;
+    // position of the first row of every block, valid for blocks [0, validStarts)
+    private int[] blockStarts = new int[4];
+    private int validStarts;
+    // block of the last rowAt, so walking the index in order does not search for every position
+    private int lastBlock;
+
+    DateOrderIndex(ExpenseStore store) {
+        this.store = store;
+    }
+
+    // records a row that was just appended to the store
+    void insert(int row) {
+        if (blockCount == 0 || !before(row, lastRow())) {
+            append(row);
+            return;
+        }
+        insertSorted(row);
+    }
+
+    // records the rows fromRow (inclusive) to toRow (exclusive) that were just appended to the store
+    // an in-order run is appended as is, a short one is inserted row by row, and otherwise the run is
+    // sorted and merged with the whole index: O(n + k log k)
+    void insertRange(int fromRow, int toRow) {
+        int count = toRow - fromRow;
+        int previous = blockCount == 0 ? -1 : lastRow();
+        boolean inOrder = true;
+        for (int row = fromRow; row < toRow && inOrder; row++) {
+            inOrder = previous < 0 || !before(row, previous);
+            previous = row;
+        }
+        if (inOrder) {
+            for (int row = fromRow; row < toRow; row++) {
+                append(row);
+            }
+            return;
+        }
+        if ((long) count * BLOCK_CAPACITY < size) {
+            for (int row = fromRow; row < toRow; row++) {
+                insert(row);
+            }
+            return;
+        }
+
+        // sort the new rows by (date, row) packed into one long each
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            int row = fromRow + i;
+            keys[i] = ((long) store.epochDayAt(row) << 32) | row;
+        }
+        Arrays.sort(keys);
+
+        // merge from the back into one array, then cut it into blocks again
+        int[] existing = toArray();
+        int[] merged = new int[size + count];
+        int next = size - 1;
+        int added = count - 1;
+        for (int target = merged.length - 1; added >= 0; target--) {
+            int addedDay = (int) (keys[added] >> 32);
+            if (next >= 0 && store.epochDayAt(existing[next]) > addedDay) {
+                merged[target] = existing[next--];
+            } else {
+                merged[target] = (int) keys[added--];
+            }
+        }
+        System.arraycopy(existing, 0, merged, 0, next + 1);
+        load(merged);
+    }
+
+    // takes out a row, which must still hold the date it was indexed with
+    void remove(int row) {
+        int block = blockOf(row);
+        int position = block < blockCount ? lowerBound(blocks[block], blockSizes[block], row) : 0;
+        if (block == blockCount || position == blockSizes[block] || blocks[block][position] != row) {
+            throw new IllegalStateException("Row " + row + " is not in the date index");
+        }
+        int[] rows = blocks[block];
+        System.arraycopy(rows, position + 1, rows, position, blockSizes[block] - position - 1);
+        blockSizes[block]--;
+        size--;
+        if (blockSizes[block] == 0) {
+            removeBlock(block);
+        }
+        invalidateStarts(block);
+    }
+
+    // puts back a row taken out with remove, e.g. after its date changed
+    // among expenses on the same date it goes back to its place in insertion order
+    void reinsert(int row) {
+        insert(row);
+    }
+
+    // store row at the given position in date order
+    int rowAt(int position) {
+        Objects.checkIndex(position, size);
+        int block = lastBlock;
+        if (block >= validStarts || position < blockStarts[block] || position >= blockStarts[block] + blockSizes[block]) {
+            block = blockAt(position);
+            lastBlock = block;
+        }
+        return blocks[block][position - blockStarts[block]];
+    }
+
+    int size() {
+        return size;
+    }
+
+    // first position whose date is on or after epochDay, size if there is none
+    int firstPositionFrom(int epochDay) {
+        int low = 0;
+        int high = blockCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (store.epochDayAt(blocks[mid][blockSizes[mid] - 1]) < epochDay) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        if (low == blockCount) {
+            return size;
+        }
+        int block = low;
+        int[] rows = blocks[block];
+        low = 0;
+        high = blockSizes[block];
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (store.epochDayAt(rows[mid]) < epochDay) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        updateStarts();
+        return blockStarts[block] + low;
+    }
+
+    // approximate heap footprint, see ExpenseTracker.estimatedBytes
+    long estimatedBytes() {
+        return (4L * BLOCK_CAPACITY + 16) * blockCount + 16L * blocks.length + 64;
+    }
+
+    private void append(int row) {
+        if (blockCount == 0 || blockSizes[blockCount - 1] == BLOCK_CAPACITY) {
+            addBlock(blockCount, new int[BLOCK_CAPACITY], 0);
+        }
+        int block = blockCount - 1;
+        blocks[block][blockSizes[block]++] = row;
+        size++;
+    }
+
+    private void insertSorted(int row) {
+        int block = Math.min(blockOf(row), blockCount - 1);
+        if (blockSizes[block] == BLOCK_CAPACITY) {
+            split(block);
+            if (!before(row, blocks[block + 1][0])) {
+                block++;
+            }
+        }
+        int[] rows = blocks[block];
+        int position = lowerBound(rows, blockSizes[block], row);
+        System.arraycopy(rows, position, rows, position + 1, blockSizes[block] - position);
+        rows[position] = row;
+        blockSizes[block]++;
+        size++;
+        invalidateStarts(block);
+    }
+
+    // moves the upper half of a full block into a new block after it
+    private void split(int block) {
+        int half = BLOCK_CAPACITY / 2;
+        int[] upper = new int[BLOCK_CAPACITY];
+        System.arraycopy(blocks[block], half, upper, 0, BLOCK_CAPACITY - half);
+        blockSizes[block] = half;
+        addBlock(block + 1, upper, BLOCK_CAPACITY - half);
+        invalidateStarts(block);
+    }
+
+    private void addBlock(int block, int[] rows, int rowCount) {
+        if (blockCount == blocks.length) {
+            int capacity = blockCount * 2;
+            blocks = Arrays.copyOf(blocks, capacity);
+            blockSizes = Arrays.copyOf(blockSizes, capacity);
+            blockStarts = Arrays.copyOf(blockStarts, capacity);
+        }
+        System.arraycopy(blocks, block, blocks, block + 1, blockCount - block);
+        System.arraycopy(blockSizes, block, blockSizes, block + 1, blockCount - block);
+        blocks[block] = rows;
+        blockSizes[block] = rowCount;
+        blockCount++;
+        invalidateStarts(block);
+    }
+
+    private void removeBlock(int block) {
+        System.arraycopy(blocks, block + 1, blocks, block, blockCount - block - 1);
+        System.arraycopy(blockSizes, block + 1, blockSizes, block, blockCount - block - 1);
+        blockCount--;
+        blocks[blockCount] = null;
+    }
+
+    private void invalidateStarts(int block) {
+        validStarts = Math.min(validStarts, block);
+    }
+
+    private void updateStarts() {
+        for (; validStarts < blockCount; validStarts++) {
+            blockStarts[validStarts] = validStarts == 0 ? 0 : blockStarts[validStarts - 1] + blockSizes[validStarts - 1];
+        }
+    }
+
+    // block holding the given position, bringing the block starts up to date on the way
+    private int blockAt(int position) {
+        updateStarts();
+        int low = 0;
+        int high = blockCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (blockStarts[mid] <= position) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    // first block whose last row is not before row, blockCount if there is none
+    private int blockOf(int row) {
+        int low = 0;
+        int high = blockCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (before(blocks[mid][blockSizes[mid] - 1], row)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // first position in rows[0, count) that is not before row
+    private int lowerBound(int[] rows, int count, int row) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (before(rows[mid], row)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // true if row a comes before row b in (date, row) order
+    private boolean before(int a, int b) {
+        int dayA = store.epochDayAt(a);
+        int dayB = store.epochDayAt(b);
+        return dayA < dayB || (dayA == dayB && a < b);
+    }
+
+    private int lastRow() {
+        return blocks[blockCount - 1][blockSizes[blockCount - 1] - 1];
+    }
+
+    private int[] toArray() {
+        int[] rows = new int[size];
+        int position = 0;
+        for (int block = 0; block < blockCount; block++) {
+            System.arraycopy(blocks[block], 0, rows, position, blockSizes[block]);
+            position += blockSizes[block];
+        }
+        return rows;
+    }
+
+    // replaces the index with the given sorted rows, leaving room in every block for later inserts
+    private void load(int[] rows) {
+        Arrays.fill(blocks, null);
+        blockCount = 0;
+        size = 0;
+        validStarts = 0;
+        lastBlock = 0;
+        int fill = BLOCK_CAPACITY * 3 / 4;
+        for (int from = 0; from < rows.length; from += fill) {
+            int count = Math.min(fill, rows.length - from);
+            int[] block = new int[BLOCK_CAPACITY];
+            System.arraycopy(rows, from, block, 0, count);
+            addBlock(blockCount, block, count);
+            size += count;
+        }
+    }
+}
@@ -3,23 +3,51 @@ package com.capgemini.expensetracker;
 import java.time.LocalDate;
 
 public class Expense {
+    // id of expenses that were not read from an ExpenseTracker
+    public static final long NO_ID = -1;
+
+    private final long id;
     private final String category;
-    private final double amount;
+    private final long amountCents;
     private final LocalDate date;
 
+    // amount is rounded to the nearest cent
     public Expense(String category, double amount, LocalDate date) {
+        this(NO_ID, category, Money.toCents(amount), date);
+    }
+
+    private Expense(long id, String category, long amountCents, LocalDate date) {
+        this.id = id;
         this.category = category;
-        this.amount = amount;
+        this.amountCents = amountCents;
         this.date = date;
     }
 
+    public static Expense ofCents(String category, long amountCents, LocalDate date) {
+        return new Expense(NO_ID, category, amountCents, date);
+    }
+
+    // an expense as stored by a tracker under the given id
+    static Expense withId(long id, String category, long amountCents, LocalDate date) {
+        return new Expense(id, category, amountCents, date);
+    }
+
     // getters
+    // the id the tracker knows this expense by, for removeExpense and updateExpense; NO_ID if it has none
+    public long getId() {
+        return id;
+    }
+
     public String getCategory() {
         return category;
     }
 
     public double getAmount() {
-        return amount;
+        return Money.toAmount(amountCents);
+    }
+
+    public long getAmountCents() {
+        return amountCents;
     }
 
     public LocalDate getDate() {
@@ -0,0 +1,141 @@
+package com.capgemini.expensetracker;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+// closed months moved out of a live tracker into read-only segment files, one yyyy-MM.segment per month
+//
+// freeze writes a month's expenses to a segment and removes them from the tracker; the queries here add up the
+// segments and the live tracker, so the totals stay the same as before the freeze. removed rows stay behind in
+// the tracker as tombstones, so freezing keeps new queries off the old rows rather than handing back their memory
+//
+// the segment is moved into place before the rows are removed one by one, so a crash in between (or a journal
+// that lost the last removals) leaves a month both frozen and live. each segment lists the rows it was written
+// from, and opening the archive removes those still in the live tracker, which completes the freeze before any
+// total counts the month twice. expenses added to a frozen month later are kept, they were never in the segment
+public class ExpenseArchive implements Closeable {
+    private static final String SUFFIX = ".segment";
+
+    private final Path directory;
+    private final ExpenseTracker live;
+    private final SortedMap<YearMonth, ExpenseSegment> segments = new TreeMap<>();
+
+    // opens every segment already in the directory and finishes any freeze that was interrupted; files whose
+    // name is not a yyyy-MM month were not written by freeze and are left alone
+    public ExpenseArchive(Path directory, ExpenseTracker live) throws IOException {
+        this.directory = directory;
+        this.live = live;
+        Files.createDirectories(directory);
+        try {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    YearMonth month;
+                    try {
+                        month = YearMonth.parse(name.substring(0, name.length() - SUFFIX.length()));
+                    } catch (DateTimeParseException e) {
+                        continue;
+                    }
+                    segments.put(month, ExpenseSegment.open(file));
+                }
+            }
+            for (Map.Entry<YearMonth, ExpenseSegment> segment : segments.entrySet()) {
+                YearMonth month = segment.getKey();
+                // the date index answers the common case, a month the live tracker holds nothing of
+                if (live.rowsBetween(Math.toIntExact(month.atDay(1).toEpochDay()),
+                        Math.toIntExact(month.atEndOfMonth().toEpochDay())).length > 0) {
+                    segment.getValue().removeSourceRows(live);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            closeSegments();
+            throw e;
+        }
+    }
+
+    // moves the month's expenses from the live tracker into a segment; a month can be frozen once
+    public ExpenseSegment freeze(YearMonth month) throws IOException {
+        if (segments.containsKey(month)) {
+            throw new IllegalStateException("Month already frozen: " + month);
+        }
+        LocalDate from = month.atDay(1);
+        LocalDate to = month.atEndOfMonth();
+        Path file = directory.resolve(month + SUFFIX);
+        ExpenseSegment.write(live, from, to, file);
+        ExpenseSegment segment = ExpenseSegment.open(file);
+        segments.put(month, segment);
+        for (int row : live.rowsBetween(Math.toIntExact(from.toEpochDay()), Math.toIntExact(to.toEpochDay()))) {
+            live.removeExpense(row);
+        }
+        return segment;
+    }
+
+    public SortedMap<YearMonth, ExpenseSegment> getSegments() {
+        return Collections.unmodifiableSortedMap(segments);
+    }
+
+    public ExpenseTracker getLive() {
+        return live;
+    }
+
+    // returns total amount, frozen and live
+    public double getTotal() {
+        long total = live.getTotalCents();
+        for (ExpenseSegment segment : segments.values()) {
+            total += segment.getTotalCents();
+        }
+        return Money.toAmount(total);
+    }
+
+    // returns totals grouped by category, frozen and live
+    public Map<String, Double> getTotalByCategory() {
+        Map<String, Long> cents = new HashMap<>(live.getTotalByCategoryCents());
+        for (ExpenseSegment segment : segments.values()) {
+            segment.getTotalByCategoryCents().forEach((category, sum) -> cents.merge(category, sum, Long::sum));
+        }
+        Map<String, Double> totals = new HashMap<>();
+        cents.forEach((category, sum) -> totals.put(category, Money.toAmount(sum)));
+        return totals;
+    }
+
+    // returns the total amount spent from one date to another, both inclusive, reading only the months in range
+    public double getTotalBetween(LocalDate from, LocalDate to) {
+        return getTotalBetween(null, from, to);
+    }
+
+    // category null sums every category; both parts are added in cents
+    public double getTotalBetween(String category, LocalDate from, LocalDate to) {
+        long frozen = frozenBetween(category, from, to);
+        return Money.toAmount(frozen + live.dailySumBetween(category, ExpenseTracker.queryDay(from), ExpenseTracker.queryDay(to)));
+    }
+
+    // closes every segment; the archive must not be queried afterwards
+    @Override
+    public void close() {
+        closeSegments();
+    }
+
+    private void closeSegments() {
+        for (ExpenseSegment segment : segments.values()) {
+            segment.close();
+        }
+    }
+
+    private long frozenBetween(String category, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date " + from + " is after end date " + to);
+        }
+        long total = 0;
+        for (ExpenseSegment segment : segments.subMap(YearMonth.from(from), YearMonth.from(to).plusMonths(1)).values()) {
+            total += segment.sumBetweenCents(category, from, to);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,76 @@
+package com.capgemini.expensetracker;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+// reusable buffer of expenses to hand to ExpenseTracker.addExpenses in one go
+// rows are kept column by column, like the tracker's own store, so filling a batch allocates nothing per row
+public class ExpenseBatch {
+    private String[] categories;
+    private long[] amountCents;
+    private int[] epochDays;
+    private int size;
+
+    public ExpenseBatch(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        categories = new String[capacity];
+        amountCents = new long[capacity];
+        epochDays = new int[capacity];
+    }
+
+    // adds a row, growing the batch if it is full; the amount is rounded to the nearest cent
+    public void add(String category, double amount, LocalDate date) {
+        addCents(category, Money.toCents(amount), Math.toIntExact(date.toEpochDay()));
+    }
+
+    public void addCents(String category, long amountCents, LocalDate date) {
+        addCents(category, amountCents, Math.toIntExact(date.toEpochDay()));
+    }
+
+    void addCents(String category, long cents, int epochDay) {
+        if (size == amountCents.length) {
+            int capacity = size * 2;
+            categories = Arrays.copyOf(categories, capacity);
+            amountCents = Arrays.copyOf(amountCents, capacity);
+            epochDays = Arrays.copyOf(epochDays, capacity);
+        }
+        categories[size] = category;
+        amountCents[size] = cents;
+        epochDays[size] = epochDay;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // true once the batch holds as many rows as it was created for
+    public boolean isFull() {
+        return size >= amountCents.length;
+    }
+
+    // empties the batch so it can be filled again
+    public void clear() {
+        Arrays.fill(categories, 0, size, null);
+        size = 0;
+    }
+
+    // row accessors
+    String categoryAt(int row) {
+        return categories[row];
+    }
+
+    long amountCentsAt(int row) {
+        return amountCents[row];
+    }
+
+    int epochDayAt(int row) {
+        return epochDays[row];
+    }
+}
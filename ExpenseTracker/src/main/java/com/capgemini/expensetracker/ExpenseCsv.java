@@ -0,0 +1,432 @@
+package com.capgemini.expensetracker;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// streaming bulk import and export of expenses as CSV rows of category,amount,date
+//
+// the importer reads through a fixed char buffer and parses amounts (as exact cents) and ISO dates straight from it, so the
+// only per-row allocation is the category String, and repeated categories reuse a cached instance.
+// rows are rejected with the same rules and messages as Main.addExpense, and added to the tracker in batches.
+// a header row and blank lines are skipped; categories may be quoted ("Food, takeaway" or "say ""hi""").
+public class ExpenseCsv {
+    public static final String HEADER = "category,amount,date";
+
+    static final int BATCH_SIZE = 8192;
+    private static final int BUFFER_CHARS = 64 * 1024;
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final long DAYS_0000_TO_1970 = 719528;
+
+    private ExpenseCsv() {
+    }
+
+    // outcome of an import: how many rows were added and why the others were rejected
+    public static class ImportResult {
+        private final long imported;
+        private final long rejected;
+        private final List<String> errors;
+
+        ImportResult(long imported, long rejected, List<String> errors) {
+            this.imported = imported;
+            this.rejected = rejected;
+            this.errors = Collections.unmodifiableList(errors);
+        }
+
+        // getters
+        public long getImported() {
+            return imported;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        // "Line n: reason" for the first rejected rows, up to 100 of them
+        public List<String> getErrors() {
+            return errors;
+        }
+    }
+
+    // imports every valid row of the UTF-8 file into the tracker
+    public static ImportResult importFrom(Path file, ExpenseTracker tracker) throws IOException {
+        try (Reader reader = new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8)) {
+            return importFrom(reader, tracker);
+        }
+    }
+
+    // imports every valid row read from reader into the tracker, the reader is not closed
+    public static ImportResult importFrom(Reader reader, ExpenseTracker tracker) throws IOException {
+        return new Importer(reader, tracker).run();
+    }
+
+    // writes a header and every expense of the tracker to the UTF-8 file, returns the number of expenses written
+    public static long exportTo(ExpenseTracker tracker, Path file) throws IOException {
+        try (Writer writer = new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8)) {
+            return exportTo(tracker, writer);
+        }
+    }
+
+    // writes a header and every expense of the tracker in the order they were added, the writer is not closed
+    public static long exportTo(ExpenseTracker tracker, Writer writer) throws IOException {
+        ExpenseStore store = tracker.store();
+        CategoryDictionary categories = tracker.categories();
+
+        // each category is escaped once, not once per row
+        String[] names = new String[categories.size()];
+        for (int id = 0; id < names.length; id++) {
+            names[id] = escape(categories.name(id));
+        }
+
+        StringBuilder out = new StringBuilder(BUFFER_CHARS + 256);
+        char[] chunk = new char[BUFFER_CHARS + 256];
+        out.append(HEADER).append('\n');
+        int rows = store.size();
+        for (int row = 0; row < rows; row++) {
+            if (store.isRemoved(row)) {
+                continue;
+            }
+            out.append(names[store.categoryIdAt(row)]).append(',');
+            Money.appendTo(out, store.amountCentsAt(row)).append(',');
+            appendDate(out, store.epochDayAt(row));
+            out.append('\n');
+            if (out.length() >= BUFFER_CHARS) {
+                write(out, chunk, writer);
+            }
+        }
+        write(out, chunk, writer);
+        writer.flush();
+        return store.liveCount();
+    }
+
+    private static void write(StringBuilder out, char[] chunk, Writer writer) throws IOException {
+        if (out.length() > chunk.length) {
+            writer.write(out.toString());
+        } else {
+            out.getChars(0, out.length(), chunk, 0);
+            writer.write(chunk, 0, out.length());
+        }
+        out.setLength(0);
+    }
+
+    // quotes a category if it contains a separator, quote or line break
+    static String escape(String category) {
+        for (int i = 0; i < category.length(); i++) {
+            char c = category.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return '"' + category.replace("\"", "\"\"") + '"';
+            }
+        }
+        return category;
+    }
+
+    // appends the date as yyyy-MM-dd without going through a formatter
+    static void appendDate(StringBuilder out, int epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        int year = date.getYear();
+        if (year < 0 || year > 9999) {
+            out.append(date); // signed, longer years in ISO form
+            return;
+        }
+        appendDigits(out, year, 4).append('-');
+        appendDigits(out, date.getMonthValue(), 2).append('-');
+        appendDigits(out, date.getDayOfMonth(), 2);
+    }
+
+    private static StringBuilder appendDigits(StringBuilder out, int value, int width) {
+        for (int divisor = width == 4 ? 1000 : 10; divisor > 0; divisor /= 10) {
+            out.append((char) ('0' + value / divisor % 10));
+        }
+        return out;
+    }
+
+    // parses yyyy-MM-dd into an epoch day, returns Long.MIN_VALUE if it is not a valid date
+    // anything other than the plain 10 character form goes through LocalDate.parse
+    static long parseEpochDay(char[] chars, int start, int end) {
+        if (end - start != 10 || chars[start + 4] != '-' || chars[start + 7] != '-') {
+            return parseEpochDaySlow(chars, start, end);
+        }
+        int year = digits(chars, start, 4);
+        int month = digits(chars, start + 5, 2);
+        int day = digits(chars, start + 8, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1
+                || day > Month.of(month).length(Year.isLeap(year))) {
+            return Long.MIN_VALUE;
+        }
+
+        // same arithmetic as LocalDate.toEpochDay, for years 0 to 9999
+        long total = 365L * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!Year.isLeap(year)) {
+                total--;
+            }
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+
+    // the value of count decimal digits, or -1 if any of them is not a digit
+    private static int digits(char[] chars, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = chars[i];
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static long parseEpochDaySlow(char[] chars, int start, int end) {
+        try {
+            return LocalDate.parse(new String(chars, start, end - start)).toEpochDay();
+        } catch (DateTimeParseException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    // one import run: reads records into a reusable line buffer and fills a reusable batch
+    private static final class Importer {
+        private final Reader reader;
+        private final ExpenseTracker tracker;
+        private final ExpenseBatch batch = new ExpenseBatch(BATCH_SIZE);
+
+        private final char[] buffer = new char[BUFFER_CHARS];
+        private int position;
+        private int limit;
+
+        private char[] line = new char[256];
+        private int lineLength;
+        // the physical line the current record starts on, and the one the next record starts on; a quoted
+        // category can span lines, so these count line breaks rather than records
+        private long lineNumber;
+        private long nextLineNumber = 1;
+
+        // recently seen categories, so repeated names do not allocate a new String per row
+        private final String[] categoryCache = new String[1024];
+
+        private long imported;
+        private long rejected;
+        private final List<String> errors = new ArrayList<>();
+
+        Importer(Reader reader, ExpenseTracker tracker) {
+            this.reader = reader;
+            this.tracker = tracker;
+        }
+
+        ImportResult run() throws IOException {
+            skipByteOrderMark();
+            while (nextRecord()) {
+                if (lineLength == 0 || isBlank()) {
+                    continue;
+                }
+                if (lineNumber == 1 && isHeader()) {
+                    continue;
+                }
+                parseRecord();
+                if (batch.isFull()) {
+                    flushBatch();
+                }
+            }
+            flushBatch();
+            return new ImportResult(imported, rejected, errors);
+        }
+
+        private void flushBatch() {
+            if (!batch.isEmpty()) {
+                tracker.addExpenses(batch);
+                imported += batch.size();
+                batch.clear();
+            }
+        }
+
+        // files saved by some editors (Excel, Notepad) start with a BOM, which would otherwise hide the header
+        private void skipByteOrderMark() throws IOException {
+            limit = Math.max(0, reader.read(buffer, 0, buffer.length));
+            position = limit > 0 && buffer[0] == '\uFEFF' ? 1 : 0;
+        }
+
+        // reads the next record into line, line breaks inside quotes belong to the record
+        private boolean nextRecord() throws IOException {
+            lineLength = 0;
+            lineNumber = nextLineNumber;
+            boolean inQuotes = false;
+            boolean read = false;
+            while (true) {
+                if (position == limit) {
+                    limit = reader.read(buffer, 0, buffer.length);
+                    position = 0;
+                    if (limit <= 0) {
+                        limit = 0;
+                        stripCarriageReturn();
+                        return read;
+                    }
+                }
+                char c = buffer[position++];
+                read = true;
+                if (c == '"') {
+                    inQuotes = !inQuotes;
+                } else if (c == '\n') {
+                    nextLineNumber++;
+                    if (!inQuotes) {
+                        stripCarriageReturn();
+                        return true;
+                    }
+                }
+                if (lineLength == line.length) {
+                    line = Arrays.copyOf(line, lineLength * 2);
+                }
+                line[lineLength++] = c;
+            }
+        }
+
+        private void stripCarriageReturn() {
+            if (lineLength > 0 && line[lineLength - 1] == '\r') {
+                lineLength--;
+            }
+        }
+
+        private boolean isBlank() {
+            for (int i = 0; i < lineLength; i++) {
+                if (!Character.isWhitespace(line[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean isHeader() {
+            return new String(line, 0, lineLength).replace(" ", "").equalsIgnoreCase(HEADER);
+        }
+
+        // splits the record into its three fields, validates them and adds the row to the batch
+        private void parseRecord() {
+            int firstComma = -1;
+            int secondComma = -1;
+            boolean inQuotes = false;
+            for (int i = 0; i < lineLength; i++) {
+                char c = line[i];
+                if (c == '"') {
+                    inQuotes = !inQuotes;
+                } else if (c == ',' && !inQuotes) {
+                    if (firstComma < 0) {
+                        firstComma = i;
+                    } else if (secondComma < 0) {
+                        secondComma = i;
+                    } else {
+                        reject("Expected " + HEADER);
+                        return;
+                    }
+                }
+            }
+            if (secondComma < 0) {
+                reject("Expected " + HEADER);
+                return;
+            }
+
+            String category = category(0, firstComma);
+            if (category == null) {
+                reject("Category cannot be empty!");
+                return;
+            }
+
+            int amountStart = skipSpaces(firstComma + 1, secondComma);
+            int amountEnd = trimSpaces(amountStart, secondComma);
+            long cents = Money.parseCents(line, amountStart, amountEnd);
+            if (cents == Long.MIN_VALUE) {
+                reject("Invalid amount!");
+                return;
+            }
+            if (cents <= 0) {
+                reject("Amount must be positive!");
+                return;
+            }
+
+            int dateStart = skipSpaces(secondComma + 1, lineLength);
+            int dateEnd = trimSpaces(dateStart, lineLength);
+            long epochDay = parseEpochDay(line, dateStart, dateEnd);
+            if (epochDay < Integer.MIN_VALUE || epochDay > Integer.MAX_VALUE) {
+                reject("Invalid date format!");
+                return;
+            }
+
+            batch.addCents(category, cents, (int) epochDay);
+        }
+
+        private void reject(String reason) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add("Line " + lineNumber + ": " + reason);
+            }
+        }
+
+        // the trimmed, unquoted category between start and end, or null if it is empty
+        private String category(int start, int end) {
+            start = skipSpaces(start, end);
+            end = trimSpaces(start, end);
+            if (end - start >= 2 && line[start] == '"' && line[end - 1] == '"') {
+                // unescape "" in place, the result is never longer than the quoted text
+                int out = start;
+                for (int i = start + 1; i < end - 1; i++) {
+                    line[out++] = line[i];
+                    if (line[i] == '"' && i + 1 < end - 1 && line[i + 1] == '"') {
+                        i++;
+                    }
+                }
+                end = trimSpaces(skipSpaces(start, out), out);
+                start = skipSpaces(start, out);
+            }
+            if (start == end) {
+                return null;
+            }
+            return cachedString(start, end);
+        }
+
+        private String cachedString(int start, int end) {
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + line[i];
+            }
+            int slot = (hash ^ (hash >>> 16)) & (categoryCache.length - 1);
+            String cached = categoryCache[slot];
+            if (cached != null && cached.hashCode() == hash && cached.length() == end - start) {
+                boolean same = true;
+                for (int i = 0; i < end - start && same; i++) {
+                    same = cached.charAt(i) == line[start + i];
+                }
+                if (same) {
+                    return cached;
+                }
+            }
+            String category = new String(line, start, end - start);
+            categoryCache[slot] = category;
+            return category;
+        }
+
+        private int skipSpaces(int start, int end) {
+            while (start < end && Character.isWhitespace(line[start])) {
+                start++;
+            }
+            return start;
+        }
+
+        private int trimSpaces(int start, int end) {
+            while (end > start && Character.isWhitespace(line[end - 1])) {
+                end--;
+            }
+            return end;
+        }
+    }
+}
@@ -0,0 +1,645 @@
+package com.capgemini.expensetracker;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+// durable storage for an ExpenseTracker: a compact binary append-only journal plus periodic snapshots
+//
+// every change (addExpense, an addExpenses batch, removeExpense, updateExpense) is written to the journal
+// before it reaches memory. once snapshotInterval changes have been journaled, the whole store is written to a columnar snapshot file and
+// the journal starts over, so restoring reads one snapshot plus a bounded journal tail however long the
+// history is.
+//
+// journal:  header [magic int][version int][base sequence long]
+//           records [CATEGORY byte][id int][length int][utf-8 bytes]
+//                   [EXPENSE byte][category id int][epoch day int][amount cents long]
+//                   [REMOVE byte][expense id int]
+//                   [UPDATE byte][expense id int][category id int][epoch day int][amount cents long]
+// snapshot: [magic int][version int][sequence long][category count int]([length int][utf-8 bytes])*
+//           [row count int][category id int]*[epoch day int]*[amount cents long]*
+//           [removed count int][removed expense id int]*
+//
+// expense ids are row numbers, so removed expenses stay in the snapshot as rows listed as removed; that
+// keeps the ids in journal records after the snapshot pointing at the same expenses once restored.
+// version 1 files stored amounts as doubles and version 2 files had no removals; both are still read and
+// are rewritten in the current version by a snapshot taken straight after restoring
+//
+// each expense, remove and update record has a sequence number (base sequence + its position), and a
+// snapshot stores the sequence of the last change it contains; records at or below it are skipped on
+// restore, which keeps a crash between writing a snapshot and resetting the journal from applying changes twice
+public class ExpenseJournal implements Closeable {
+    static final String JOURNAL_FILE = "expenses.journal";
+    static final String SNAPSHOT_FILE = "expenses.snapshot";
+
+    private static final int JOURNAL_MAGIC = 0x4558504A; // "EXPJ"
+    private static final int SNAPSHOT_MAGIC = 0x45585053; // "EXPS"
+    private static final int VERSION = 3;
+    private static final int DOUBLE_AMOUNTS_VERSION = 1;
+    private static final int NO_REMOVALS_VERSION = 2;
+    private static final int JOURNAL_HEADER_BYTES = 16;
+    private static final byte CATEGORY_RECORD = 1;
+    private static final byte EXPENSE_RECORD = 2;
+    private static final byte REMOVE_RECORD = 3;
+    private static final byte UPDATE_RECORD = 4;
+    private static final int EXPENSE_RECORD_BYTES = 1 + 4 + 4 + 8;
+    private static final int REMOVE_RECORD_BYTES = 1 + 4;
+    private static final int UPDATE_RECORD_BYTES = 1 + 4 + 4 + 4 + 8;
+
+    static final int BUFFER_BYTES = 64 * 1024;
+    private static final int MAP_WINDOW_BYTES = 256 * 1024 * 1024;
+    private static final int RESTORE_CHUNK_ROWS = 64 * 1024;
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 1_000_000;
+
+    // how appends are made durable
+    public enum SyncPolicy {
+        // every append is written and fsynced before addExpense returns
+        EVERY_WRITE,
+        // appends are buffered and written plus fsynced together every batchSize appends (group commit),
+        // a crash loses at most the last unsynced batch
+        BATCH,
+        // appends are buffered and handed to the OS when the buffer fills, the OS decides when they hit disk
+        OS
+    }
+
+    private final Path directory;
+    private final ExpenseTracker tracker;
+    private final SyncPolicy syncPolicy;
+    private final int batchSize;
+    private final int snapshotInterval;
+
+    private FileChannel channel;
+    private final ByteBuffer buffer;
+    private long sequence;
+    private int unsyncedRecords;
+    private int recordsSinceSnapshot;
+    private int journaledCategories;
+    private boolean legacyFormat;
+    private boolean closed;
+
+    private ExpenseJournal(Path directory, ExpenseTracker tracker, SyncPolicy syncPolicy, int batchSize, int snapshotInterval) {
+        this.directory = directory;
+        this.tracker = tracker;
+        this.syncPolicy = syncPolicy;
+        this.batchSize = batchSize;
+        this.snapshotInterval = snapshotInterval;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    }
+
+    // opens the journal in directory with the default batch group commit and snapshot interval
+    public static ExpenseJournal open(Path directory, ExpenseTracker tracker) throws IOException {
+        return open(directory, tracker, SyncPolicy.BATCH, DEFAULT_BATCH_SIZE, DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    // restores the snapshot and journal in directory (if any) into the empty tracker,
+    // then attaches the journal so every later addExpense is recorded
+    // the files store category ids, which only mean the same once restored if the tracker has not numbered any
+    // category yet, so a tracker with categories (e.g. interned by addBudget) is refused as well: add budgets
+    // after opening the journal
+    public static ExpenseJournal open(Path directory, ExpenseTracker tracker, SyncPolicy syncPolicy,
+                                      int batchSize, int snapshotInterval) throws IOException {
+        if (!tracker.getExpenses().isEmpty() || tracker.categories().size() > 0) {
+            throw new IllegalArgumentException("Tracker must be empty to restore into it");
+        }
+        if (batchSize < 1 || snapshotInterval < 1) {
+            throw new IllegalArgumentException("Batch size and snapshot interval must be positive");
+        }
+        Files.createDirectories(directory);
+
+        ExpenseJournal journal = new ExpenseJournal(directory, tracker, syncPolicy, batchSize, snapshotInterval);
+        journal.restore();
+        tracker.attachJournal(journal);
+        return journal;
+    }
+
+    // number of changes journaled since the directory was created
+    public long getSequence() {
+        return sequence;
+    }
+
+    // writes a record for the expense, called by the tracker before it stores the expense
+    void append(int categoryId, long amountCents, int epochDay) {
+        checkOpen();
+        try {
+            snapshotIfDue();
+            writeExpense(categoryId, amountCents, epochDay);
+            syncIfDue();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write expense to journal", e);
+        }
+    }
+
+    // writes records for a whole batch, syncing at most once per batch size (once for EVERY_WRITE)
+    void appendAll(int[] categoryIds, ExpenseBatch batch) {
+        checkOpen();
+        try {
+            snapshotIfDue();
+            for (int i = 0; i < batch.size(); i++) {
+                writeExpense(categoryIds[i], batch.amountCentsAt(i), batch.epochDayAt(i));
+                if (syncPolicy == SyncPolicy.BATCH && unsyncedRecords >= batchSize) {
+                    sync();
+                }
+            }
+            syncIfDue();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write expenses to journal", e);
+        }
+    }
+
+    // writes a record removing the expense in row, called by the tracker before it removes it
+    void appendRemove(int row) {
+        checkOpen();
+        try {
+            snapshotIfDue();
+            ensureBufferSpace(REMOVE_RECORD_BYTES);
+            buffer.put(REMOVE_RECORD).putInt(row);
+            recordWritten();
+            syncIfDue();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write removal to journal", e);
+        }
+    }
+
+    // writes a record replacing the expense in row, called by the tracker before it changes it
+    void appendUpdate(int row, int categoryId, long amountCents, int epochDay) {
+        checkOpen();
+        try {
+            snapshotIfDue();
+            journalCategories(categoryId);
+            ensureBufferSpace(UPDATE_RECORD_BYTES);
+            buffer.put(UPDATE_RECORD).putInt(row).putInt(categoryId).putInt(epochDay).putLong(amountCents);
+            recordWritten();
+            syncIfDue();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write update to journal", e);
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+    }
+
+    private void snapshotIfDue() throws IOException {
+        if (recordsSinceSnapshot >= snapshotInterval) {
+            snapshot();
+        }
+    }
+
+    private void syncIfDue() throws IOException {
+        if ((syncPolicy == SyncPolicy.EVERY_WRITE && unsyncedRecords > 0)
+                || (syncPolicy == SyncPolicy.BATCH && unsyncedRecords >= batchSize)) {
+            sync();
+        }
+    }
+
+    private void writeExpense(int categoryId, long amountCents, int epochDay) throws IOException {
+        journalCategories(categoryId);
+        ensureBufferSpace(EXPENSE_RECORD_BYTES);
+        buffer.put(EXPENSE_RECORD).putInt(categoryId).putInt(epochDay).putLong(amountCents);
+        recordWritten();
+    }
+
+    // category names are journaled once, the first time an expense uses them
+    private void journalCategories(int categoryId) throws IOException {
+        while (journaledCategories <= categoryId) {
+            byte[] name = tracker.categories().name(journaledCategories).getBytes(StandardCharsets.UTF_8);
+            ensureBufferSpace(1 + 4 + 4 + name.length);
+            buffer.put(CATEGORY_RECORD).putInt(journaledCategories).putInt(name.length);
+            putBytes(name);
+            journaledCategories++;
+        }
+    }
+
+    private void recordWritten() {
+        sequence++;
+        recordsSinceSnapshot++;
+        unsyncedRecords++;
+    }
+
+    // writes all buffered records and fsyncs the journal
+    public void sync() throws IOException {
+        flushBuffer();
+        channel.force(false);
+        unsyncedRecords = 0;
+    }
+
+    // writes a snapshot of the tracker and starts a fresh journal after it
+    public void snapshot() throws IOException {
+        sync();
+        writeSnapshot();
+        startJournal(sequence);
+        recordsSinceSnapshot = 0;
+        // the snapshot holds every category name, the new journal only needs the ones added after it
+        journaledCategories = tracker.categories().size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        tracker.attachJournal(null);
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void ensureBufferSpace(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flushBuffer();
+        }
+    }
+
+    // copies bytes into the buffer, flushing as often as needed for names longer than the buffer
+    private void putBytes(byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            ensureBufferSpace(1);
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // === restore ===
+
+    private void restore() throws IOException {
+        Path snapshotFile = directory.resolve(SNAPSHOT_FILE);
+        long snapshotSequence = Files.exists(snapshotFile) ? readSnapshot(snapshotFile) : 0;
+        sequence = snapshotSequence;
+
+        Path journalFile = directory.resolve(JOURNAL_FILE);
+        if (!Files.exists(journalFile) || Files.size(journalFile) < JOURNAL_HEADER_BYTES) {
+            startJournal(snapshotSequence);
+        } else {
+            long validBytes = replayJournal(journalFile, snapshotSequence);
+            channel = FileChannel.open(journalFile, StandardOpenOption.WRITE);
+            // drop a record torn by a crash mid-write, new records go after the last complete one
+            channel.truncate(validBytes);
+            channel.position(validBytes);
+        }
+        journaledCategories = tracker.categories().size();
+        if (legacyFormat) {
+            // never append version 2 records to a version 1 journal
+            writeSnapshot();
+            startJournal(sequence);
+        }
+    }
+
+    // reads a file version, remembering if the files need rewriting in the current format
+    private int readVersion(MappedReader reader) throws IOException {
+        int version = reader.getInt();
+        if (version == DOUBLE_AMOUNTS_VERSION || version == NO_REMOVALS_VERSION) {
+            legacyFormat = true;
+        } else if (version != VERSION) {
+            return -1;
+        }
+        return version;
+    }
+
+    // loads the snapshot into the tracker and returns the sequence of the last expense it contains
+    private long readSnapshot(Path file) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedReader reader = new MappedReader(in);
+            if (reader.getInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not an expense snapshot: " + file);
+            }
+            int version = readVersion(reader);
+            if (version < 0) {
+                throw new IOException("Unsupported expense snapshot version: " + file);
+            }
+            long snapshotSequence = reader.getLong();
+
+            CategoryDictionary categories = tracker.categories();
+            int categoryCount = reader.getInt();
+            for (int i = 0; i < categoryCount; i++) {
+                categories.intern(reader.getString());
+            }
+
+            int rows = reader.getInt();
+            int[] categoryIds = new int[rows];
+            int[] epochDays = new int[rows];
+            long[] amountCents = new long[rows];
+            reader.getInts(categoryIds, rows);
+            reader.getInts(epochDays, rows);
+            if (version == DOUBLE_AMOUNTS_VERSION) {
+                for (int row = 0; row < rows; row++) {
+                    amountCents[row] = Money.toCents(reader.getDouble());
+                }
+            } else {
+                reader.getLongs(amountCents, rows);
+            }
+            tracker.addRows(categoryIds, amountCents, epochDays, rows);
+            if (version >= VERSION) {
+                int removedCount = reader.getInt();
+                for (int i = 0; i < removedCount; i++) {
+                    int row = reader.getInt();
+                    if (row < 0 || row >= rows || tracker.store().isRemoved(row)) {
+                        throw new IOException("Snapshot removes unknown expense " + row);
+                    }
+                    tracker.removeRow(row);
+                }
+            }
+            return snapshotSequence;
+        }
+    }
+
+    // replays journal records after snapshotSequence into the tracker and returns the length of the
+    // journal up to its last complete record
+    private long replayJournal(Path file, long snapshotSequence) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedReader reader = new MappedReader(in);
+            if (reader.getInt() != JOURNAL_MAGIC) {
+                throw new IOException("Not an expense journal: " + file);
+            }
+            int version = readVersion(reader);
+            if (version < 0) {
+                throw new IOException("Unsupported expense journal version: " + file);
+            }
+            long recordSequence = reader.getLong();
+            if (recordSequence > snapshotSequence) {
+                throw new IOException("Journal starts at expense " + recordSequence
+                        + " but the snapshot ends at " + snapshotSequence);
+            }
+
+            CategoryDictionary categories = tracker.categories();
+            int[] categoryIds = new int[RESTORE_CHUNK_ROWS];
+            int[] epochDays = new int[RESTORE_CHUNK_ROWS];
+            long[] amountCents = new long[RESTORE_CHUNK_ROWS];
+            int pending = 0;
+
+            long validBytes = reader.position();
+            while (reader.remaining() > 0) {
+                byte type = reader.getByte();
+                if (type == CATEGORY_RECORD) {
+                    if (reader.remaining() < 8) {
+                        break;
+                    }
+                    int id = reader.getInt();
+                    int length = reader.getInt();
+                    if (length < 0 || reader.remaining() < length) {
+                        break;
+                    }
+                    String name = reader.getString(length);
+                    if (id == categories.size()) {
+                        categories.intern(name);
+                    } else if (id > categories.size() || !categories.name(id).equals(name)) {
+                        throw new IOException("Journal category " + id + " does not match the snapshot");
+                    }
+                } else if (type == EXPENSE_RECORD) {
+                    if (reader.remaining() < EXPENSE_RECORD_BYTES - 1) {
+                        break;
+                    }
+                    int categoryId = reader.getInt();
+                    int epochDay = reader.getInt();
+                    long cents = version == DOUBLE_AMOUNTS_VERSION ? Money.toCents(reader.getDouble()) : reader.getLong();
+                    if (++recordSequence > snapshotSequence) {
+                        categoryIds[pending] = categoryId;
+                        epochDays[pending] = epochDay;
+                        amountCents[pending] = cents;
+                        if (++pending == RESTORE_CHUNK_ROWS) {
+                            tracker.addRows(categoryIds, amountCents, epochDays, pending);
+                            pending = 0;
+                        }
+                    }
+                } else if (type == REMOVE_RECORD || type == UPDATE_RECORD) {
+                    if (reader.remaining() < (type == REMOVE_RECORD ? REMOVE_RECORD_BYTES : UPDATE_RECORD_BYTES) - 1) {
+                        break;
+                    }
+                    int row = reader.getInt();
+                    int categoryId = type == UPDATE_RECORD ? reader.getInt() : 0;
+                    int epochDay = type == UPDATE_RECORD ? reader.getInt() : 0;
+                    long cents = type == UPDATE_RECORD ? reader.getLong() : 0;
+                    if (++recordSequence > snapshotSequence) {
+                        // expenses added before the change must be in the tracker first
+                        tracker.addRows(categoryIds, amountCents, epochDays, pending);
+                        pending = 0;
+                        if (row < 0 || row >= tracker.store().size() || tracker.store().isRemoved(row)
+                                || categoryId < 0 || categoryId >= categories.size()) {
+                            throw new IOException("Journal changes unknown expense " + row);
+                        }
+                        if (type == REMOVE_RECORD) {
+                            tracker.removeRow(row);
+                        } else {
+                            tracker.updateRow(row, categoryId, cents, epochDay);
+                        }
+                    }
+                } else {
+                    // garbage after a torn write
+                    break;
+                }
+                validBytes = reader.position();
+            }
+            tracker.addRows(categoryIds, amountCents, epochDays, pending);
+            sequence = Math.max(sequence, recordSequence);
+            return validBytes;
+        }
+    }
+
+    // === snapshot and journal files ===
+
+    // writes the snapshot to a temporary file and atomically moves it over the previous one
+    private void writeSnapshot() throws IOException {
+        Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        CategoryDictionary categories = tracker.categories();
+        ExpenseStore store = tracker.store();
+        int rows = store.size();
+
+        try (FileChannel out = FileChannel.open(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer snapshotBuffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+            snapshotBuffer.putInt(SNAPSHOT_MAGIC).putInt(VERSION).putLong(sequence).putInt(categories.size());
+            for (int id = 0; id < categories.size(); id++) {
+                byte[] name = categories.name(id).getBytes(StandardCharsets.UTF_8);
+                if (snapshotBuffer.remaining() < 4 + name.length) {
+                    drain(out, snapshotBuffer);
+                }
+                snapshotBuffer.putInt(name.length);
+                if (name.length > snapshotBuffer.capacity()) {
+                    drain(out, snapshotBuffer);
+                    out.write(ByteBuffer.wrap(name));
+                } else {
+                    snapshotBuffer.put(name);
+                }
+            }
+
+            ensureSpace(out, snapshotBuffer, 4);
+            snapshotBuffer.putInt(rows);
+            for (int row = 0; row < rows; row++) {
+                ensureSpace(out, snapshotBuffer, 4);
+                snapshotBuffer.putInt(store.categoryIdAt(row));
+            }
+            for (int row = 0; row < rows; row++) {
+                ensureSpace(out, snapshotBuffer, 4);
+                snapshotBuffer.putInt(store.epochDayAt(row));
+            }
+            for (int row = 0; row < rows; row++) {
+                ensureSpace(out, snapshotBuffer, 8);
+                snapshotBuffer.putLong(store.amountCentsAt(row));
+            }
+            int[] removedRows = store.removedRows();
+            ensureSpace(out, snapshotBuffer, 4);
+            snapshotBuffer.putInt(removedRows.length);
+            for (int row : removedRows) {
+                ensureSpace(out, snapshotBuffer, 4);
+                snapshotBuffer.putInt(row);
+            }
+            drain(out, snapshotBuffer);
+            out.force(true);
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // replaces the journal with an empty one whose first record follows baseSequence
+    private void startJournal(long baseSequence) throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        Path temporary = directory.resolve(JOURNAL_FILE + ".tmp");
+        try (FileChannel out = FileChannel.open(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(JOURNAL_HEADER_BYTES);
+            header.putInt(JOURNAL_MAGIC).putInt(VERSION).putLong(baseSequence);
+            drain(out, header);
+            out.force(true);
+        }
+        Path journalFile = directory.resolve(JOURNAL_FILE);
+        Files.move(temporary, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(journalFile, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+    }
+
+    private static void ensureSpace(FileChannel out, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain(out, buffer);
+        }
+    }
+
+    // writes everything put into the buffer so far and clears it
+    private static void drain(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // sequential reader over a file through memory-mapped windows, so files over 2 GB can be read too
+    private static final class MappedReader {
+        private final FileChannel channel;
+        private final long size;
+        private long windowStart;
+        private MappedByteBuffer window;
+
+        MappedReader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            map(0);
+        }
+
+        private void map(long position) throws IOException {
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW_BYTES, size - position));
+        }
+
+        // remaps so that at least bytes can be read from the window, if the file has them
+        private void require(int bytes) throws IOException {
+            if (window.remaining() < bytes) {
+                long position = position();
+                if (size - position < bytes) {
+                    throw new IOException("Unexpected end of file");
+                }
+                map(position);
+            }
+        }
+
+        long position() {
+            return windowStart + window.position();
+        }
+
+        long remaining() {
+            return size - position();
+        }
+
+        byte getByte() throws IOException {
+            require(1);
+            return window.get();
+        }
+
+        int getInt() throws IOException {
+            require(4);
+            return window.getInt();
+        }
+
+        long getLong() throws IOException {
+            require(8);
+            return window.getLong();
+        }
+
+        double getDouble() throws IOException {
+            require(8);
+            return window.getDouble();
+        }
+
+        String getString() throws IOException {
+            return getString(getInt());
+        }
+
+        String getString(int length) throws IOException {
+            byte[] bytes = new byte[length];
+            int offset = 0;
+            while (offset < length) {
+                require(1);
+                int chunk = Math.min(window.remaining(), length - offset);
+                window.get(bytes, offset, chunk);
+                offset += chunk;
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        // bulk reads a column of ints
+        void getInts(int[] values, int count) throws IOException {
+            int offset = 0;
+            while (offset < count) {
+                require(4);
+                int chunk = Math.min(window.remaining() / 4, count - offset);
+                window.asIntBuffer().get(values, offset, chunk);
+                window.position(window.position() + chunk * 4);
+                offset += chunk;
+            }
+        }
+
+        // bulk reads a column of longs
+        void getLongs(long[] values, int count) throws IOException {
+            int offset = 0;
+            while (offset < count) {
+                require(8);
+                int chunk = Math.min(window.remaining() / 8, count - offset);
+                window.asLongBuffer().get(values, offset, chunk);
+                window.position(window.position() + chunk * 8);
+                offset += chunk;
+            }
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.capgemini.expensetracker;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+
+// a filter, group-by and aggregate query over a tracker's expenses, e.g.
+//
+//     tracker.query().categories("Food", "Rent").between(from, to).groupBy(GroupBy.MONTH).run()
+//
+// filters are combined with and: a set of categories, an amount range and a date range, all inclusive.
+// run() picks the cheapest plan the filters allow and then makes one pass without creating objects per row:
+// - TOTALS: no date or amount filter and only sum, count or average: read from the running category totals
+// - DAILY_TOTALS: a date filter, no amount filter, no grouping and only the sum: read from the per-day index
+// - DATE_INDEX: a date filter or a month grouping: walk the date-ordered index over just the range
+// - SCAN: anything else: read the store's columns in row order, split over the common fork/join pool for
+//   large stores (see ParallelAggregation)
+// the category filter is turned into a lookup table by category id once, before the pass
+public class ExpenseQuery {
+    public enum GroupBy {
+        NONE, CATEGORY, MONTH, CATEGORY_AND_MONTH
+    }
+
+    public enum Aggregate {
+        COUNT, SUM, MIN, MAX, AVG
+    }
+
+    enum Plan {
+        TOTALS, DAILY_TOTALS, DATE_INDEX, SCAN
+    }
+
+    // selected categories up to which a date range sum is read from the per-category day indexes
+    private static final int MAX_DAILY_TOTALS_CATEGORIES = 8;
+
+    // rows grouped by category come sorted by name; addExpense accepts a null category, which goes first
+    private static final Comparator<QueryRow> BY_CATEGORY =
+            Comparator.comparing(QueryRow::getCategory, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final ExpenseTracker tracker;
+    private Set<String> categories;
+    private long minCents = Long.MIN_VALUE;
+    private long maxCents = Long.MAX_VALUE;
+    private LocalDate from;
+    private LocalDate to;
+    private GroupBy groupBy = GroupBy.NONE;
+    private Set<Aggregate> aggregates = EnumSet.allOf(Aggregate.class);
+
+    ExpenseQuery(ExpenseTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    // keeps expenses in any of the given categories
+    public ExpenseQuery categories(String... categories) {
+        return categories(Arrays.asList(categories));
+    }
+
+    public ExpenseQuery categories(Collection<String> categories) {
+        this.categories = new HashSet<>(categories);
+        return this;
+    }
+
+    // keeps expenses from min to max, both inclusive; amounts are rounded to the nearest cent
+    public ExpenseQuery amountBetween(double min, double max) {
+        return amountCentsBetween(Money.toCents(min), Money.toCents(max));
+    }
+
+    public ExpenseQuery amountCentsBetween(long min, long max) {
+        if (min > max) {
+            throw new IllegalArgumentException("Minimum amount " + min + " is above maximum " + max);
+        }
+        minCents = min;
+        maxCents = max;
+        return this;
+    }
+
+    // keeps expenses from one date to another, both inclusive
+    public ExpenseQuery between(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date " + from + " is after end date " + to);
+        }
+        this.from = from;
+        this.to = to;
+        return this;
+    }
+
+    public ExpenseQuery groupBy(GroupBy groupBy) {
+        this.groupBy = Objects.requireNonNull(groupBy);
+        return this;
+    }
+
+    // the aggregates to compute, all of them unless set; asking for fewer can allow a cheaper plan
+    public ExpenseQuery aggregates(Aggregate... aggregates) {
+        if (aggregates.length == 0) {
+            throw new IllegalArgumentException("At least one aggregate is needed");
+        }
+        this.aggregates = EnumSet.copyOf(Arrays.asList(aggregates));
+        return this;
+    }
+
+    // runs the query; groups are ordered by month, then category name, and only groups with expenses are
+    // returned, except that an ungrouped query always returns exactly one row
+    public List<QueryRow> run() {
+        long start = tracker.startTiming();
+        try {
+            return switch (plan()) {
+                case TOTALS -> fromTotals();
+                case DAILY_TOTALS -> fromDailyTotals();
+                case DATE_INDEX, SCAN -> scan();
+            };
+        } finally {
+            tracker.stopTiming(TrackerMetrics.Operation.QUERY, start);
+        }
+    }
+
+    Plan plan() {
+        boolean amountFilter = minCents != Long.MIN_VALUE || maxCents != Long.MAX_VALUE;
+        boolean byMonth = groupBy == GroupBy.MONTH || groupBy == GroupBy.CATEGORY_AND_MONTH;
+        boolean fromTotalsOnly = !aggregates.contains(Aggregate.MIN) && !aggregates.contains(Aggregate.MAX);
+        if (!amountFilter && fromTotalsOnly) {
+            if (from == null && !byMonth) {
+                return Plan.TOTALS;
+            }
+            if (from != null && groupBy == GroupBy.NONE && aggregates.equals(EnumSet.of(Aggregate.SUM))
+                    && (categories == null || categories.size() <= MAX_DAILY_TOTALS_CATEGORIES)) {
+                return Plan.DAILY_TOTALS;
+            }
+        }
+        return from != null || byMonth ? Plan.DATE_INDEX : Plan.SCAN;
+    }
+
+    private List<QueryRow> fromTotals() {
+        boolean[] selected = selectedCategories();
+        CategoryDictionary dictionary = tracker.categories();
+        List<QueryRow> rows = new ArrayList<>();
+        long count = 0;
+        long sum = 0;
+        for (int id = 0; id < dictionary.size(); id++) {
+            int categoryCount = tracker.categoryCount(id);
+            if (categoryCount == 0 || selected != null && !selected[id]) {
+                continue;
+            }
+            if (groupBy == GroupBy.CATEGORY) {
+                rows.add(new QueryRow(dictionary.name(id), null, aggregates, categoryCount, tracker.categoryTotalCents(id), 0, 0));
+            }
+            count += categoryCount;
+            sum += tracker.categoryTotalCents(id);
+        }
+        if (groupBy == GroupBy.NONE) {
+            rows.add(new QueryRow(null, null, aggregates, count, sum, 0, 0));
+        }
+        rows.sort(BY_CATEGORY);
+        return rows;
+    }
+
+    private List<QueryRow> fromDailyTotals() {
+        int fromDay = clampDay(from);
+        int toDay = clampDay(to);
+        long sum = 0;
+        if (categories == null) {
+            sum = tracker.dailySumBetween(null, fromDay, toDay);
+        } else {
+            for (String category : categories) {
+                sum += tracker.dailySumBetween(category, fromDay, toDay);
+            }
+        }
+        return List.of(new QueryRow(null, null, aggregates, 0, sum, 0, 0));
+    }
+
+    // one pass over the store, or over the date range of the date index, folding each kept row into the slot
+    // of its category (or slot 0 when not grouped by category); a month grouping walks in date order and flushes
+    // the slots into result rows each time the month changes
+    private List<QueryRow> scan() {
+        ExpenseStore store = tracker.store();
+        DateOrderIndex dateOrder = tracker.dateOrder();
+        boolean[] selected = selectedCategories();
+        boolean byCategory = groupBy == GroupBy.CATEGORY || groupBy == GroupBy.CATEGORY_AND_MONTH;
+        boolean byMonth = groupBy == GroupBy.MONTH || groupBy == GroupBy.CATEGORY_AND_MONTH;
+        int slotCount = byCategory ? Math.max(1, tracker.categories().size()) : 1;
+        List<QueryRow> rows = new ArrayList<>();
+
+        if (plan() == Plan.SCAN) {
+            ParallelAggregation.Partial partial = ParallelAggregation.aggregate(new ParallelAggregation.Scan(
+                    store, selected, minCents, maxCents, byCategory, slotCount));
+            for (int slot = 0; slot < partial.counts.length; slot++) {
+                if (partial.counts[slot] > 0) {
+                    String category = byCategory ? tracker.categories().name(slot) : null;
+                    rows.add(new QueryRow(category, null, aggregates, partial.counts[slot], partial.sums[slot],
+                            partial.mins[slot], partial.maxes[slot]));
+                }
+            }
+            if (byCategory) {
+                rows.sort(BY_CATEGORY);
+            }
+        } else {
+            Accumulators slots = new Accumulators(slotCount);
+            int first = from == null ? 0 : dateOrder.firstPositionFrom(clampDay(from));
+            int last = to == null || clampDay(to) == Integer.MAX_VALUE ? dateOrder.size() : dateOrder.firstPositionFrom(clampDay(to) + 1);
+            YearMonth month = null;
+            long monthEnd = Long.MIN_VALUE;
+            for (int position = first; position < last; position++) {
+                int row = dateOrder.rowAt(position);
+                int categoryId = store.categoryIdAt(row);
+                if (selected != null && !selected[categoryId]) {
+                    continue;
+                }
+                long cents = store.amountCentsAt(row);
+                if (cents < minCents || cents > maxCents) {
+                    continue;
+                }
+                if (byMonth && store.epochDayAt(row) >= monthEnd) {
+                    slots.flush(rows, byCategory, month);
+                    month = YearMonth.from(LocalDate.ofEpochDay(store.epochDayAt(row)));
+                    monthEnd = month.plusMonths(1).atDay(1).toEpochDay();
+                }
+                slots.add(byCategory ? categoryId : 0, cents);
+            }
+            slots.flush(rows, byCategory, month);
+        }
+
+        if (groupBy == GroupBy.NONE && rows.isEmpty()) {
+            rows.add(new QueryRow(null, null, aggregates, 0, 0, 0, 0));
+        }
+        return rows;
+    }
+
+    // null when every category is kept
+    private boolean[] selectedCategories() {
+        if (categories == null) {
+            return null;
+        }
+        CategoryDictionary dictionary = tracker.categories();
+        boolean[] selected = new boolean[dictionary.size()];
+        for (String category : categories) {
+            int id = dictionary.idOf(category);
+            if (id >= 0) {
+                selected[id] = true;
+            }
+        }
+        return selected;
+    }
+
+    // query bounds may be open-ended (e.g. LocalDate.MIN), so they are clamped rather than rejected
+    private static int clampDay(LocalDate date) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, date.toEpochDay()));
+    }
+
+    // count, sum, min and max per slot, plus the slots touched since the last flush so a flush does not
+    // have to walk every category
+    private final class Accumulators {
+        private final long[] counts;
+        private final long[] sums;
+        private final long[] mins;
+        private final long[] maxes;
+        private final int[] touched;
+        private int touchedCount;
+
+        Accumulators(int slots) {
+            counts = new long[slots];
+            sums = new long[slots];
+            mins = new long[slots];
+            maxes = new long[slots];
+            touched = new int[slots];
+        }
+
+        void add(int slot, long cents) {
+            if (counts[slot]++ == 0) {
+                touched[touchedCount++] = slot;
+                mins[slot] = cents;
+                maxes[slot] = cents;
+            } else if (cents < mins[slot]) {
+                mins[slot] = cents;
+            } else if (cents > maxes[slot]) {
+                maxes[slot] = cents;
+            }
+            sums[slot] += cents;
+        }
+
+        void flush(List<QueryRow> rows, boolean byCategory, YearMonth month) {
+            int firstRow = rows.size();
+            for (int i = 0; i < touchedCount; i++) {
+                int slot = touched[i];
+                String category = byCategory ? tracker.categories().name(slot) : null;
+                rows.add(new QueryRow(category, month, aggregates, counts[slot], sums[slot], mins[slot], maxes[slot]));
+                counts[slot] = 0;
+                sums[slot] = 0;
+            }
+            touchedCount = 0;
+            if (byCategory) {
+                rows.subList(firstRow, rows.size()).sort(BY_CATEGORY);
+            }
+        }
+    }
+}
@@ -0,0 +1,443 @@
+package com.capgemini.expensetracker;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+
+// an immutable, memory-mapped columnar file of expenses, typically one frozen month
+//
+// rows are sorted by date and cut into blocks of at most BLOCK_ROWS. each block stores its columns one after
+// the other: dictionary-encoded category ids (2 bytes each, or 4 past 65536 categories), dates as 2-byte
+// deltas from the block's first day, and amounts as cents. a footer per block keeps its row count, date range,
+// smallest and largest amount, sum and sum per category, so queries skip blocks outside their date range and
+// answer blocks that lie fully inside it from the footer alone; only the blocks a range cuts through are read
+// row by row, straight from the mapped file, and no Expense objects are ever created. the file also lists the
+// tracker rows it was written from, which lets ExpenseArchive finish a freeze that was cut short
+//
+// file:   [magic int][version int][category width byte][category count int]([length int][utf-8 bytes])*
+//         blocks [category ids][day deltas char]*[amount cents long]*
+//         source rows [tracker row int]*, in the order of the blocks' rows
+//         footers ([offset long][rows int][first day int][last day int][min cents long][max cents long]
+//                  [sum cents long][category count int]([category id int][sum cents long])*)*
+//         trailer [footers offset long][block count int][magic int]
+// version 1 files have no source rows and are still read
+public class ExpenseSegment implements Closeable {
+    static final int BLOCK_ROWS = 4096;
+
+    private static final int MAGIC = 0x45585347; // "EXSG"
+    private static final int VERSION = 2;
+    private static final int NO_SOURCE_ROWS_VERSION = 1;
+    private static final int TRAILER_BYTES = 8 + 4 + 4;
+
+    private final Path file;
+    // null once closed; readers hold on to the buffer for the length of a query, which keeps the mapping alive
+    private volatile MappedByteBuffer data;
+    private final String[] categories;
+    private final int categoryWidth;
+    private final int rowCount;
+    // position of the source rows, -1 in a version 1 file
+    private final int sourceRowsOffset;
+
+    // footers, one entry per block
+    private final long[] blockOffsets;
+    private final int[] blockRows;
+    private final int[] blockFirstDays;
+    private final int[] blockLastDays;
+    private final long[] blockMinCents;
+    private final long[] blockMaxCents;
+    private final long[] blockSums;
+    private final int[][] blockCategoryIds;
+    private final long[][] blockCategorySums;
+
+    // rows read one by one so far, which tells how much the footers saved
+    private long rowsScanned;
+
+    private ExpenseSegment(Path file, MappedByteBuffer data, String[] categories, int categoryWidth, int blockCount,
+                           boolean sourceRows) {
+        this.file = file;
+        this.data = data;
+        this.categories = categories;
+        this.categoryWidth = categoryWidth;
+        blockOffsets = new long[blockCount];
+        blockRows = new int[blockCount];
+        blockFirstDays = new int[blockCount];
+        blockLastDays = new int[blockCount];
+        blockMinCents = new long[blockCount];
+        blockMaxCents = new long[blockCount];
+        blockSums = new long[blockCount];
+        blockCategoryIds = new int[blockCount][];
+        blockCategorySums = new long[blockCount][];
+        int rows = 0;
+        int footersOffset = (int) data.getLong(data.limit() - TRAILER_BYTES);
+        int position = footersOffset;
+        for (int block = 0; block < blockCount; block++) {
+            blockOffsets[block] = data.getLong(position);
+            blockRows[block] = data.getInt(position + 8);
+            blockFirstDays[block] = data.getInt(position + 12);
+            blockLastDays[block] = data.getInt(position + 16);
+            blockMinCents[block] = data.getLong(position + 20);
+            blockMaxCents[block] = data.getLong(position + 28);
+            blockSums[block] = data.getLong(position + 36);
+            int sums = data.getInt(position + 44);
+            position += 48;
+            blockCategoryIds[block] = new int[sums];
+            blockCategorySums[block] = new long[sums];
+            for (int i = 0; i < sums; i++) {
+                blockCategoryIds[block][i] = data.getInt(position);
+                blockCategorySums[block][i] = data.getLong(position + 4);
+                position += 12;
+            }
+            rows += blockRows[block];
+        }
+        this.rowCount = rows;
+        this.sourceRowsOffset = sourceRows ? footersOffset - 4 * rows : -1;
+    }
+
+    // writes the tracker's expenses from one date to another, both inclusive, to file and returns how many
+    // there were; the file is written next to its final name and moved into place when complete
+    public static int write(ExpenseTracker tracker, LocalDate from, LocalDate to, Path file) throws IOException {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date " + from + " is after end date " + to);
+        }
+        ExpenseStore store = tracker.store();
+        int[] rows = tracker.rowsBetween(Math.toIntExact(from.toEpochDay()), Math.toIntExact(to.toEpochDay()));
+
+        // the segment's own dictionary holds only the categories it uses, numbered in order of first use
+        int[] segmentIds = new int[tracker.categories().size()];
+        Arrays.fill(segmentIds, -1);
+        List<String> names = new ArrayList<>();
+        for (int row : rows) {
+            int categoryId = store.categoryIdAt(row);
+            if (segmentIds[categoryId] < 0) {
+                segmentIds[categoryId] = names.size();
+                names.add(tracker.categories().name(categoryId));
+            }
+        }
+        int categoryWidth = names.size() <= 1 << 16 ? 2 : 4;
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeByte(categoryWidth);
+            out.writeInt(names.size());
+            for (String name : names) {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            ByteBuffer footers = ByteBuffer.allocate(1024);
+            int blockCount = 0;
+            long[] categorySums = new long[names.size()];
+            int[] categoryRows = new int[names.size()];
+            for (int start = 0; start < rows.length; blockCount++) {
+                // a block ends after BLOCK_ROWS rows, or before a date too far from its first for a 2-byte delta
+                int firstDay = store.epochDayAt(rows[start]);
+                int end = start;
+                while (end < rows.length && end - start < BLOCK_ROWS
+                        && store.epochDayAt(rows[end]) - firstDay <= Character.MAX_VALUE) {
+                    end++;
+                }
+
+                long offset = out.size();
+                long min = Long.MAX_VALUE;
+                long max = Long.MIN_VALUE;
+                long sum = 0;
+                for (int i = start; i < end; i++) {
+                    int id = segmentIds[store.categoryIdAt(rows[i])];
+                    if (categoryWidth == 2) {
+                        out.writeChar(id);
+                    } else {
+                        out.writeInt(id);
+                    }
+                }
+                for (int i = start; i < end; i++) {
+                    out.writeChar(store.epochDayAt(rows[i]) - firstDay);
+                }
+                for (int i = start; i < end; i++) {
+                    long cents = store.amountCentsAt(rows[i]);
+                    out.writeLong(cents);
+                    min = Math.min(min, cents);
+                    max = Math.max(max, cents);
+                    sum += cents;
+                    int id = segmentIds[store.categoryIdAt(rows[i])];
+                    categorySums[id] += cents;
+                    categoryRows[id]++;
+                }
+
+                int used = 0;
+                for (int count : categoryRows) {
+                    used += count > 0 ? 1 : 0;
+                }
+                footers = ensureCapacity(footers, 48 + 12 * used);
+                footers.putLong(offset).putInt(end - start).putInt(firstDay).putInt(store.epochDayAt(rows[end - 1]))
+                        .putLong(min).putLong(max).putLong(sum).putInt(used);
+                for (int id = 0; id < categorySums.length; id++) {
+                    if (categoryRows[id] > 0) {
+                        footers.putInt(id).putLong(categorySums[id]);
+                        categorySums[id] = 0;
+                        categoryRows[id] = 0;
+                    }
+                }
+                start = end;
+            }
+
+            for (int row : rows) {
+                out.writeInt(row);
+            }
+
+            long footersOffset = out.size();
+            out.write(footers.array(), 0, footers.position());
+            out.writeLong(footersOffset);
+            out.writeInt(blockCount);
+            out.writeInt(MAGIC);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return rows.length;
+    }
+
+    private static ByteBuffer ensureCapacity(ByteBuffer buffer, int bytes) {
+        if (buffer.remaining() >= bytes) {
+            return buffer;
+        }
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+        buffer.flip();
+        return grown.put(buffer);
+    }
+
+    // maps the file; only the category names and the block footers are read up front
+    public static ExpenseSegment open(Path file) throws IOException {
+        MappedByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Segment larger than 2 GB: " + file);
+            }
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int size = data.limit();
+        if (size < 13 + TRAILER_BYTES || data.getInt(0) != MAGIC || data.getInt(size - 4) != MAGIC) {
+            throw new IOException("Not an expense segment: " + file);
+        }
+        int version = data.getInt(4);
+        if (version != VERSION && version != NO_SOURCE_ROWS_VERSION) {
+            throw new IOException("Unsupported segment version " + version + ": " + file);
+        }
+        int categoryWidth = data.get(8);
+        String[] categories = new String[data.getInt(9)];
+        int position = 13;
+        for (int id = 0; id < categories.length; id++) {
+            int length = data.getInt(position);
+            byte[] name = new byte[length];
+            data.get(position + 4, name);
+            categories[id] = new String(name, StandardCharsets.UTF_8);
+            position += 4 + length;
+        }
+        return new ExpenseSegment(file, data, categories, categoryWidth, data.getInt(size - 8), version == VERSION);
+    }
+
+    // drops the mapping, which the JDK releases once the buffer is garbage collected; queries still running
+    // finish on the buffer they hold, later ones fail
+    @Override
+    public void close() {
+        data = null;
+    }
+
+    private MappedByteBuffer mapped() {
+        MappedByteBuffer buffer = data;
+        if (buffer == null) {
+            throw new IllegalStateException("Segment is closed: " + file);
+        }
+        return buffer;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public int getExpenseCount() {
+        return rowCount;
+    }
+
+    public Optional<LocalDate> getFirstDate() {
+        return rowCount == 0 ? Optional.empty() : Optional.of(LocalDate.ofEpochDay(blockFirstDays[0]));
+    }
+
+    public Optional<LocalDate> getLastDate() {
+        return rowCount == 0 ? Optional.empty() : Optional.of(LocalDate.ofEpochDay(blockLastDays[blockLastDays.length - 1]));
+    }
+
+    // returns total amount, from the footers
+    public double getTotal() {
+        return Money.toAmount(getTotalCents());
+    }
+
+    public long getTotalCents() {
+        long total = 0;
+        for (long sum : blockSums) {
+            total += sum;
+        }
+        return total;
+    }
+
+    // returns totals grouped by category, from the footers
+    public Map<String, Double> getTotalByCategory() {
+        Map<String, Double> totals = new HashMap<>();
+        getTotalByCategoryCents().forEach((category, cents) -> totals.put(category, Money.toAmount(cents)));
+        return totals;
+    }
+
+    public Map<String, Long> getTotalByCategoryCents() {
+        long[] sums = new long[categories.length];
+        boolean[] used = new boolean[categories.length];
+        for (int block = 0; block < blockSums.length; block++) {
+            for (int i = 0; i < blockCategoryIds[block].length; i++) {
+                sums[blockCategoryIds[block][i]] += blockCategorySums[block][i];
+                used[blockCategoryIds[block][i]] = true;
+            }
+        }
+        Map<String, Long> totals = new HashMap<>();
+        for (int id = 0; id < categories.length; id++) {
+            if (used[id]) {
+                totals.put(categories[id], sums[id]);
+            }
+        }
+        return totals;
+    }
+
+    // smallest and largest single amount, from the footers
+    public OptionalLong getMinAmountCents() {
+        return Arrays.stream(blockMinCents).min();
+    }
+
+    public OptionalLong getMaxAmountCents() {
+        return Arrays.stream(blockMaxCents).max();
+    }
+
+    // returns the total amount spent from one date to another, both inclusive
+    public double getTotalBetween(LocalDate from, LocalDate to) {
+        return Money.toAmount(sumBetween(-1, from, to));
+    }
+
+    // returns the total amount spent in one category from one date to another, both inclusive
+    public double getTotalBetween(String category, LocalDate from, LocalDate to) {
+        int categoryId = Arrays.asList(categories).indexOf(category);
+        return categoryId < 0 ? 0.0 : Money.toAmount(sumBetween(categoryId, from, to));
+    }
+
+    long sumBetweenCents(String category, LocalDate from, LocalDate to) {
+        if (category == null) {
+            return sumBetween(-1, from, to);
+        }
+        int categoryId = Arrays.asList(categories).indexOf(category);
+        return categoryId < 0 ? 0 : sumBetween(categoryId, from, to);
+    }
+
+    // categoryId -1 sums every category
+    private long sumBetween(int categoryId, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date " + from + " is after end date " + to);
+        }
+        MappedByteBuffer data = mapped();
+        long fromDay = from.toEpochDay();
+        long toDay = to.toEpochDay();
+        long total = 0;
+        for (int block = 0; block < blockSums.length; block++) {
+            if (blockLastDays[block] < fromDay || blockFirstDays[block] > toDay) {
+                continue;
+            }
+            if (blockFirstDays[block] >= fromDay && blockLastDays[block] <= toDay) {
+                total += categoryId < 0 ? blockSums[block] : categorySum(block, categoryId);
+            } else {
+                total += scan(data, block, categoryId, fromDay, toDay);
+            }
+        }
+        return total;
+    }
+
+    private long categorySum(int block, int categoryId) {
+        int[] ids = blockCategoryIds[block];
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == categoryId) {
+                return blockCategorySums[block][i];
+            }
+        }
+        return 0;
+    }
+
+    // reads the rows of one block from the mapped columns
+    private long scan(MappedByteBuffer data, int block, int categoryId, long fromDay, long toDay) {
+        int rows = blockRows[block];
+        int categoryColumn = (int) blockOffsets[block];
+        int dayColumn = categoryColumn + rows * categoryWidth;
+        int amountColumn = dayColumn + rows * 2;
+        int firstDay = blockFirstDays[block];
+        long total = 0;
+        for (int i = 0; i < rows; i++) {
+            long day = firstDay + data.getChar(dayColumn + 2 * i);
+            if (day < fromDay || day > toDay) {
+                continue;
+            }
+            if (categoryId >= 0 && categoryAt(data, categoryColumn, i) != categoryId) {
+                continue;
+            }
+            total += data.getLong(amountColumn + 8 * i);
+        }
+        rowsScanned += rows;
+        return total;
+    }
+
+    // removes from the tracker each row this segment was written from that still holds the same expense, and
+    // returns how many it removed; rows the tracker has since reused for other expenses are left alone.
+    // a version 1 segment does not know its rows and removes nothing
+    int removeSourceRows(ExpenseTracker tracker) {
+        MappedByteBuffer data = mapped();
+        if (sourceRowsOffset < 0) {
+            return 0;
+        }
+        ExpenseStore store = tracker.store();
+        int[] trackerIds = new int[categories.length];
+        for (int id = 0; id < categories.length; id++) {
+            trackerIds[id] = tracker.categories().idOf(categories[id]);
+        }
+        int removed = 0;
+        int index = 0;
+        for (int block = 0; block < blockSums.length; block++) {
+            int rows = blockRows[block];
+            int categoryColumn = (int) blockOffsets[block];
+            int dayColumn = categoryColumn + rows * categoryWidth;
+            int amountColumn = dayColumn + rows * 2;
+            for (int i = 0; i < rows; i++, index++) {
+                int row = data.getInt(sourceRowsOffset + 4 * index);
+                if (row < store.size() && !store.isRemoved(row)
+                        && store.categoryIdAt(row) == trackerIds[categoryAt(data, categoryColumn, i)]
+                        && store.epochDayAt(row) == blockFirstDays[block] + data.getChar(dayColumn + 2 * i)
+                        && store.amountCentsAt(row) == data.getLong(amountColumn + 8 * i)) {
+                    tracker.removeExpense(row);
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    private int categoryAt(MappedByteBuffer data, int categoryColumn, int row) {
+        return categoryWidth == 2 ? data.getChar(categoryColumn + 2 * row) : data.getInt(categoryColumn + 4 * row);
+    }
+
+    long rowsScanned() {
+        return rowsScanned;
+    }
+
+    int blockCount() {
+        return blockSums.length;
+    }
+}
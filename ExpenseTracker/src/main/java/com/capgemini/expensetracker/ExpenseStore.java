@@ -0,0 +1,175 @@
+package com.capgemini.expensetracker;
+
+import java.time.LocalDate;
+import java.util.*;
+
+// column-oriented storage for expenses: one primitive array per field instead of one object per row
+// categories are dictionary encoded as int ids, dates are kept as epoch days and amounts as cents
+// a row number is the id of its expense for good: removed rows stay behind as tombstones with a zero amount,
+// so column sums need no check for them, and the list view skips them
+class ExpenseStore {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] amountCents;
+    private int[] epochDays;
+    private int[] categoryIds;
+    private int size;
+
+    private final BitSet removed = new BitSet();
+    private int removedCount;
+    // live rows in order, built for the list view once rows have been removed
+    private int[] liveRows;
+    private int liveRowCount;
+    private int liveRowsScanned;
+    private int liveRowsRemoved;
+
+    // shared with the owning tracker, resolves category ids back to names
+    private final CategoryDictionary categories;
+
+    ExpenseStore(CategoryDictionary categories) {
+        this.categories = categories;
+        amountCents = new long[INITIAL_CAPACITY];
+        epochDays = new int[INITIAL_CAPACITY];
+        categoryIds = new int[INITIAL_CAPACITY];
+    }
+
+    // appends a row and returns its index
+    int add(int categoryId, long cents, int epochDay) {
+        if (size == amountCents.length) {
+            grow();
+        }
+        amountCents[size] = cents;
+        epochDays[size] = epochDay;
+        categoryIds[size] = categoryId;
+        return size++;
+    }
+
+    private void grow() {
+        int capacity = amountCents.length * 2;
+        amountCents = Arrays.copyOf(amountCents, capacity);
+        epochDays = Arrays.copyOf(epochDays, capacity);
+        categoryIds = Arrays.copyOf(categoryIds, capacity);
+    }
+
+    // number of rows, including removed ones
+    int size() {
+        return size;
+    }
+
+    int liveCount() {
+        return size - removedCount;
+    }
+
+    // approximate heap footprint, see ExpenseTracker.estimatedBytes
+    long estimatedBytes() {
+        long bytes = 16L * amountCents.length + removed.size() / 8 + 128;
+        return liveRows == null ? bytes : bytes + 4L * liveRows.length;
+    }
+
+    // overwrites a live row in place
+    void set(int row, int categoryId, long cents, int epochDay) {
+        amountCents[row] = cents;
+        epochDays[row] = epochDay;
+        categoryIds[row] = categoryId;
+    }
+
+    // turns a row into a tombstone; its category and date stay, its amount becomes zero
+    void remove(int row) {
+        removed.set(row);
+        amountCents[row] = 0;
+        removedCount++;
+    }
+
+    boolean isRemoved(int row) {
+        return removed.get(row);
+    }
+
+    // removed rows in ascending order
+    int[] removedRows() {
+        return removed.stream().toArray();
+    }
+
+    // row accessors
+    long amountCentsAt(int row) {
+        return amountCents[row];
+    }
+
+    int epochDayAt(int row) {
+        return epochDays[row];
+    }
+
+    int categoryIdAt(int row) {
+        return categoryIds[row];
+    }
+
+    Expense expenseAt(int row) {
+        return Expense.withId(row, categories.name(categoryIds[row]), amountCents[row], LocalDate.ofEpochDay(epochDays[row]));
+    }
+
+    // sums the amount column, in cents
+    long sumAmounts() {
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += amountCents[i];
+        }
+        return sum;
+    }
+
+    // sums the amount column grouped by category id, in cents
+    long[] sumAmountsByCategory() {
+        long[] sums = new long[categories.size()];
+        sumAmountsByCategory(0, size, sums);
+        return sums;
+    }
+
+    // adds the amounts of rows [from, to) to sums, indexed by category id
+    void sumAmountsByCategory(int from, int to, long[] sums) {
+        for (int i = from; i < to; i++) {
+            sums[categoryIds[i]] += amountCents[i];
+        }
+    }
+
+    // read-only list view of the live rows, Expense objects are only created for the rows that are accessed
+    List<Expense> asList() {
+        return new ExpenseView();
+    }
+
+    // row of the index-th live expense
+    // rows added since the last call are appended to liveRows, a removal has it rebuilt from scratch
+    private int liveRowAt(int index) {
+        if (removedCount == 0) {
+            return index;
+        }
+        if (liveRows == null || liveRowsRemoved != removedCount) {
+            liveRows = new int[liveCount()];
+            liveRowCount = 0;
+            liveRowsScanned = 0;
+            liveRowsRemoved = removedCount;
+        }
+        if (liveRowsScanned < size) {
+            if (liveRows.length < liveCount()) {
+                liveRows = Arrays.copyOf(liveRows, Math.max(liveRows.length * 2, liveCount()));
+            }
+            for (int row = liveRowsScanned; row < size; row++) {
+                if (!removed.get(row)) {
+                    liveRows[liveRowCount++] = row;
+                }
+            }
+            liveRowsScanned = size;
+        }
+        return liveRows[index];
+    }
+
+    private class ExpenseView extends AbstractList<Expense> implements RandomAccess {
+        @Override
+        public Expense get(int index) {
+            Objects.checkIndex(index, liveCount());
+            return expenseAt(liveRowAt(index));
+        }
+
+        @Override
+        public int size() {
+            return liveCount();
+        }
+    }
+}
@@ -2,74 +2,825 @@ package com.capgemini.expensetracker;
 
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
 
 public class ExpenseTracker {
-    private List<Expense> expenses;
+    // how many of the largest expenses are kept ranked as they are added
+    static final int LARGEST_TRACKED = 256;
+    // longest budget window, which bounds the size of a category's ring of per-day totals
+    static final int MAX_BUDGET_WINDOW_DAYS = 1 << 16;
+    // query cache keys of the queries without parameters
+    private static final Object TOTAL_BY_CATEGORY = "totalByCategory";
+    private static final Object TOTAL_BY_CATEGORY_CENTS = "totalByCategoryCents";
+
+    private CategoryDictionary categories;
+    private ExpenseStore expenses;
+    private DateOrderIndex dateOrder;
+
+    // running aggregates, updated on every add, update and remove so queries never rescan expenses
+    // amounts are kept in cents (see Money) so totals are exact; the category arrays are indexed by category id,
+    // and categories whose expenses were all removed have a zero count and drop out of the results
+    private long total;
+    private long[] categoryTotals;
+    private int[] categoryCounts;
+
+    // categories with expenses ordered by total, best at the root: extremes are O(1) and rankings O(k log k)
+    // however totals move, including down when the highest category loses an expense
+    private IndexedHeap highestCategories;
+    private IndexedHeap lowestCategories;
+
+    // per-day totals for date range queries; the per-category ones are built on first use
+    private DailyTotals dailyTotals;
+    private DailyTotals[] categoryDailyTotals;
+
+    // rankings kept up to date on add: a bounded heap of the largest expense rows,
+    // and a quantile sketch of the expense amounts of every category, indexed by category id
+    private RankHeap largestExpenses;
+    private QuantileSketch[] categorySketches;
+    // set when a removed or changed expense was among the largest, the heap is rebuilt when next asked for
+    private boolean largestStale;
+
+    // results of the map and list queries, served again until the next change bumps the version
+    // so they are read-only: callers share the same instance
+    private long version;
+    private QueryCache queryCache;
+
+    // optional timings of the public operations, see TrackerMetrics
+    private TrackerMetrics metrics;
+
+    // rolling window budgets, created with the first one, see BudgetMonitor
+    private BudgetMonitor budgets;
+
+    // optional write-ahead journal, see ExpenseJournal
+    private ExpenseJournal journal;
 
     public ExpenseTracker() {
-        expenses = new ArrayList<>();
+        categories = new CategoryDictionary();
+        expenses = new ExpenseStore(categories);
+        dateOrder = new DateOrderIndex(expenses);
+        categoryTotals = new long[16];
+        categoryCounts = new int[16];
+        highestCategories = new IndexedHeap(true, id -> categoryTotals[id]);
+        lowestCategories = new IndexedHeap(false, id -> categoryTotals[id]);
+        dailyTotals = new DailyTotals();
+        categoryDailyTotals = new DailyTotals[16];
+        largestExpenses = new RankHeap(LARGEST_TRACKED, true, expenses::amountCentsAt);
+        categorySketches = new QuantileSketch[16];
+        queryCache = new QueryCache(QueryCache.DEFAULT_CAPACITY);
+    }
+
+    // adds the expense to the store and folds it into the running totals, returns the id of the new expense
+    // with a journal attached the expense is written to it first, so it is never in memory but not on disk
+    // the amount is rounded to the nearest cent
+    public long addExpense(String category, double amount, LocalDate date) {
+        return addExpenseCents(category, Money.toCents(amount), date);
+    }
+
+    // adds an expense whose amount is given in cents
+    public long addExpenseCents(String category, long amountCents, LocalDate date) {
+        long start = startTiming();
+        try {
+            int categoryId = categories.intern(category);
+            int epochDay = toEpochDay(date);
+            if (journal != null) {
+                journal.append(categoryId, amountCents, epochDay);
+            }
+            int row = addRow(categoryId, amountCents, epochDay);
+            dateOrder.insert(row);
+            deliverAlerts();
+            return row;
+        } finally {
+            stopTiming(TrackerMetrics.Operation.ADD_EXPENSE, start);
+        }
+    }
+
+    // adds every expense in the batch, the journal and the date order index are updated once per batch
+    // returns the id of the first expense in the batch, the others follow it in order
+    public long addExpenses(ExpenseBatch batch) {
+        long start = startTiming();
+        try {
+            int count = batch.size();
+            int[] categoryIds = new int[count];
+            for (int i = 0; i < count; i++) {
+                categoryIds[i] = categories.intern(batch.categoryAt(i));
+            }
+            if (journal != null) {
+                journal.appendAll(categoryIds, batch);
+            }
+            int firstRow = expenses.size();
+            for (int i = 0; i < count; i++) {
+                addRow(categoryIds[i], batch.amountCentsAt(i), batch.epochDayAt(i));
+            }
+            dateOrder.insertRange(firstRow, expenses.size());
+            deliverAlerts();
+            return firstRow;
+        } finally {
+            stopTiming(TrackerMetrics.Operation.ADD_EXPENSES, start);
+        }
+    }
+
+    // appends rows whose categories are already interned, used when restoring from disk
+    void addRows(int[] categoryIds, long[] amountCents, int[] epochDays, int count) {
+        int firstRow = expenses.size();
+        for (int i = 0; i < count; i++) {
+            addRow(categoryIds[i], amountCents[i], epochDays[i]);
+        }
+        dateOrder.insertRange(firstRow, expenses.size());
+    }
+
+    // stores one row and folds it into the running aggregates, the date order index is left to the caller
+    private int addRow(int categoryId, long cents, int epochDay) {
+        int row = expenses.add(categoryId, cents, epochDay);
+        fold(categoryId, cents, epochDay, true);
+        if (!largestStale) {
+            largestExpenses.offer(row);
+        }
+        return row;
+    }
+
+    // removes the expense with the given id, returns false if there is no such expense
+    // the ids of the other expenses stay the same
+    public boolean removeExpense(long id) {
+        long start = startTiming();
+        try {
+            int row = liveRow(id);
+            if (row < 0) {
+                return false;
+            }
+            if (journal != null) {
+                journal.appendRemove(row);
+            }
+            removeRow(row);
+            deliverAlerts();
+            return true;
+        } finally {
+            stopTiming(TrackerMetrics.Operation.REMOVE_EXPENSE, start);
+        }
+    }
+
+    // replaces the category, amount and date of an expense, which keeps its id
+    // returns false if there is no such expense; the amount is rounded to the nearest cent
+    public boolean updateExpense(long id, String category, double amount, LocalDate date) {
+        return updateExpenseCents(id, category, Money.toCents(amount), date);
+    }
+
+    public boolean updateExpenseCents(long id, String category, long amountCents, LocalDate date) {
+        long start = startTiming();
+        try {
+            int row = liveRow(id);
+            if (row < 0) {
+                return false;
+            }
+            int categoryId = categories.intern(category);
+            int epochDay = toEpochDay(date);
+            if (journal != null) {
+                journal.appendUpdate(row, categoryId, amountCents, epochDay);
+            }
+            updateRow(row, categoryId, amountCents, epochDay);
+            deliverAlerts();
+            return true;
+        } finally {
+            stopTiming(TrackerMetrics.Operation.UPDATE_EXPENSE, start);
+        }
+    }
+
+    // returns the expense with the given id, if it has not been removed
+    public Optional<Expense> getExpense(long id) {
+        int row = liveRow(id);
+        return row < 0 ? Optional.empty() : Optional.of(expenses.expenseAt(row));
+    }
+
+    // row of a live expense, or -1
+    private int liveRow(long id) {
+        if (id < 0 || id >= expenses.size() || expenses.isRemoved((int) id)) {
+            return -1;
+        }
+        return (int) id;
+    }
+
+    // takes a live row out of the aggregates and the date order index and leaves a tombstone
+    void removeRow(int row) {
+        dateOrder.remove(row);
+        fold(expenses.categoryIdAt(row), expenses.amountCentsAt(row), expenses.epochDayAt(row), false);
+        checkLargest(row);
+        expenses.remove(row);
+    }
+
+    // rewrites a live row, taking the old values out of the aggregates and folding the new ones in
+    void updateRow(int row, int categoryId, long cents, int epochDay) {
+        boolean dateChanged = expenses.epochDayAt(row) != epochDay;
+        if (dateChanged) {
+            dateOrder.remove(row);
+        }
+        fold(expenses.categoryIdAt(row), expenses.amountCentsAt(row), expenses.epochDayAt(row), false);
+        checkLargest(row);
+        expenses.set(row, categoryId, cents, epochDay);
+        fold(categoryId, cents, epochDay, true);
+        if (!largestStale) {
+            largestExpenses.offer(row);
+        }
+        if (dateChanged) {
+            dateOrder.reinsert(row);
+        }
+    }
+
+    // adds one expense to, or takes it out of, every running aggregate
+    private void fold(int categoryId, long cents, int epochDay, boolean add) {
+        ensureCategoryCapacity(categoryId);
+        version++;
+        long amount = add ? cents : -cents;
+        total += amount;
+        categoryTotals[categoryId] += amount;
+        categoryCounts[categoryId] += add ? 1 : -1;
+        dailyTotals.add(epochDay, amount);
+        if (categoryDailyTotals[categoryId] != null) {
+            categoryDailyTotals[categoryId].add(epochDay, amount);
+        }
+        if (categorySketches[categoryId] == null) {
+            categorySketches[categoryId] = new QuantileSketch();
+        }
+        if (add) {
+            categorySketches[categoryId].add(cents);
+        } else {
+            categorySketches[categoryId].remove(cents);
+        }
+
+        if (categoryCounts[categoryId] == 0) {
+            highestCategories.remove(categoryId);
+            lowestCategories.remove(categoryId);
+        } else if (highestCategories.contains(categoryId)) {
+            highestCategories.changed(categoryId);
+            lowestCategories.changed(categoryId);
+        } else {
+            highestCategories.add(categoryId);
+            lowestCategories.add(categoryId);
+        }
+        if (budgets != null) {
+            budgets.fold(categoryId, amount, epochDay);
+        }
+    }
+
+    // grows the per-category arrays to hold a category id; ids interned before their first expense (a budget,
+    // a restored snapshot) are only read, so readers also treat ids past the arrays as having no expenses
+    private void ensureCategoryCapacity(int categoryId) {
+        if (categoryId >= categoryTotals.length) {
+            int capacity = Math.max(categoryTotals.length * 2, categoryId + 1);
+            categoryTotals = Arrays.copyOf(categoryTotals, capacity);
+            categoryCounts = Arrays.copyOf(categoryCounts, capacity);
+            categoryDailyTotals = Arrays.copyOf(categoryDailyTotals, capacity);
+            categorySketches = Arrays.copyOf(categorySketches, capacity);
+        }
+    }
+
+    // watches a category's total over any rolling window of windowDays days as expenses arrive, e.g. Food over
+    // 500 in 30 days, and calls the listener each time it goes over the limit; checking a budget is O(1) per
+    // expense in its category. the listener runs on the thread that added the expense, after the tracker is
+    // updated, and a budget already over its limit when added only alerts once it has been back under it
+    public Budget addBudget(String category, double limit, int windowDays, Consumer<BudgetAlert> listener) {
+        return addBudgetCents(category, Money.toCents(limit), windowDays, listener);
+    }
+
+    public Budget addBudgetCents(String category, long limitCents, int windowDays, Consumer<BudgetAlert> listener) {
+        if (windowDays < 1 || windowDays > MAX_BUDGET_WINDOW_DAYS) {
+            throw new IllegalArgumentException("Window must be from 1 to " + MAX_BUDGET_WINDOW_DAYS + " days: " + windowDays);
+        }
+        Objects.requireNonNull(listener, "listener");
+        int categoryId = categories.intern(category);
+        ensureCategoryCapacity(categoryId);
+        Budget budget = new Budget(categories.name(categoryId), limitCents, windowDays, listener);
+        if (budgets == null) {
+            budgets = new BudgetMonitor();
+        }
+        budgets.add(categoryId, budget, day -> dailySumBetween(category, day, day), latestDay(categoryId));
+        return budget;
+    }
+
+    // the day of the category's latest expense, where its budget windows end; null if it has none. walks the
+    // date order back from the latest expense, which is fine for something as rare as adding a budget
+    private Integer latestDay(int categoryId) {
+        if (!hasExpenses(categoryId)) {
+            return null;
+        }
+        for (int position = dateOrder.size() - 1; position >= 0; position--) {
+            int row = dateOrder.rowAt(position);
+            if (expenses.categoryIdAt(row) == categoryId) {
+                return expenses.epochDayAt(row);
+            }
+        }
+        return null;
+    }
+
+    // stops watching a budget, returns false if it was not added to this tracker
+    public boolean removeBudget(Budget budget) {
+        int categoryId = categories.idOf(budget.getCategory());
+        return budgets != null && categoryId >= 0 && budgets.remove(categoryId, budget);
+    }
+
+    // the budgets being watched, in the order they were added
+    public List<Budget> getBudgets() {
+        return budgets == null ? List.of() : budgets.budgets();
+    }
+
+    private void deliverAlerts() {
+        if (budgets != null) {
+            budgets.deliver();
+        }
+    }
+
+    // the largest expenses heap orders rows by their amount, so it cannot hold a row whose amount changes
+    private void checkLargest(int row) {
+        if (!largestStale && largestExpenses.contains(row)) {
+            largestStale = true;
+        }
+    }
+
+    // routes every later addExpense through the journal
+    void attachJournal(ExpenseJournal journal) {
+        this.journal = journal;
+    }
+
+    // approximate heap footprint of the tracker in bytes, from the capacity of its arrays
+    // it is meant for memory budgets such as LedgerRegistry's, not as an exact measurement; O(categories)
+    long estimatedBytes() {
+        return storeEstimatedBytes() + categoryEstimatedBytes();
+    }
+
+    // the results held by the query cache; unlike the parts above it is not safe to call while another thread
+    // uses the tracker
+    long queryCacheEstimatedBytes() {
+        return queryCache.estimatedBytes();
+    }
+
+    // the expense columns and the date order index
+    long storeEstimatedBytes() {
+        return expenses.estimatedBytes() + dateOrder.estimatedBytes() + dailyTotals.estimatedBytes()
+                + 4L * LARGEST_TRACKED + 256;
+    }
+
+    // the category dictionary and everything kept per category
+    // the arrays are read once, so a gauge reading this from another thread sees a consistent set of lengths
+    long categoryEstimatedBytes() {
+        DailyTotals[] perDay = categoryDailyTotals;
+        QuantileSketch[] sketches = categorySketches;
+        int count = Math.min(perDay.length, sketches.length);
+        // totals, counts, the two heaps and the per-category index and sketch references
+        long bytes = categories.estimatedBytes() + 36L * count;
+        for (int id = 0; id < count; id++) {
+            if (perDay[id] != null) {
+                bytes += perDay[id].estimatedBytes();
+            }
+            if (sketches[id] != null) {
+                bytes += sketches[id].estimatedBytes();
+            }
+        }
+        BudgetMonitor monitor = budgets;
+        return monitor == null ? bytes : bytes + monitor.estimatedBytes();
+    }
+
+    // attaches metrics that time every add, change and aggregate query from now on, null detaches them
+    public void setMetrics(TrackerMetrics metrics) {
+        if (metrics != null) {
+            metrics.attach(this);
+        }
+        this.metrics = metrics;
+    }
+
+    long startTiming() {
+        return metrics == null ? 0 : metrics.start();
+    }
+
+    void stopTiming(TrackerMetrics.Operation operation, long start) {
+        if (metrics != null) {
+            metrics.stop(operation, start);
+        }
+    }
+
+    CategoryDictionary categories() {
+        return categories;
+    }
+
+    ExpenseStore store() {
+        return expenses;
+    }
+
+    DateOrderIndex dateOrder() {
+        return dateOrder;
+    }
+
+    long categoryTotalCents(int categoryId) {
+        return categoryId < categoryTotals.length ? categoryTotals[categoryId] : 0;
     }
 
-    // adds Expense to expenses list
-    public void addExpense(String category, double amount, LocalDate date) {
-        Expense expense = new Expense(category, amount, date);
-        expenses.add(expense);
+    int categoryCount(int categoryId) {
+        return categoryId < categoryCounts.length ? categoryCounts[categoryId] : 0;
+    }
+
+    // sum of a date range from the per-day index of a category, or of every category when it is null
+    long dailySumBetween(String category, int fromDay, int toDay) {
+        DailyTotals index = category == null ? dailyTotals : dailyTotalsFor(category);
+        return index == null ? 0 : index.sumBetween(fromDay, toDay);
+    }
+
+    // starts a filter, group-by and aggregate query over the expenses, see ExpenseQuery
+    public ExpenseQuery query() {
+        return new ExpenseQuery(this);
     }
 
     // returns total amount
     public double getTotal() {
-        double total = 0.0;
-        for (Expense expense : expenses) {
-            total += expense.getAmount();
-        }
+        return Money.toAmount(total);
+    }
+
+    // returns total amount in cents
+    public long getTotalCents() {
         return total;
     }
 
-    // returns totals grouped by category
+    // returns totals grouped by category, as a read-only map that is cached until the next change
     public Map<String, Double> getTotalByCategory() {
-        Map<String, Double> totals = new HashMap<>();
-        for (Expense expense : expenses) {
-            String category = expense.getCategory();
-            double amount = expense.getAmount();
-            totals.put(
-                    category,
-                    totals.getOrDefault(category, 0.0) + amount
-            );
+        long start = startTiming();
+        try {
+            Map<String, Double> cached = queryCache.get(TOTAL_BY_CATEGORY, version);
+            if (cached != null) {
+                return cached;
+            }
+            return queryCache.put(TOTAL_BY_CATEGORY, version,
+                    Collections.unmodifiableMap(toCategoryMap(categoryTotals, categories.size(), this::hasExpenses)));
+        } finally {
+            stopTiming(TrackerMetrics.Operation.TOTAL_BY_CATEGORY, start);
         }
-        return totals;
     }
 
-    // getter
+    // returns totals grouped by category, in cents
+    public Map<String, Long> getTotalByCategoryCents() {
+        long start = startTiming();
+        try {
+            Map<String, Long> cached = queryCache.get(TOTAL_BY_CATEGORY_CENTS, version);
+            if (cached != null) {
+                return cached;
+            }
+            Map<String, Long> totals = new HashMap<>();
+            for (int id = 0; id < categories.size(); id++) {
+                if (hasExpenses(id)) {
+                    totals.put(categories.name(id), categoryTotals[id]);
+                }
+            }
+            return queryCache.put(TOTAL_BY_CATEGORY_CENTS, version, Collections.unmodifiableMap(totals));
+        } finally {
+            stopTiming(TrackerMetrics.Operation.TOTAL_BY_CATEGORY, start);
+        }
+    }
+
+    // hit and miss counts of the query cache behind the map and list queries
+    public CacheStats getQueryCacheStats() {
+        return queryCache.stats();
+    }
+
+    // false for categories that never had an expense or whose expenses were all removed
+    private boolean hasExpenses(int categoryId) {
+        return categoryId < categoryCounts.length && categoryCounts[categoryId] > 0;
+    }
+
+    // returns a read-only view of the stored expenses
     public List<Expense> getExpenses() {
-        return Collections.unmodifiableList(expenses);
+        return expenses.asList();
+    }
+
+    // returns a read-only view of the stored expenses ordered by date, oldest first
+    // expenses on the same date keep the order they were added in; nothing is sorted or copied,
+    // only the rows that are read are turned into Expense objects
+    public List<Expense> getExpensesByDate() {
+        return new DateOrderView();
+    }
+
+    // returns one page of the date-ordered view: up to limit expenses starting at offset
+    public List<Expense> getExpensesByDate(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative");
+        }
+        int size = dateOrder.size();
+        int from = Math.min(offset, size);
+        int to = (int) Math.min((long) from + limit, size);
+        return getExpensesByDate().subList(from, to);
+    }
+
+    private class DateOrderView extends AbstractList<Expense> implements RandomAccess {
+        @Override
+        public Expense get(int index) {
+            Objects.checkIndex(index, dateOrder.size());
+            return expenses.expenseAt(dateOrder.rowAt(index));
+        }
+
+        @Override
+        public int size() {
+            return dateOrder.size();
+        }
+    }
+
+    // rows of the expenses from one epoch day to another, both inclusive, in date order
+    int[] rowsBetween(int fromDay, int toDay) {
+        int from = dateOrder.firstPositionFrom(fromDay);
+        int to = toDay == Integer.MAX_VALUE ? dateOrder.size() : dateOrder.firstPositionFrom(toDay + 1);
+        int[] rows = new int[Math.max(0, to - from)];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = dateOrder.rowAt(from + i);
+        }
+        return rows;
+    }
+
+    // recomputes the total by scanning the amount column
+    double rescanTotal() {
+        return Money.toAmount(expenses.sumAmounts());
+    }
+
+    // recomputes the per-category totals by scanning the amount and category columns,
+    // split over the common fork/join pool for large stores; which categories have expenses is also
+    // taken from the scan, so nothing comes from the running aggregates
+    Map<String, Double> rescanTotalByCategory() {
+        ParallelAggregation.Partial scan = rescanCategories();
+        return toCategoryMap(scan.sums, categories.size(), id -> scan.counts[id] > 0);
+    }
+
+    // recomputes the highest and lowest category from a scan of the columns, see rescanTotalByCategory
+    Optional<CategoryExtreme> rescanCategoryExtremes() {
+        ParallelAggregation.Partial scan = rescanCategories();
+        return toCategoryExtreme(scan.sums, categories.size(), id -> scan.counts[id] > 0);
+    }
+
+    private ParallelAggregation.Partial rescanCategories() {
+        return ParallelAggregation.aggregate(ParallelAggregation.Scan.byCategory(expenses, categories.size()));
+    }
+
+    // converts an array indexed by category id into a map keyed by category name, of the categories present
+    private Map<String, Double> toCategoryMap(long[] sums, int count, IntPredicate present) {
+        Map<String, Double> totals = new HashMap<>();
+        for (int id = 0; id < count; id++) {
+            if (present.test(id)) {
+                totals.put(categories.name(id), Money.toAmount(sums[id]));
+            }
+        }
+        return totals;
     }
 
     // shows category with highest and lowest total expense amounts
+    // the same categories as getTopCategories(1) and getBottomCategories(1)
     public Optional<CategoryExtreme> getCategoryExtremes() {
-        Map<String, Double> totals = getTotalByCategory();
+        long start = startTiming();
+        try {
+            if (highestCategories.size() == 0) {
+                return Optional.empty();
+            }
+            int highestId = highestCategories.peek();
+            int lowestId = lowestCategories.peek();
+            return Optional.of(CategoryExtreme.ofCents(categories.name(highestId), categoryTotals[highestId],
+                    categories.name(lowestId), categoryTotals[lowestId]));
+        } finally {
+            stopTiming(TrackerMetrics.Operation.CATEGORY_EXTREMES, start);
+        }
+    }
 
-        if (totals.isEmpty()) {
-            return Optional.empty();
+    // returns the k categories with the highest totals, highest first
+    // categories with equal totals keep the order they were first used in
+    public List<CategoryRank> getTopCategories(int k) {
+        return rankCategories(k, true);
+    }
+
+    // returns the k categories with the lowest totals, lowest first
+    public List<CategoryRank> getBottomCategories(int k) {
+        return rankCategories(k, false);
+    }
+
+    // read off the category heaps, nothing is sorted
+    private List<CategoryRank> rankCategories(int k, boolean highest) {
+        long start = startTiming();
+        try {
+            checkCount(k);
+            List<Object> key = List.of(highest ? "topCategories" : "bottomCategories", k);
+            List<CategoryRank> cached = queryCache.get(key, version);
+            if (cached != null) {
+                return cached;
+            }
+            int[] ids = (highest ? highestCategories : lowestCategories).best(k);
+            List<CategoryRank> ranking = new ArrayList<>(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                ranking.add(new CategoryRank(i + 1, categories.name(ids[i]), categoryTotals[ids[i]]));
+            }
+            return queryCache.put(key, version, Collections.unmodifiableList(ranking));
+        } finally {
+            stopTiming(TrackerMetrics.Operation.CATEGORY_RANKING, start);
         }
+    }
+
+    // returns the k largest expenses, largest first; expenses with equal amounts keep the order they were added in
+    // up to LARGEST_TRACKED come straight from the heap kept on add, more take one pass over the amount column;
+    // so does the first call after one of the largest expenses was removed or changed, to rebuild the heap
+    public List<Expense> getLargestExpenses(int k) {
+        long start = startTiming();
+        try {
+            checkCount(k);
+            List<Object> key = List.of("largestExpenses", k);
+            List<Expense> cached = queryCache.get(key, version);
+            if (cached != null) {
+                return cached;
+            }
+            int[] rows;
+            if (k <= LARGEST_TRACKED) {
+                if (largestStale) {
+                    largestExpenses.clear();
+                    offerLiveRows(largestExpenses);
+                    largestStale = false;
+                }
+                rows = largestExpenses.ranked();
+                rows = Arrays.copyOf(rows, Math.min(k, rows.length));
+            } else {
+                RankHeap heap = new RankHeap(Math.min(k, expenses.liveCount()), true, expenses::amountCentsAt);
+                offerLiveRows(heap);
+                rows = heap.ranked();
+            }
+            List<Expense> largest = new ArrayList<>(rows.length);
+            for (int row : rows) {
+                largest.add(expenses.expenseAt(row));
+            }
+            return queryCache.put(key, version, Collections.unmodifiableList(largest));
+        } finally {
+            stopTiming(TrackerMetrics.Operation.LARGEST_EXPENSES, start);
+        }
+    }
+
+    private void offerLiveRows(RankHeap heap) {
+        for (int row = 0; row < expenses.size(); row++) {
+            if (!expenses.isRemoved(row)) {
+                heap.offer(row);
+            }
+        }
+    }
+
+    // returns the expense amount at a quantile of one category, e.g. 0.5 for the median or 0.99 for p99
+    // estimated within 1% from the category's sketch; empty if the category has no expenses
+    public OptionalDouble getAmountQuantile(String category, double quantile) {
+        long start = startTiming();
+        try {
+            if (!(quantile >= 0 && quantile <= 1)) {
+                throw new IllegalArgumentException("Quantile must be between 0 and 1");
+            }
+            int categoryId = categories.idOf(category);
+            if (categoryId < 0 || categoryId >= categorySketches.length || categorySketches[categoryId] == null
+                    || categorySketches[categoryId].count() == 0) {
+                return OptionalDouble.empty();
+            }
+            return OptionalDouble.of(Money.toAmount(categorySketches[categoryId].quantile(quantile)));
+        } finally {
+            stopTiming(TrackerMetrics.Operation.AMOUNT_QUANTILE, start);
+        }
+    }
 
-        String highestCategory = null;
-        String lowestCategory = null;
-        double highestAmount = Double.NEGATIVE_INFINITY;
-        double lowestAmount = Double.POSITIVE_INFINITY;
+    private static void checkCount(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Count must not be negative");
+        }
+    }
 
-        for (Map.Entry<String, Double> entry : totals.entrySet()) {
-            String category = entry.getKey();
-            double amount = entry.getValue();
+    // picks the highest and lowest of the present categories' sums, the first category wins ties
+    private Optional<CategoryExtreme> toCategoryExtreme(long[] sums, int count, IntPredicate present) {
+
+        int highestId = -1;
+        int lowestId = -1;
+        long highestAmount = Long.MIN_VALUE;
+        long lowestAmount = Long.MAX_VALUE;
+
+        for (int id = 0; id < count; id++) {
+            if (!present.test(id)) {
+                continue;
+            }
+            long amount = sums[id];
             if (amount > highestAmount) {
-                highestCategory = category;
+                highestId = id;
                 highestAmount = amount;
             }
             if (amount < lowestAmount) {
-                lowestCategory = category;
+                lowestId = id;
                 lowestAmount = amount;
             }
         }
 
-        return Optional.of(new CategoryExtreme(highestCategory, highestAmount, lowestCategory, lowestAmount));
+        if (highestId < 0) {
+            return Optional.empty();
+        }
+        return Optional.of(CategoryExtreme.ofCents(
+                categories.name(highestId), highestAmount, categories.name(lowestId), lowestAmount));
+    }
+
+    // returns the total amount spent from one date to another, both inclusive
+    public double getTotalBetween(LocalDate from, LocalDate to) {
+        long start = startTiming();
+        try {
+            checkRange(from, to);
+            return Money.toAmount(dailyTotals.sumBetween(queryDay(from), queryDay(to)));
+        } finally {
+            stopTiming(TrackerMetrics.Operation.TOTAL_BETWEEN, start);
+        }
+    }
+
+    // returns the total amount spent in one category from one date to another, both inclusive
+    public double getTotalBetween(String category, LocalDate from, LocalDate to) {
+        long start = startTiming();
+        try {
+            checkRange(from, to);
+            DailyTotals index = dailyTotalsFor(category);
+            return index == null ? 0.0 : Money.toAmount(index.sumBetween(queryDay(from), queryDay(to)));
+        } finally {
+            stopTiming(TrackerMetrics.Operation.TOTAL_BETWEEN, start);
+        }
+    }
+
+    // returns totals per day, week or month between two dates, keyed by bucket start date
+    // every bucket in the range is present, buckets without expenses map to 0.0
+    public SortedMap<LocalDate, Double> getTotalsByBucket(TimeBucket bucket, LocalDate from, LocalDate to) {
+        long start = startTiming();
+        try {
+            checkRange(from, to);
+            List<Object> key = List.of("totalsByBucket", bucket, from, to);
+            SortedMap<LocalDate, Double> cached = queryCache.get(key, version);
+            if (cached != null) {
+                return cached;
+            }
+            return queryCache.put(key, version, bucketTotals(dailyTotals, bucket, from, to));
+        } finally {
+            stopTiming(TrackerMetrics.Operation.TOTALS_BY_BUCKET, start);
+        }
+    }
+
+    // returns totals of one category per day, week or month between two dates, keyed by bucket start date
+    public SortedMap<LocalDate, Double> getTotalsByBucket(String category, TimeBucket bucket, LocalDate from, LocalDate to) {
+        long start = startTiming();
+        try {
+            checkRange(from, to);
+            List<Object> key = List.of("totalsByBucket", category, bucket, from, to);
+            SortedMap<LocalDate, Double> cached = queryCache.get(key, version);
+            if (cached != null) {
+                return cached;
+            }
+            return queryCache.put(key, version, bucketTotals(dailyTotalsFor(category), bucket, from, to));
+        } finally {
+            stopTiming(TrackerMetrics.Operation.TOTALS_BY_BUCKET, start);
+        }
+    }
+
+    // date of the earliest expense, if any
+    public Optional<LocalDate> getFirstDate() {
+        return dateOrder.size() == 0 ? Optional.empty() : Optional.of(LocalDate.ofEpochDay(expenses.epochDayAt(dateOrder.rowAt(0))));
+    }
+
+    // date of the latest expense, if any
+    public Optional<LocalDate> getLastDate() {
+        int size = dateOrder.size();
+        return size == 0 ? Optional.empty() : Optional.of(LocalDate.ofEpochDay(expenses.epochDayAt(dateOrder.rowAt(size - 1))));
+    }
+
+    // one range query per bucket, each clipped to [from, to]
+    private SortedMap<LocalDate, Double> bucketTotals(DailyTotals index, TimeBucket bucket, LocalDate from, LocalDate to) {
+        SortedMap<LocalDate, Double> totals = new TreeMap<>();
+        for (LocalDate start = bucket.start(from); !start.isAfter(to); start = bucket.next(start)) {
+            LocalDate end = bucket.next(start).minusDays(1);
+            int fromDay = queryDay(start.isBefore(from) ? from : start);
+            int toDay = queryDay(end.isAfter(to) ? to : end);
+            totals.put(start, index == null ? 0.0 : Money.toAmount(index.sumBetween(fromDay, toDay)));
+        }
+        return Collections.unmodifiableSortedMap(totals);
+    }
+
+    // returns the per-day index of a category, building it from the store the first time it is asked for
+    // returns null for categories that have no expenses
+    private DailyTotals dailyTotalsFor(String category) {
+        int categoryId = categories.idOf(category);
+        if (categoryId < 0 || categoryId >= categoryDailyTotals.length) {
+            return null;
+        }
+        if (categoryDailyTotals[categoryId] == null) {
+            DailyTotals index = new DailyTotals();
+            for (int row = 0; row < expenses.size(); row++) {
+                if (expenses.categoryIdAt(row) == categoryId && !expenses.isRemoved(row)) {
+                    index.add(expenses.epochDayAt(row), expenses.amountCentsAt(row));
+                }
+            }
+            categoryDailyTotals[categoryId] = index;
+        }
+        return categoryDailyTotals[categoryId];
+    }
+
+    private static void checkRange(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date " + from + " is after end date " + to);
+        }
+    }
+
+    private static int toEpochDay(LocalDate date) {
+        return Math.toIntExact(date.toEpochDay());
+    }
+
+    // query bounds may be open-ended (e.g. LocalDate.MIN), so they are clamped rather than rejected
+    static int queryDay(LocalDate date) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, date.toEpochDay()));
     }
 }
@@ -0,0 +1,181 @@
+package com.capgemini.expensetracker;
+
+import java.util.Arrays;
+import java.util.function.IntToLongFunction;
+
+// binary heap of dense ids ordered by a long score that can move in either direction, such as a category total
+// the position of every id is tracked, so a changed score is sifted back into place in O(log n) without
+// searching for it, the best id is always at the root, and the best k are read in O(k log k) by walking
+// down from the root. equal scores rank the lower id first, like RankHeap
+final class IndexedHeap {
+    private final boolean highest;
+    private final IntToLongFunction score;
+    private int[] heap = new int[16];
+    private int[] positions = new int[0]; // position of each id in heap, -1 when it is not in it
+    private int size;
+
+    // highest: true puts the largest score at the root, false the smallest
+    IndexedHeap(boolean highest, IntToLongFunction score) {
+        this.highest = highest;
+        this.score = score;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(int id) {
+        return id < positions.length && positions[id] >= 0;
+    }
+
+    // the best id, the heap must not be empty
+    int peek() {
+        return heap[0];
+    }
+
+    void add(int id) {
+        if (id >= positions.length) {
+            int oldLength = positions.length;
+            positions = Arrays.copyOf(positions, Math.max(oldLength * 2, id + 1));
+            Arrays.fill(positions, oldLength, positions.length, -1);
+        }
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        heap[size] = id;
+        positions[id] = size;
+        siftUp(size++);
+    }
+
+    // takes the id out, if it is in the heap
+    void remove(int id) {
+        if (!contains(id)) {
+            return;
+        }
+        int position = positions[id];
+        positions[id] = -1;
+        size--;
+        if (position == size) {
+            return;
+        }
+        heap[position] = heap[size];
+        positions[heap[position]] = position;
+        siftDown(siftUp(position));
+    }
+
+    // restores the order after the score of id changed
+    void changed(int id) {
+        siftDown(siftUp(positions[id]));
+    }
+
+    // the best k ids, best first
+    int[] best(int k) {
+        int count = Math.min(k, size);
+        int[] ids = new int[count];
+        if (count == 0) {
+            return ids;
+        }
+        // the next best id is always a child of one already taken, so only the frontier of those
+        // children is searched, kept in a small heap of positions with the best at its root
+        int[] frontier = new int[count + 1];
+        int frontierSize = 0;
+        frontier[frontierSize++] = 0;
+        for (int i = 0; i < count; i++) {
+            int position = frontier[0];
+            ids[i] = heap[position];
+            frontier[0] = frontier[--frontierSize];
+            frontierSiftDown(frontier, frontierSize);
+            for (int child = 2 * position + 1; child <= 2 * position + 2 && child < size; child++) {
+                if (frontierSize == frontier.length) {
+                    frontier = Arrays.copyOf(frontier, frontierSize * 2);
+                }
+                frontier[frontierSize] = child;
+                frontierSiftUp(frontier, frontierSize++);
+            }
+        }
+        return ids;
+    }
+
+    private boolean ranksBefore(int a, int b) {
+        long scoreA = score.applyAsLong(a);
+        long scoreB = score.applyAsLong(b);
+        if (scoreA != scoreB) {
+            return highest ? scoreA > scoreB : scoreA < scoreB;
+        }
+        return a < b;
+    }
+
+    // moves the id at position towards the root while it ranks before its parent, returns where it ends up
+    private int siftUp(int position) {
+        int id = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!ranksBefore(id, heap[parent])) {
+                break;
+            }
+            heap[position] = heap[parent];
+            positions[heap[position]] = position;
+            position = parent;
+        }
+        heap[position] = id;
+        positions[id] = position;
+        return position;
+    }
+
+    private void siftDown(int position) {
+        int id = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && ranksBefore(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!ranksBefore(heap[child], id)) {
+                break;
+            }
+            heap[position] = heap[child];
+            positions[heap[position]] = position;
+            position = child;
+        }
+        heap[position] = id;
+        positions[id] = position;
+    }
+
+    private void frontierSiftUp(int[] frontier, int index) {
+        int position = frontier[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!ranksBefore(heap[position], heap[frontier[parent]])) {
+                break;
+            }
+            frontier[index] = frontier[parent];
+            index = parent;
+        }
+        frontier[index] = position;
+    }
+
+    private void frontierSiftDown(int[] frontier, int frontierSize) {
+        if (frontierSize == 0) {
+            return;
+        }
+        int index = 0;
+        int position = frontier[0];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= frontierSize) {
+                break;
+            }
+            if (child + 1 < frontierSize && ranksBefore(heap[frontier[child + 1]], heap[frontier[child]])) {
+                child++;
+            }
+            if (!ranksBefore(heap[frontier[child]], heap[position])) {
+                break;
+            }
+            frontier[index] = frontier[child];
+            index = child;
+        }
+        frontier[index] = position;
+    }
+}
@@ -0,0 +1,81 @@
+package com.capgemini.expensetracker;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// histogram of durations in nanoseconds with log-linear buckets: four buckets per power of two, so a
+// percentile read from it is within 25% of the true value. it has a single writer, the thread of the
+// tracker it belongs to, so recording is a few plain increments published with release stores (no CAS,
+// no allocation), and other threads (JMX) can read it at any time
+final class LatencyHistogram {
+    private static final int SUB_BUCKETS = 4;
+    private static final int BUCKETS = 64 * SUB_BUCKETS;
+    // the running count, total and max follow the buckets in the same array
+    private static final int COUNT = BUCKETS;
+    private static final int TOTAL = BUCKETS + 1;
+    private static final int MAX = BUCKETS + 2;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS + 3);
+
+    void record(long nanos) {
+        long value = Math.max(0, nanos);
+        int bucket = bucket(value);
+        counts.lazySet(bucket, counts.get(bucket) + 1);
+        counts.lazySet(COUNT, counts.get(COUNT) + 1);
+        counts.lazySet(TOTAL, counts.get(TOTAL) + value);
+        if (value > counts.get(MAX)) {
+            counts.lazySet(MAX, value);
+        }
+    }
+
+    long count() {
+        return counts.get(COUNT);
+    }
+
+    long totalNanos() {
+        return counts.get(TOTAL);
+    }
+
+    long maxNanos() {
+        return counts.get(MAX);
+    }
+
+    // the duration below which the given share of the recorded ones fall, 0 if nothing was recorded
+    long percentileNanos(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), maxNanos());
+            }
+        }
+        return maxNanos();
+    }
+
+    // values below 4 get a bucket each, above that a power of two is split into SUB_BUCKETS equal parts
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - 2)) & (SUB_BUCKETS - 1);
+        return (exponent - 1) * SUB_BUCKETS + sub;
+    }
+
+    // largest value that falls into the bucket
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - 2);
+        return lower + (1L << (exponent - 2)) - 1;
+    }
+}
@@ -0,0 +1,393 @@
+package com.capgemini.expensetracker;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// one ExpenseTracker (a ledger) per account id in a single JVM, each persisted by its own ExpenseJournal
+// in root/<account id>
+//
+// ledgers are loaded on first use and kept in least recently used order. whenever the estimated footprint
+// of the loaded ledgers and the summaries goes over the memory budget, the least recently used ledgers that
+// are not in use are evicted: their journal is synced and closed and the tracker is dropped, keeping only a
+// LedgerSummary. the totals of an evicted account are answered from that summary without loading it again.
+// summaries are counted too: once they take more than SUMMARY_SHARE of the budget the least recently used
+// ones are dropped, and those accounts are loaded from their journal again if asked for, so cold accounts
+// cost a few hundred bytes each up to a bounded total while hot ones keep their running aggregates in memory.
+//
+// the registry's lock only guards its maps and counters. opening and closing journals happens outside it,
+// with a future per account that others wanting the same account wait for, so a slow restore only holds up
+// that account. withLedger runs the action under the ledger's own lock, as the tracker is not thread-safe,
+// and counts the ledger as in use meanwhile, so it is never evicted under a caller; callers must not keep
+// the tracker after the call returns
+public class LedgerRegistry implements Closeable {
+    // a loaded ledger is re-estimated once it has grown by this many rows, instead of on every change
+    static final int ESTIMATE_STEP = 1024;
+    // the part of the memory budget that summaries of evicted ledgers may take
+    static final double SUMMARY_SHARE = 0.25;
+
+    private static final Pattern ACCOUNT_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private final Path root;
+    private final long memoryBudget;
+    private final ExpenseJournal.SyncPolicy syncPolicy;
+    private final int batchSize;
+    private final int snapshotInterval;
+
+    // loaded ledgers and the summaries of evicted ones, both in access order, least recently used first
+    private final LinkedHashMap<String, Ledger> loaded = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, LedgerSummary> evicted = new LinkedHashMap<>(16, 0.75f, true);
+    // accounts whose journal is being opened or closed outside the lock, completed when that is done
+    private final Map<String, CompletableFuture<Void>> transitions = new HashMap<>();
+    private long loadedBytes;
+    private long summaryBytes;
+    private long loads;
+    private long evictions;
+    private long droppedSummaries;
+    private boolean closed;
+
+    private static final class Ledger {
+        final ExpenseTracker tracker;
+        final ExpenseJournal journal;
+        // guarded by the registry: calls inside withLedger, and the footprint counted in loadedBytes
+        int users;
+        long estimatedBytes;
+        // guarded by the ledger: the tracker's own estimate and the row count it was made at
+        long trackerBytes = -1;
+        int estimatedRows;
+
+        Ledger(ExpenseTracker tracker, ExpenseJournal journal) {
+            this.tracker = tracker;
+            this.journal = journal;
+        }
+    }
+
+    // opens the registry over root with the journal's default sync policy and snapshot interval
+    public LedgerRegistry(Path root, long memoryBudgetBytes) throws IOException {
+        this(root, memoryBudgetBytes, ExpenseJournal.SyncPolicy.BATCH, ExpenseJournal.DEFAULT_BATCH_SIZE,
+                ExpenseJournal.DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    public LedgerRegistry(Path root, long memoryBudgetBytes, ExpenseJournal.SyncPolicy syncPolicy,
+                          int batchSize, int snapshotInterval) throws IOException {
+        if (memoryBudgetBytes < 1) {
+            throw new IllegalArgumentException("Memory budget must be positive");
+        }
+        this.root = root;
+        this.memoryBudget = memoryBudgetBytes;
+        this.syncPolicy = syncPolicy;
+        this.batchSize = batchSize;
+        this.snapshotInterval = snapshotInterval;
+        Files.createDirectories(root);
+    }
+
+    // runs action on the account's ledger, loading it first if needed, and returns its result
+    // the account is created on first use; afterwards ledgers are evicted until the budget is met again,
+    // except this one, which stays loaded even if it alone is over the budget
+    public <T> T withLedger(String accountId, Function<ExpenseTracker, T> action) throws IOException {
+        checkAccountId(accountId);
+        Ledger ledger = acquire(accountId);
+        long bytes = 0;
+        try {
+            synchronized (ledger) {
+                try {
+                    return action.apply(ledger.tracker);
+                } finally {
+                    bytes = estimate(ledger);
+                }
+            }
+        } finally {
+            release(accountId, ledger, bytes);
+        }
+    }
+
+    // adds an expense to the account's ledger and returns its id
+    public long addExpense(String accountId, String category, double amount, LocalDate date) throws IOException {
+        return withLedger(accountId, tracker -> tracker.addExpense(category, amount, date));
+    }
+
+    // the account's current aggregates; an evicted account answers from the summary kept when it was evicted,
+    // any other is loaded (if it is not already) and summarised as it is
+    public LedgerSummary getSummary(String accountId) throws IOException {
+        checkAccountId(accountId);
+        synchronized (this) {
+            LedgerSummary summary = evicted.get(accountId);
+            if (summary != null) {
+                return summary;
+            }
+        }
+        return withLedger(accountId, tracker -> LedgerSummary.of(accountId, tracker));
+    }
+
+    public double getTotal(String accountId) throws IOException {
+        return getSummary(accountId).getTotal();
+    }
+
+    // every account with a ledger on disk, sorted
+    public SortedSet<String> getAccountIds() throws IOException {
+        SortedSet<String> accountIds = new TreeSet<>();
+        try (Stream<Path> directories = Files.list(root)) {
+            directories.filter(Files::isDirectory)
+                    .map(directory -> directory.getFileName().toString())
+                    .filter(name -> ACCOUNT_ID.matcher(name).matches())
+                    .forEach(accountIds::add);
+        }
+        return accountIds;
+    }
+
+    // evicts the account's ledger now, returns false if it is not loaded or is in use
+    public boolean evict(String accountId) throws IOException {
+        Map<String, Ledger> unloading = new LinkedHashMap<>();
+        synchronized (this) {
+            checkOpen();
+            Ledger ledger = loaded.get(accountId);
+            if (ledger == null || ledger.users > 0) {
+                return false;
+            }
+            loaded.remove(accountId);
+            unloading.put(accountId, unload(accountId, ledger));
+            unloading.putAll(enforceBudget(null));
+        }
+        closeJournals(unloading);
+        return true;
+    }
+
+    // stats
+    public synchronized boolean isLoaded(String accountId) {
+        return loaded.containsKey(accountId);
+    }
+
+    public synchronized int getLoadedCount() {
+        return loaded.size();
+    }
+
+    public synchronized long getLoadedBytes() {
+        return loadedBytes;
+    }
+
+    // estimated footprint of the summaries kept for evicted ledgers
+    public synchronized long getSummaryBytes() {
+        return summaryBytes;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public synchronized long getLoadCount() {
+        return loads;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    // summaries dropped to stay within the budget, each costs a load the next time the account is used
+    public synchronized long getDroppedSummaryCount() {
+        return droppedSummaries;
+    }
+
+    // waits for the ledgers in use, then closes the journal of every loaded ledger
+    @Override
+    public void close() throws IOException {
+        Map<String, Ledger> closing;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            boolean interrupted = false;
+            while (!transitions.isEmpty() || loaded.values().stream().anyMatch(ledger -> ledger.users > 0)) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            closing = new LinkedHashMap<>(loaded);
+            loaded.clear();
+            loadedBytes = 0;
+        }
+        IOException failure = null;
+        for (Ledger ledger : closing.values()) {
+            failure = closeJournal(ledger, failure);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // the account's ledger counted as in use, loaded first if needed; waits while another thread opens or
+    // closes its journal
+    private Ledger acquire(String accountId) throws IOException {
+        while (true) {
+            CompletableFuture<Void> pending;
+            CompletableFuture<Void> loading = null;
+            synchronized (this) {
+                checkOpen();
+                Ledger ledger = loaded.get(accountId);
+                if (ledger != null) {
+                    ledger.users++;
+                    return ledger;
+                }
+                pending = transitions.get(accountId);
+                if (pending == null) {
+                    loading = new CompletableFuture<>();
+                    transitions.put(accountId, loading);
+                }
+            }
+            if (loading != null) {
+                return load(accountId, loading);
+            }
+            // transitions always complete normally, a failed load is retried (and reported) by the next caller
+            pending.join();
+        }
+    }
+
+    // opens the account's journal outside the lock and adds the ledger, counted as in use
+    private Ledger load(String accountId, CompletableFuture<Void> loading) throws IOException {
+        try {
+            ExpenseTracker tracker = new ExpenseTracker();
+            ExpenseJournal journal = ExpenseJournal.open(root.resolve(accountId), tracker, syncPolicy, batchSize,
+                    snapshotInterval);
+            Ledger ledger = new Ledger(tracker, journal);
+            long bytes = estimate(ledger);
+            synchronized (this) {
+                if (!closed) {
+                    ledger.users++;
+                    ledger.estimatedBytes = bytes;
+                    loadedBytes += bytes;
+                    loaded.put(accountId, ledger);
+                    LedgerSummary summary = evicted.remove(accountId);
+                    if (summary != null) {
+                        summaryBytes -= summary.estimatedBytes();
+                    }
+                    loads++;
+                    return ledger;
+                }
+            }
+            journal.close();
+            throw new IllegalStateException("Registry is closed");
+        } finally {
+            endTransition(accountId);
+        }
+    }
+
+    // the ledger is no longer in use by this call: takes in its new footprint, then evicts what the budget needs
+    private void release(String accountId, Ledger ledger, long bytes) throws IOException {
+        Map<String, Ledger> unloading;
+        synchronized (this) {
+            ledger.users--;
+            loadedBytes += bytes - ledger.estimatedBytes;
+            ledger.estimatedBytes = bytes;
+            unloading = closed ? Map.of() : enforceBudget(accountId);
+            notifyAll();
+        }
+        closeJournals(unloading);
+    }
+
+    // evicts least recently used ledgers that are not in use, other than keep, until the loaded ones and the
+    // summaries fit the budget, and drops least recently used summaries while they take more than their share;
+    // returns the evicted ledgers, whose journals the caller closes once it has left the lock
+    private Map<String, Ledger> enforceBudget(String keep) {
+        Map<String, Ledger> unloading = new LinkedHashMap<>();
+        Iterator<Map.Entry<String, Ledger>> eldest = loaded.entrySet().iterator();
+        while (loadedBytes + summaryBytes > memoryBudget && eldest.hasNext()) {
+            Map.Entry<String, Ledger> entry = eldest.next();
+            if (entry.getKey().equals(keep) || entry.getValue().users > 0) {
+                continue;
+            }
+            eldest.remove();
+            unloading.put(entry.getKey(), unload(entry.getKey(), entry.getValue()));
+        }
+        Iterator<LedgerSummary> summaries = evicted.values().iterator();
+        while (summaryBytes > memoryBudget * SUMMARY_SHARE && summaries.hasNext()) {
+            summaryBytes -= summaries.next().estimatedBytes();
+            summaries.remove();
+            droppedSummaries++;
+        }
+        return unloading;
+    }
+
+    // swaps a ledger taken out of loaded for its summary; the ledger is not in use, so no one else touches
+    // its tracker, and its account waits on a transition until closeJournals is done with it
+    private Ledger unload(String accountId, Ledger ledger) {
+        LedgerSummary summary = LedgerSummary.of(accountId, ledger.tracker);
+        evicted.put(accountId, summary);
+        summaryBytes += summary.estimatedBytes();
+        loadedBytes -= ledger.estimatedBytes;
+        evictions++;
+        transitions.put(accountId, new CompletableFuture<>());
+        return ledger;
+    }
+
+    // closes the journals of unloaded ledgers, outside the lock, and lets their accounts be loaded again
+    private void closeJournals(Map<String, Ledger> unloading) throws IOException {
+        IOException failure = null;
+        for (Map.Entry<String, Ledger> entry : unloading.entrySet()) {
+            try {
+                failure = closeJournal(entry.getValue(), failure);
+            } finally {
+                endTransition(entry.getKey());
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static IOException closeJournal(Ledger ledger, IOException failure) {
+        try {
+            ledger.journal.close();
+        } catch (IOException e) {
+            if (failure == null) {
+                return e;
+            }
+            failure.addSuppressed(e);
+        }
+        return failure;
+    }
+
+    private void endTransition(String accountId) {
+        CompletableFuture<Void> transition;
+        synchronized (this) {
+            transition = transitions.remove(accountId);
+            notifyAll();
+        }
+        transition.complete(null);
+    }
+
+    // the ledger's footprint: the tracker's own estimate, redone once it has grown by ESTIMATE_STEP rows, its
+    // query cache and the journal's off-heap write buffer; called under the ledger's lock (or before it is shared)
+    private static long estimate(Ledger ledger) {
+        ExpenseTracker tracker = ledger.tracker;
+        if (ledger.trackerBytes < 0 || Math.abs(tracker.store().size() - ledger.estimatedRows) >= ESTIMATE_STEP) {
+            ledger.trackerBytes = tracker.estimatedBytes();
+            ledger.estimatedRows = tracker.store().size();
+        }
+        return ledger.trackerBytes + tracker.queryCacheEstimatedBytes() + ExpenseJournal.BUFFER_BYTES;
+    }
+
+    // account ids become directory names, so only a safe set of characters is allowed
+    private static void checkAccountId(String accountId) {
+        if (accountId == null || !ACCOUNT_ID.matcher(accountId).matches()) {
+            throw new IllegalArgumentException("Account id must be 1 to 64 letters, digits, '-' or '_': " + accountId);
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Registry is closed");
+        }
+    }
+}
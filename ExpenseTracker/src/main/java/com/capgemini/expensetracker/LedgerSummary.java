@@ -0,0 +1,63 @@
+package com.capgemini.expensetracker;
+
+import java.util.*;
+
+// the aggregates of one ledger at a point in time, small enough to keep for every account
+// LedgerRegistry keeps one for each ledger it evicts, so cold accounts answer without being loaded
+public class LedgerSummary {
+
+    private final String accountId;
+    private final int expenseCount;
+    private final long totalCents;
+    private final Map<String, Long> totalByCategoryCents;
+    private final long estimatedBytes;
+
+    LedgerSummary(String accountId, int expenseCount, long totalCents, Map<String, Long> totalByCategoryCents) {
+        this.accountId = accountId;
+        this.expenseCount = expenseCount;
+        this.totalCents = totalCents;
+        this.totalByCategoryCents = Collections.unmodifiableMap(totalByCategoryCents);
+        // the summary, its id and map, and per category a map node, a boxed total and the name
+        long bytes = 160 + 2L * accountId.length();
+        for (String category : totalByCategoryCents.keySet()) {
+            bytes += 96 + 2L * category.length();
+        }
+        this.estimatedBytes = bytes;
+    }
+
+    static LedgerSummary of(String accountId, ExpenseTracker tracker) {
+        return new LedgerSummary(accountId, tracker.store().liveCount(), tracker.getTotalCents(),
+                tracker.getTotalByCategoryCents());
+    }
+
+    // getters
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public int getExpenseCount() {
+        return expenseCount;
+    }
+
+    public double getTotal() {
+        return Money.toAmount(totalCents);
+    }
+
+    public long getTotalCents() {
+        return totalCents;
+    }
+
+    public Map<String, Long> getTotalByCategoryCents() {
+        return totalByCategoryCents;
+    }
+
+    // approximate heap footprint, what LedgerRegistry counts against its memory budget
+    long estimatedBytes() {
+        return estimatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return accountId + ": " + expenseCount + " expenses, " + Money.format(totalCents);
+    }
+}
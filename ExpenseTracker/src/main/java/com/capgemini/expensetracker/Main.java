@@ -1,17 +1,66 @@
 package com.capgemini.expensetracker;
 
+import javax.management.JMException;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.format.DateTimeParseException;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class Main {
-    public static void main(String[] args) {
+    // expenses are kept in this directory between runs, unless another one is passed as the first argument
+    private static final String DEFAULT_DATA_DIRECTORY = "expense-data";
+    // metric names of the view actions, menu options 2 to 6
+    private static final String[] VIEW_ACTIONS = {
+        "MENU_TOTAL", "MENU_BY_CATEGORY", "MENU_TREND", "MENU_HIGHEST_LOWEST", "MENU_MONTHLY_TREND"
+    };
+    // rows of the expense trend shown before asking whether to go on
+    static final int PAGE_ROWS = 100;
+
+    // tables are rendered through a TableRenderer into this, and flushed at the end of every view
+    private static final Writer OUT = new OutputStreamWriter(System.out, System.out.charset());
+
+    public static void main(String[] args) throws IOException {
         System.out.println("Welcome to the Expense Tracker App!");
 
         Scanner scanner = new Scanner(System.in);
         ExpenseTracker expenseTracker = new ExpenseTracker();
 
+        // restore earlier expenses; entries are typed by hand, so each one is synced to disk right away
+        Path dataDirectory = Paths.get(args.length > 0 ? args[0] : DEFAULT_DATA_DIRECTORY);
+        ExpenseJournal journal;
+        try {
+            journal = ExpenseJournal.open(dataDirectory, expenseTracker,
+                ExpenseJournal.SyncPolicy.EVERY_WRITE, 1, ExpenseJournal.DEFAULT_SNAPSHOT_INTERVAL);
+        } catch (IOException e) {
+            System.out.println("Could not open the expense data in " + dataDirectory + ": " + e.getMessage());
+            return;
+        }
+        if (!expenseTracker.getExpenses().isEmpty()) {
+            System.out.println("Restored " + expenseTracker.getExpenses().size() + " expenses from " + dataDirectory);
+        }
+
+        // timings of the tracker and of the menu actions, also visible over JMX (e.g. in JConsole)
+        TrackerMetrics metrics = new TrackerMetrics(true);
+        expenseTracker.setMetrics(metrics);
+        try {
+            metrics.register("main");
+        } catch (JMException e) {
+            System.out.println("Metrics are not available over JMX: " + e.getMessage());
+        }
+
+        // the journal is closed however the menu ends: option 12, the end of the input or an error
+        try (journal; scanner) {
+            runMenu(scanner, expenseTracker, metrics);
+        }
+    }
+
+    // reads and runs menu options until option 12 or the end of the input
+    private static void runMenu(Scanner scanner, ExpenseTracker expenseTracker, TrackerMetrics metrics) {
         while (true) {
             System.out.print(
                 "\n1. Add expense\n" +
@@ -19,11 +68,22 @@ public class Main {
                 "3. View total expense by category\n" +
                 "4. View expense trend\n" +
                 "5. View highest and lowest spend category\n" +
-                "6. Exit\n" +
-                "Select an option (1-6): "
+                "6. View monthly expense trend\n" +
+                "7. Import expenses from CSV\n" +
+                "8. Export expenses to CSV\n" +
+                "9. Edit expense\n" +
+                "10. Delete expense\n" +
+                "11. Show metrics\n" +
+                "12. Exit\n" +
+                "Select an option (1-12): "
             );
 
             if (!scanner.hasNextInt()) {
+                if (!scanner.hasNextLine()) {
+                    System.out.println();
+                    System.out.println("Exiting...");
+                    return;
+                }
                 System.out.println("Invalid option. Try again.");
                 scanner.nextLine();
                 continue;
@@ -33,6 +93,7 @@ public class Main {
 
             System.out.println(); // extra space for readability
 
+            long started = System.nanoTime();
             switch (choice) {
                 case 1:
                     addExpense(scanner, expenseTracker);
@@ -44,109 +105,256 @@ public class Main {
                     showTotalByCategory(expenseTracker);
                     break;
                 case 4:
-                    showTrends(expenseTracker);
+                    showTrends(scanner, expenseTracker);
                     break;
                 case 5:
                     showHighestLowestCategory(expenseTracker);
                     break;
                 case 6:
+                    showMonthlyTrend(expenseTracker);
+                    break;
+                case 7:
+                    importCsv(scanner, expenseTracker);
+                    break;
+                case 8:
+                    exportCsv(scanner, expenseTracker);
+                    break;
+                case 9:
+                    editExpense(scanner, expenseTracker);
+                    break;
+                case 10:
+                    deleteExpense(scanner, expenseTracker);
+                    break;
+                case 11:
+                    System.out.print(metrics.dump());
+                    break;
+                case 12:
                     System.out.println("Thank you for using the Expense Tracker App!");
                     System.out.println("Exiting...");
-                    scanner.close();
                     return;
                 default:
                     System.out.println("Invalid option. Try again.");
                     break;
             }
-
+            // the views only; the other actions mostly wait for input, their tracker calls are timed anyway
+            // (the trend's time includes any wait at its page prompts)
+            if (choice >= 2 && choice <= 6) {
+                metrics.recordAction(VIEW_ACTIONS[choice - 2], System.nanoTime() - started);
+            }
         }
     }
 
     // scanner for user inputs, ExpenseTracker to add Expense
     // Uses simple validity checks
     public static void addExpense(Scanner scanner, ExpenseTracker expenseTracker) {
+        Expense expense = readExpense(scanner);
+        if (expense == null) {
+            return;
+        }
+
+        // add the expense
+        long id = expenseTracker.addExpenseCents(expense.getCategory(), expense.getAmountCents(), expense.getDate());
+        System.out.println("Successfully added expense " + id + ".");
+    }
+
+    // replaces the category, amount and date of an expense picked by its id (shown in the expense trend)
+    public static void editExpense(Scanner scanner, ExpenseTracker expenseTracker) {
+        long id = readExpenseId(scanner, expenseTracker);
+        if (id == Expense.NO_ID) {
+            return;
+        }
+        Expense expense = readExpense(scanner);
+        if (expense == null) {
+            return;
+        }
+        expenseTracker.updateExpenseCents(id, expense.getCategory(), expense.getAmountCents(), expense.getDate());
+        System.out.println("Successfully updated expense " + id + ".");
+    }
+
+    // removes an expense picked by its id (shown in the expense trend)
+    public static void deleteExpense(Scanner scanner, ExpenseTracker expenseTracker) {
+        long id = readExpenseId(scanner, expenseTracker);
+        if (id == Expense.NO_ID) {
+            return;
+        }
+        expenseTracker.removeExpense(id);
+        System.out.println("Successfully deleted expense " + id + ".");
+    }
+
+    // reads the id of an existing expense, or returns NO_ID after telling the user what was wrong
+    private static long readExpenseId(Scanner scanner, ExpenseTracker expenseTracker) {
+        System.out.print("Enter the expense id: ");
+        long id;
+        try {
+            id = Long.parseLong(scanner.nextLine().trim());
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid expense id!");
+            return Expense.NO_ID;
+        }
+        Optional<Expense> expense = expenseTracker.getExpense(id);
+        if (!expense.isPresent()) {
+            System.out.println("No expense with id " + id + "!");
+            return Expense.NO_ID;
+        }
+        System.out.println("Current: " + expense.get().getDate() + " " + expense.get().getCategory() + " "
+            + Money.format(expense.get().getAmountCents()));
+        return id;
+    }
+
+    // reads and checks a category, amount and date, returns null after telling the user what was wrong
+    private static Expense readExpense(Scanner scanner) {
         // get category
         System.out.print("Enter a category: ");
         String category = scanner.nextLine().trim();
         if (category.isEmpty()) {
             System.out.println("Category cannot be empty!");
-            return;
+            return null;
         }
 
         // get amount
+        // parsed straight to cents, so "0.1" is exactly ten cents and more than two decimals are rejected
         System.out.print("Enter an amount: ");
-        if (!scanner.hasNextDouble()) {
+        long amountCents;
+        try {
+            amountCents = Money.parseCents(scanner.nextLine().trim());
+        } catch (NumberFormatException e) {
             System.out.println("Invalid amount!");
-            scanner.nextLine();
-            return;
+            return null;
         }
-        double amount = scanner.nextDouble();
-        scanner.nextLine();
-        if (amount <= 0) {
+        if (amountCents <= 0) {
             System.out.println("Amount must be positive!");
-            return;
+            return null;
         }
 
         // get date
         System.out.print("Enter a date (YYYY-MM-DD): ");
-        String dateInput = scanner.next();
+        String dateInput = scanner.nextLine().trim();
         LocalDate date;
         try {
             date = LocalDate.parse(dateInput);
         } catch (DateTimeParseException e) {
             System.out.println("Invalid date format!");
+            return null;
+        }
+        return Expense.ofCents(category, amountCents, date);
+    }
+
+    // bulk imports a CSV file of category,amount,date rows
+    // rows are checked with the same rules as addExpense, rejected rows are reported and skipped
+    public static void importCsv(Scanner scanner, ExpenseTracker expenseTracker) {
+        System.out.print("Enter the CSV file to import: ");
+        Path file = Paths.get(scanner.nextLine().trim());
+
+        ExpenseCsv.ImportResult result;
+        try {
+            result = ExpenseCsv.importFrom(file, expenseTracker);
+        } catch (IOException e) {
+            System.out.println("Could not read " + file + ": " + e.getMessage());
             return;
         }
 
-        // add the expense
-        expenseTracker.addExpense(category, amount, date);
-        System.out.println("Successfully added expense.");
+        System.out.println("Imported " + result.getImported() + " expenses, rejected " + result.getRejected() + " rows.");
+        List<String> errors = result.getErrors();
+        for (int i = 0; i < Math.min(errors.size(), 10); i++) {
+            System.out.println("  " + errors.get(i));
+        }
+        if (result.getRejected() > 10) {
+            System.out.println("  ...");
+        }
+    }
+
+    // exports every expense to a CSV file of category,amount,date rows
+    public static void exportCsv(Scanner scanner, ExpenseTracker expenseTracker) {
+        System.out.print("Enter the CSV file to export to: ");
+        Path file = Paths.get(scanner.nextLine().trim());
+
+        try {
+            long exported = ExpenseCsv.exportTo(expenseTracker, file);
+            System.out.println("Exported " + exported + " expenses to " + file);
+        } catch (IOException e) {
+            System.out.println("Could not write " + file + ": " + e.getMessage());
+        }
     }
 
     // displays total amount
     public static void showTotal(ExpenseTracker expenseTracker) {
-        double total = expenseTracker.getTotal();
-        System.out.println("Total expenses: " + String.format("%.2f", total));
+        System.out.println("Total expenses: " + Money.format(expenseTracker.getTotalCents()));
     }
 
     // displays totals grouped by category
     public static void showTotalByCategory(ExpenseTracker expenseTracker) {
-        Map<String, Double> totals = expenseTracker.getTotalByCategory();
+        Map<String, Long> totals = expenseTracker.getTotalByCategoryCents();
 
         if (totals.isEmpty()) {
             System.out.println("No expenses recorded yet.");
             return;
         }
-        System.out.println("=== Total Expenses by Category ===");
-        for (Map.Entry<String, Double> entry : totals.entrySet()) {
-            String category = entry.getKey();
-            double amount = entry.getValue();
-            System.out.printf("%-15s : %.2f%n", category, amount);
+        TableRenderer renderer = new TableRenderer(OUT);
+        renderer.text("=== Total Expenses by Category ===").newline();
+        for (Map.Entry<String, Long> entry : totals.entrySet()) {
+            categoryLine(renderer, entry.getKey(), entry.getValue());
         }
+        renderer.flush();
     }
 
-    // displays all expenses sorted by date, oldest to newest
+    // a "category : amount" line, as "%-15s : %.2f" had it
+    private static void categoryLine(TableRenderer renderer, String category, long cents) {
+        renderer.left(category, TableRenderer.CATEGORY_WIDTH).text(" : ");
+        renderer.money(cents, 0).newline();
+    }
+
+    // displays all expenses by date, oldest to newest
     public static void showTrends(ExpenseTracker expenseTracker) {
-        // sort by date
-        List<Expense> expenses = expenseTracker.getExpenses()
-            .stream()
-            .sorted(Comparator.comparing(Expense::getDate))
-            .collect(Collectors.toList());
-
-        // output
-        if (expenses.isEmpty()) {
+        showTrends(null, expenseTracker);
+    }
+
+    // displays expenses by date, oldest to newest, PAGE_ROWS at a time when there is a scanner to ask
+    // whether to go on; the tracker keeps expenses in date order, so a page is rendered straight from it
+    public static void showTrends(Scanner scanner, ExpenseTracker expenseTracker) {
+        int size = expenseTracker.getExpensesByDate().size();
+        if (size == 0) {
+            System.out.println("No expenses recorded yet.");
+            return;
+        }
+
+        TableRenderer renderer = new TableRenderer(OUT);
+        renderer.expenseHeader();
+        boolean paged = scanner != null;
+        for (int from = 0; from < size; from += PAGE_ROWS) {
+            int to = Math.min(size, from + PAGE_ROWS);
+            renderer.expenseRows(expenseTracker, from, to);
+            if (paged && to < size) {
+                renderer.text("-- Shown " + to + " of " + size + ". Enter for more, 'a' for all, 'q' to stop: ");
+                renderer.flush();
+                String answer = scanner.nextLine().trim();
+                if (answer.equalsIgnoreCase("q")) {
+                    return;
+                }
+                paged = !answer.equalsIgnoreCase("a");
+            }
+        }
+        renderer.flush();
+    }
+
+    // displays total expense per month, from the month of the first expense to the month of the last
+    public static void showMonthlyTrend(ExpenseTracker expenseTracker) {
+        Optional<LocalDate> first = expenseTracker.getFirstDate();
+        Optional<LocalDate> last = expenseTracker.getLastDate();
+        if (!first.isPresent() || !last.isPresent()) {
             System.out.println("No expenses recorded yet.");
             return;
         }
 
-        System.out.printf("%-12s | %-15s | %10s%n", "Date", "Category", "Amount");
-        System.out.println("-------------------------------------------");
-        for (Expense expense : expenses) {
-            System.out.printf("%-12s | %-15s | %10.2f%n",
-                expense.getDate(),
-                expense.getCategory(),
-                expense.getAmount());
+        SortedMap<LocalDate, Double> totals =
+            expenseTracker.getTotalsByBucket(TimeBucket.MONTH, first.get(), last.get());
+        TableRenderer renderer = new TableRenderer(OUT);
+        renderer.left("Month", 8).separator().right("Amount", TableRenderer.AMOUNT_WIDTH).newline();
+        renderer.text("---------------------").newline();
+        for (Map.Entry<LocalDate, Double> entry : totals.entrySet()) {
+            renderer.left(YearMonth.from(entry.getKey()).toString(), 8).separator()
+                .money(Money.toCents(entry.getValue()), TableRenderer.AMOUNT_WIDTH).newline();
         }
+        renderer.flush();
     }
 
     // displays category with highest and lowest total expense amounts
@@ -157,9 +365,11 @@ public class Main {
             return;
         }
         CategoryExtreme categoryExtreme = categoryExtremeOpt.get();
-        System.out.println("Category with highest expense:");
-        System.out.printf("%-15s : %.2f%n", categoryExtreme.getHighestCategory(), categoryExtreme.getHighestAmount());
-        System.out.println("Category with lowest expense:");
-        System.out.printf("%-15s : %.2f%n", categoryExtreme.getLowestCategory(), categoryExtreme.getLowestAmount());
+        TableRenderer renderer = new TableRenderer(OUT);
+        renderer.text("Category with highest expense:").newline();
+        categoryLine(renderer, categoryExtreme.getHighestCategory(), categoryExtreme.getHighestAmountCents());
+        renderer.text("Category with lowest expense:").newline();
+        categoryLine(renderer, categoryExtreme.getLowestCategory(), categoryExtreme.getLowestAmountCents());
+        renderer.flush();
     }
 }
\ No newline at end of file
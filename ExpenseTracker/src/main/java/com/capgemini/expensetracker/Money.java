@@ -0,0 +1,89 @@
+package com.capgemini.expensetracker;
+
+// amounts are stored as long cents (minor units), which keeps sums exact and independent of the order
+// they are added in; doubles only appear at the API edges
+public final class Money {
+    // largest amount in units that still converts to cents without overflowing a long
+    private static final double MAX_AMOUNT = Long.MAX_VALUE / 100.0;
+
+    private Money() {
+    }
+
+    // converts an amount in units to cents, rounding to the nearest cent
+    public static long toCents(double amount) {
+        if (Double.isNaN(amount) || Math.abs(amount) >= MAX_AMOUNT) {
+            throw new IllegalArgumentException("Amount out of range: " + amount);
+        }
+        return Math.round(amount * 100);
+    }
+
+    // converts cents to an amount in units
+    public static double toAmount(long cents) {
+        return cents / 100.0;
+    }
+
+    // parses a plain decimal such as "12", "12.5" or "-0.05" into cents
+    // at most two decimals are allowed, so an amount is never silently rounded
+    public static long parseCents(String text) {
+        long cents = parseCents(text.toCharArray(), 0, text.length());
+        if (cents == Long.MIN_VALUE) {
+            throw new NumberFormatException("Not an amount with at most two decimals: \"" + text + "\"");
+        }
+        return cents;
+    }
+
+    // parses chars[start, end) like parseCents(String), returns Long.MIN_VALUE if they are not a valid amount
+    static long parseCents(char[] chars, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (chars[i] == '+' || chars[i] == '-')) {
+            negative = chars[i] == '-';
+            i++;
+        }
+        long units = 0;
+        int unitDigits = 0;
+        for (; i < end && chars[i] >= '0' && chars[i] <= '9'; i++) {
+            if (++unitDigits > 16) {
+                return Long.MIN_VALUE; // would not fit in a long as cents
+            }
+            units = units * 10 + (chars[i] - '0');
+        }
+        long fraction = 0;
+        int fractionDigits = 0;
+        if (i < end && chars[i] == '.') {
+            for (i++; i < end && chars[i] >= '0' && chars[i] <= '9'; i++) {
+                if (++fractionDigits > 2) {
+                    return Long.MIN_VALUE;
+                }
+                fraction = fraction * 10 + (chars[i] - '0');
+            }
+        }
+        if (i != end || unitDigits + fractionDigits == 0) {
+            return Long.MIN_VALUE;
+        }
+        if (fractionDigits == 1) {
+            fraction *= 10;
+        }
+        long cents = units * 100 + fraction;
+        return negative ? -cents : cents;
+    }
+
+    // formats cents with exactly two decimals, e.g. 1250 -> "12.50"
+    public static String format(long cents) {
+        return appendTo(new StringBuilder(24), cents).toString();
+    }
+
+    // appends cents with exactly two decimals, without going through a formatter
+    static StringBuilder appendTo(StringBuilder out, long cents) {
+        if (cents < 0) {
+            out.append('-');
+        }
+        long units = Math.abs(cents / 100);
+        int fraction = (int) Math.abs(cents % 100);
+        out.append(units).append('.');
+        if (fraction < 10) {
+            out.append('0');
+        }
+        return out.append(fraction);
+    }
+}
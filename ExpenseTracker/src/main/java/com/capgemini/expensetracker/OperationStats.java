@@ -0,0 +1,61 @@
+package com.capgemini.expensetracker;
+
+// timings of one instrumented operation, as read from TrackerMetrics (and over JMX)
+// durations are in microseconds; percentiles come from a histogram and are within 25%
+public class OperationStats {
+
+    private final String name;
+    private final long count;
+    private final double meanMicros;
+    private final double p50Micros;
+    private final double p99Micros;
+    private final double maxMicros;
+    private final long allocatedBytesPerCall;
+
+    OperationStats(String name, LatencyHistogram histogram, long allocatedBytes) {
+        this.name = name;
+        this.count = histogram.count();
+        this.meanMicros = count == 0 ? 0.0 : histogram.totalNanos() / 1000.0 / count;
+        this.p50Micros = histogram.percentileNanos(0.5) / 1000.0;
+        this.p99Micros = histogram.percentileNanos(0.99) / 1000.0;
+        this.maxMicros = histogram.maxNanos() / 1000.0;
+        this.allocatedBytesPerCall = allocatedBytes < 0 ? -1 : count == 0 ? 0 : allocatedBytes / count;
+    }
+
+    // getters
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMeanMicros() {
+        return meanMicros;
+    }
+
+    public double getP50Micros() {
+        return p50Micros;
+    }
+
+    public double getP99Micros() {
+        return p99Micros;
+    }
+
+    public double getMaxMicros() {
+        return maxMicros;
+    }
+
+    // average bytes allocated per call, -1 unless the metrics were created to measure allocations
+    public long getAllocatedBytesPerCall() {
+        return allocatedBytesPerCall;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-22s %10d calls  mean %10.2f us  p50 %10.2f us  p99 %10.2f us  max %10.2f us%s",
+                name, count, meanMicros, p50Micros, p99Micros, maxMicros,
+                allocatedBytesPerCall < 0 ? "" : "  " + allocatedBytesPerCall + " B/call");
+    }
+}
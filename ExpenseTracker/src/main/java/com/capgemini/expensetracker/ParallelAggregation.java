@@ -0,0 +1,154 @@
+package com.capgemini.expensetracker;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// fork/join scan of the store's columns into a count, sum, min and max per slot (a category, or one slot for
+// everything), over the live rows a Scan keeps
+//
+// the row range is split in halves until a piece is small enough, each piece folds its rows into its own
+// Partial, and the halves are merged on the way back up. amounts are long cents, so the partial results
+// add up to exactly what a sequential scan gives whatever the split and however the tasks are scheduled.
+// below the threshold, or when the pool has a single worker, the scan stays on the calling thread.
+// ExpenseQuery's SCAN plan runs on it, as do the tracker's rescans
+final class ParallelAggregation extends RecursiveTask<ParallelAggregation.Partial> {
+    private static final long serialVersionUID = 1L;
+
+    static final int SEQUENTIAL_THRESHOLD = 1 << 16;
+
+    // pieces per worker, enough for work stealing to even out without merging a category array per few rows
+    private static final int PIECES_PER_WORKER = 4;
+
+    // fork/join tasks are never serialized, the scan only lives as long as the pool runs the task
+    private final transient Scan scan;
+    private final int from;
+    private final int to;
+    private final int pieceSize;
+
+    // which rows to fold and into which slot: live rows of the selected categories (all when null) with an
+    // amount from minCents to maxCents, each into the slot of its category when byCategory, else slot 0
+    static final class Scan {
+        final ExpenseStore store;
+        final boolean[] selected;
+        final long minCents;
+        final long maxCents;
+        final boolean byCategory;
+        final int slots;
+
+        Scan(ExpenseStore store, boolean[] selected, long minCents, long maxCents, boolean byCategory, int slots) {
+            this.store = store;
+            this.selected = selected;
+            this.minCents = minCents;
+            this.maxCents = maxCents;
+            this.byCategory = byCategory;
+            this.slots = slots;
+        }
+
+        // every live row, by category
+        static Scan byCategory(ExpenseStore store, int categoryCount) {
+            return new Scan(store, null, Long.MIN_VALUE, Long.MAX_VALUE, true, categoryCount);
+        }
+
+        void fold(int from, int to, Partial partial) {
+            boolean anyRemoved = store.liveCount() != store.size();
+            for (int row = from; row < to; row++) {
+                int categoryId = store.categoryIdAt(row);
+                if (selected != null && !selected[categoryId] || anyRemoved && store.isRemoved(row)) {
+                    continue;
+                }
+                long cents = store.amountCentsAt(row);
+                if (cents >= minCents && cents <= maxCents) {
+                    partial.add(byCategory ? categoryId : 0, cents);
+                }
+            }
+        }
+    }
+
+    // count, sum, min and max per slot; min and max are only meaningful where the count is not zero
+    static final class Partial {
+        final long[] counts;
+        final long[] sums;
+        final long[] mins;
+        final long[] maxes;
+
+        Partial(int slots) {
+            counts = new long[slots];
+            sums = new long[slots];
+            mins = new long[slots];
+            maxes = new long[slots];
+        }
+
+        void add(int slot, long cents) {
+            if (counts[slot]++ == 0) {
+                mins[slot] = cents;
+                maxes[slot] = cents;
+            } else if (cents < mins[slot]) {
+                mins[slot] = cents;
+            } else if (cents > maxes[slot]) {
+                maxes[slot] = cents;
+            }
+            sums[slot] += cents;
+        }
+
+        void merge(Partial other) {
+            for (int slot = 0; slot < counts.length; slot++) {
+                if (other.counts[slot] == 0) {
+                    continue;
+                }
+                if (counts[slot] == 0) {
+                    mins[slot] = other.mins[slot];
+                    maxes[slot] = other.maxes[slot];
+                } else {
+                    mins[slot] = Math.min(mins[slot], other.mins[slot]);
+                    maxes[slot] = Math.max(maxes[slot], other.maxes[slot]);
+                }
+                counts[slot] += other.counts[slot];
+                sums[slot] += other.sums[slot];
+            }
+        }
+    }
+
+    private ParallelAggregation(Scan scan, int from, int to, int pieceSize) {
+        this.scan = scan;
+        this.from = from;
+        this.to = to;
+        this.pieceSize = pieceSize;
+    }
+
+    // the scan over every row in the store, on the common pool
+    static Partial aggregate(Scan scan) {
+        return aggregate(scan, ForkJoinPool.commonPool(), SEQUENTIAL_THRESHOLD);
+    }
+
+    static Partial aggregate(Scan scan, ForkJoinPool pool, int threshold) {
+        int rows = scan.store.size();
+        if (rows <= threshold || pool.getParallelism() == 1) {
+            Partial partial = new Partial(scan.slots);
+            scan.fold(0, rows, partial);
+            return partial;
+        }
+        int pieces = pool.getParallelism() * PIECES_PER_WORKER;
+        int pieceSize = Math.max(threshold, (rows + pieces - 1) / pieces);
+        return pool.invoke(new ParallelAggregation(scan, 0, rows, pieceSize));
+    }
+
+    // per-category sums of every row in the store
+    static long[] sumByCategory(ExpenseStore store, int categoryCount, ForkJoinPool pool, int threshold) {
+        return aggregate(Scan.byCategory(store, categoryCount), pool, threshold).sums;
+    }
+
+    @Override
+    protected Partial compute() {
+        if (to - from <= pieceSize) {
+            Partial partial = new Partial(scan.slots);
+            scan.fold(from, to, partial);
+            return partial;
+        }
+        int middle = (from + to) >>> 1;
+        ParallelAggregation left = new ParallelAggregation(scan, from, middle, pieceSize);
+        left.fork();
+        Partial partial = new ParallelAggregation(scan, middle, to, pieceSize).compute();
+        partial.merge(left.join());
+        return partial;
+    }
+}
@@ -0,0 +1,143 @@
+package com.capgemini.expensetracker;
+
+import java.util.Arrays;
+
+// streaming quantiles of amounts in cents with a bounded relative error, in the style of DDSketch
+//
+// values are counted in logarithmic buckets: bucket i holds magnitudes in (gamma^(i-1), gamma^i], and a
+// quantile is answered with the middle of the bucket it falls in, which is within RELATIVE_ACCURACY of
+// every value in that bucket. adding a value is one log and one counter increment, and the whole range
+// of a long needs about 2,100 buckets, so the sketch stays small however many values it has seen.
+// the smallest and largest value added are kept exactly, they answer the 0 and 1 quantiles and bound the rest;
+// values can be removed again, and removing the smallest or largest one falls back to the buckets for both.
+final class QuantileSketch {
+    static final double RELATIVE_ACCURACY = 0.01;
+
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    private final Buckets positive = new Buckets();
+    private final Buckets negative = new Buckets();
+    private long zeroCount;
+    private long count;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+    private boolean exactBounds = true;
+
+    void add(long cents) {
+        if (cents > 0) {
+            positive.increment(index(cents));
+        } else if (cents < 0) {
+            negative.increment(index(-(double) cents));
+        } else {
+            zeroCount++;
+        }
+        count++;
+        min = Math.min(min, cents);
+        max = Math.max(max, cents);
+    }
+
+    // takes out a value that was added before
+    void remove(long cents) {
+        if (cents > 0) {
+            positive.decrement(index(cents));
+        } else if (cents < 0) {
+            negative.decrement(index(-(double) cents));
+        } else if (zeroCount > 0) {
+            zeroCount--;
+        } else {
+            throw new IllegalStateException("No zero value to remove");
+        }
+        count--;
+        if (count == 0) {
+            min = Long.MAX_VALUE;
+            max = Long.MIN_VALUE;
+            exactBounds = true;
+        } else if (cents == min || cents == max) {
+            exactBounds = false;
+        }
+    }
+
+    long count() {
+        return count;
+    }
+
+    // estimated value at the quantile, 0 <= quantile <= 1, in cents; the sketch must not be empty
+    long quantile(double quantile) {
+        long rank = (long) (quantile * (count - 1));
+        if (exactBounds && rank == 0) {
+            return min;
+        }
+        if (exactBounds && rank == count - 1) {
+            return max;
+        }
+        double estimate;
+        if (rank < negative.total) {
+            // the most negative values sit in the highest buckets
+            estimate = -value(negative.indexOfRank(negative.total - 1 - rank));
+        } else if (rank < negative.total + zeroCount) {
+            estimate = 0;
+        } else {
+            estimate = value(positive.indexOfRank(rank - negative.total - zeroCount));
+        }
+        return Math.max(min, Math.min(max, Math.round(estimate)));
+    }
+
+    private static int index(double magnitude) {
+        return (int) Math.ceil(Math.log(magnitude) / LOG_GAMMA);
+    }
+
+    // approximate heap footprint, see ExpenseTracker.estimatedBytes
+    long estimatedBytes() {
+        return 8L * (positive.counts.length + negative.counts.length) + 128;
+    }
+
+    // the value in the middle of bucket index, relative to the bucket's width
+    private static double value(int index) {
+        return 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+    }
+
+    // counts per bucket index over the dense range of indexes seen so far
+    private static final class Buckets {
+        private long[] counts = new long[0];
+        private int offset;
+        private long total;
+
+        void increment(int index) {
+            if (counts.length == 0) {
+                counts = new long[8];
+                offset = index;
+            } else if (index < offset) {
+                int shift = Math.max(offset - index, counts.length / 2);
+                long[] grown = new long[counts.length + shift];
+                System.arraycopy(counts, 0, grown, shift, counts.length);
+                counts = grown;
+                offset -= shift;
+            } else if (index - offset >= counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(index - offset + 1, counts.length * 3 / 2));
+            }
+            counts[index - offset]++;
+            total++;
+        }
+
+        void decrement(int index) {
+            if (index < offset || index - offset >= counts.length || counts[index - offset] == 0) {
+                throw new IllegalStateException("No value in bucket " + index + " to remove");
+            }
+            counts[index - offset]--;
+            total--;
+        }
+
+        // index of the bucket holding the value of the given 0-based rank, counting from the lowest bucket
+        int indexOfRank(long rank) {
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen > rank) {
+                    return i + offset;
+                }
+            }
+            throw new IllegalStateException("Rank " + rank + " is past the " + total + " values counted");
+        }
+    }
+}
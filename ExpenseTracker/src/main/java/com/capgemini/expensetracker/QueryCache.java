@@ -0,0 +1,74 @@
+package com.capgemini.expensetracker;
+
+import java.util.*;
+
+// memoized query results of one tracker, keyed by the query and its parameters
+// every entry remembers the tracker's version when it was computed; the tracker bumps its version on every
+// change, so an entry is served as long as the version still matches and recomputed on the first call after
+// a change. nothing has to be invalidated on write, stale entries are simply overwritten or age out of the
+// bounded least recently used map. cached results are shared between callers, so they must be immutable
+final class QueryCache {
+    static final int DEFAULT_CAPACITY = 64;
+
+    private final LinkedHashMap<Object, CachedResult> entries;
+    private long hits;
+    private long misses;
+
+    private static final class CachedResult {
+        final long version;
+        final Object value;
+
+        CachedResult(long version, Object value) {
+            this.version = version;
+            this.value = value;
+        }
+    }
+
+    QueryCache(int capacity) {
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, CachedResult> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    // the result cached for the query if it was computed at this version, null if it has to be recomputed
+    @SuppressWarnings("unchecked")
+    <T> T get(Object key, long version) {
+        CachedResult cached = entries.get(key);
+        if (cached != null && cached.version == version) {
+            hits++;
+            return (T) cached.value;
+        }
+        misses++;
+        return null;
+    }
+
+    // caches the result of the query as computed at this version and returns it
+    <T> T put(Object key, long version, T value) {
+        entries.put(key, new CachedResult(version, value));
+        return value;
+    }
+
+    // approximate heap footprint of the cached results, from their sizes; O(entries)
+    long estimatedBytes() {
+        long bytes = 64;
+        for (CachedResult cached : entries.values()) {
+            // the map entry, the key and the holder
+            bytes += 96;
+            if (cached.value instanceof Map) {
+                bytes += 48 + 64L * ((Map<?, ?>) cached.value).size();
+            } else if (cached.value instanceof Collection) {
+                bytes += 48 + 40L * ((Collection<?>) cached.value).size();
+            } else {
+                bytes += 32;
+            }
+        }
+        return bytes;
+    }
+
+    CacheStats stats() {
+        return new CacheStats(hits, misses, entries.size());
+    }
+}
@@ -0,0 +1,108 @@
+package com.capgemini.expensetracker;
+
+import java.time.YearMonth;
+import java.util.*;
+
+// one group of an ExpenseQuery result: its category and/or month, depending on the grouping, and the
+// aggregates of the expenses in it. asking for an aggregate the query did not request is an error
+public class QueryRow {
+
+    private final String category;
+    private final YearMonth month;
+    private final Set<ExpenseQuery.Aggregate> aggregates;
+    private final long count;
+    private final long sumCents;
+    private final long minCents;
+    private final long maxCents;
+
+    QueryRow(String category, YearMonth month, Set<ExpenseQuery.Aggregate> aggregates,
+             long count, long sumCents, long minCents, long maxCents) {
+        this.category = category;
+        this.month = month;
+        this.aggregates = aggregates;
+        this.count = count;
+        this.sumCents = sumCents;
+        this.minCents = minCents;
+        this.maxCents = maxCents;
+    }
+
+    // getters
+    // null unless grouped by category
+    public String getCategory() {
+        return category;
+    }
+
+    // null unless grouped by month
+    public YearMonth getMonth() {
+        return month;
+    }
+
+    public long getCount() {
+        check(ExpenseQuery.Aggregate.COUNT);
+        return count;
+    }
+
+    public double getSum() {
+        return Money.toAmount(getSumCents());
+    }
+
+    public long getSumCents() {
+        check(ExpenseQuery.Aggregate.SUM);
+        return sumCents;
+    }
+
+    // min, max and average are empty for a group without expenses, which only an ungrouped query returns
+    public OptionalDouble getMin() {
+        OptionalLong cents = getMinCents();
+        return cents.isPresent() ? OptionalDouble.of(Money.toAmount(cents.getAsLong())) : OptionalDouble.empty();
+    }
+
+    public OptionalLong getMinCents() {
+        check(ExpenseQuery.Aggregate.MIN);
+        return count == 0 ? OptionalLong.empty() : OptionalLong.of(minCents);
+    }
+
+    public OptionalDouble getMax() {
+        OptionalLong cents = getMaxCents();
+        return cents.isPresent() ? OptionalDouble.of(Money.toAmount(cents.getAsLong())) : OptionalDouble.empty();
+    }
+
+    public OptionalLong getMaxCents() {
+        check(ExpenseQuery.Aggregate.MAX);
+        return count == 0 ? OptionalLong.empty() : OptionalLong.of(maxCents);
+    }
+
+    public OptionalDouble getAverage() {
+        check(ExpenseQuery.Aggregate.AVG);
+        return count == 0 ? OptionalDouble.empty() : OptionalDouble.of(sumCents / 100.0 / count);
+    }
+
+    private void check(ExpenseQuery.Aggregate aggregate) {
+        if (!aggregates.contains(aggregate)) {
+            throw new IllegalStateException(aggregate + " was not requested by the query");
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        if (category != null) {
+            out.append(category).append(' ');
+        }
+        if (month != null) {
+            out.append(month).append(' ');
+        }
+        for (ExpenseQuery.Aggregate aggregate : aggregates) {
+            out.append(aggregate.name().toLowerCase()).append('=');
+            switch (aggregate) {
+                case COUNT -> out.append(count);
+                case SUM -> Money.appendTo(out, sumCents);
+                case MIN -> out.append(count == 0 ? "-" : Money.format(minCents));
+                case MAX -> out.append(count == 0 ? "-" : Money.format(maxCents));
+                case AVG -> out.append(count == 0 ? "-" : String.valueOf(getAverage().getAsDouble()));
+            }
+            out.append(' ');
+        }
+        return out.toString().trim();
+    }
+}
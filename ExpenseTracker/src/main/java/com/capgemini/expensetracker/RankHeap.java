@@ -0,0 +1,114 @@
+package com.capgemini.expensetracker;
+
+import java.util.Arrays;
+import java.util.function.IntToLongFunction;
+
+// bounded heap that keeps the best capacity ids by a long score, without boxing or sorting everything
+// the worst kept id sits at the root, so offering an id that does not make the cut is a single comparison.
+// equal scores rank the lower id first, which keeps rankings stable in insertion order
+final class RankHeap {
+    private final int capacity;
+    private final boolean highest;
+    private final IntToLongFunction score;
+    private int[] heap;
+    private int size;
+
+    // highest: true keeps the largest scores, false the smallest
+    RankHeap(int capacity, boolean highest, IntToLongFunction score) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative");
+        }
+        this.capacity = capacity;
+        this.highest = highest;
+        this.score = score;
+        this.heap = new int[Math.min(capacity, 16)];
+    }
+
+    int size() {
+        return size;
+    }
+
+    // keeps the id if it ranks among the best capacity ids offered so far
+    void offer(int id) {
+        if (size < capacity) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, (int) Math.min((long) size * 2, capacity));
+            }
+            heap[size] = id;
+            siftUp(heap, size++);
+        } else if (capacity > 0 && ranksBefore(id, heap[0])) {
+            heap[0] = id;
+            siftDown(heap, 0, size);
+        }
+    }
+
+    // true if the id is among the kept ones, a linear search
+    boolean contains(int id) {
+        for (int i = 0; i < size; i++) {
+            if (heap[i] == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // forgets every id
+    void clear() {
+        size = 0;
+    }
+
+    // the kept ids, best first; the heap itself is left as it is
+    int[] ranked() {
+        int[] sorted = Arrays.copyOf(heap, size);
+        // heap sort: move the worst remaining id to the back until the heap is empty
+        for (int end = size - 1; end > 0; end--) {
+            int worst = sorted[0];
+            sorted[0] = sorted[end];
+            sorted[end] = worst;
+            siftDown(sorted, 0, end);
+        }
+        return sorted;
+    }
+
+    private boolean ranksBefore(int a, int b) {
+        long scoreA = score.applyAsLong(a);
+        long scoreB = score.applyAsLong(b);
+        if (scoreA != scoreB) {
+            return highest ? scoreA > scoreB : scoreA < scoreB;
+        }
+        return a < b;
+    }
+
+    // the root holds the id that ranks last
+    private void siftUp(int[] ids, int index) {
+        int id = ids[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!ranksBefore(ids[parent], id)) {
+                break;
+            }
+            ids[index] = ids[parent];
+            index = parent;
+        }
+        ids[index] = id;
+    }
+
+    private void siftDown(int[] ids, int index, int end) {
+        int id = ids[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= end) {
+                break;
+            }
+            if (child + 1 < end && ranksBefore(ids[child], ids[child + 1])) {
+                child++;
+            }
+            if (!ranksBefore(id, ids[child])) {
+                break;
+            }
+            ids[index] = ids[child];
+            index = child;
+        }
+        ids[index] = id;
+    }
+}
@@ -0,0 +1,82 @@
+package com.capgemini.expensetracker;
+
+import java.util.*;
+
+// the heaviest keys by sum of non-negative amounts, tracked in a fixed number of slots (Metwally et al.)
+//
+// a key that has a slot adds to it; a new key takes a free slot or else evicts the key with the smallest sum
+// and starts from that sum, remembering it as its possible overcount. so a slot's sum never undercounts its key
+// and overcounts by at most its recorded error, which is at most total / slots; every key whose true sum is
+// above total / slots is guaranteed to hold a slot. the slot with the smallest sum sits at the root of a min-heap,
+// so an update is O(log slots)
+final class SpaceSaving {
+    private final String[] keys;
+    private final long[] sums;
+    private final long[] errors;
+    private final Map<String, Integer> slots;
+    private final IndexedHeap smallest;
+    private int used;
+    private long total;
+
+    SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        keys = new String[capacity];
+        sums = new long[capacity];
+        errors = new long[capacity];
+        slots = new HashMap<>(capacity * 2);
+        smallest = new IndexedHeap(false, slot -> sums[slot]);
+    }
+
+    void add(String key, long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Amount must not be negative: " + amount);
+        }
+        total += amount;
+        Integer slot = slots.get(key);
+        if (slot == null) {
+            if (used < keys.length) {
+                slot = used++;
+                smallest.add(slot);
+            } else {
+                slot = smallest.peek();
+                slots.remove(keys[slot]);
+                errors[slot] = sums[slot];
+            }
+            keys[slot] = key;
+            slots.put(key, slot);
+        }
+        sums[slot] += amount;
+        smallest.changed(slot);
+    }
+
+    boolean contains(String key) {
+        return slots.containsKey(key);
+    }
+
+    // an upper bound of the key's sum, or -1 when it holds no slot (its sum is then at most minimum())
+    long upperBound(String key) {
+        Integer slot = slots.get(key);
+        return slot == null ? -1 : sums[slot];
+    }
+
+    // the smallest sum held, which bounds the sum of every key without a slot; 0 while slots are free
+    long minimum() {
+        return used < keys.length ? 0 : sums[smallest.peek()];
+    }
+
+    // the keys that hold a slot
+    List<String> keys() {
+        return Arrays.asList(keys).subList(0, used);
+    }
+
+    long total() {
+        return total;
+    }
+
+    long estimatedBytes() {
+        // a slot holds a key reference, two longs and a map entry; the key strings themselves are not counted
+        return keys.length * (4L + 16 + 48 + 8) + 128;
+    }
+}
@@ -0,0 +1,216 @@
+package com.capgemini.expensetracker;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.LocalDate;
+
+// fixed-width text tables for the CLI, built in a char buffer and written out in large chunks
+//
+// printf parses its format string for every line and a PrintStream takes its lock and flushes for every line;
+// here each column is appended straight into the buffer (money and ids digit by digit, dates from a cache of the
+// last day, since rows in date order mostly repeat it), and the writer only sees one write per full buffer.
+// expense rows are read from the store columns, so rendering creates no Expense objects either.
+// nothing is truncated: like %-15s, a longer value pushes the rest of its line to the right
+final class TableRenderer {
+    static final int BUFFER_CHARS = 64 * 1024;
+
+    // the column widths of the expense table, as the printf version had them
+    static final int ID_WIDTH = 6;
+    static final int DATE_WIDTH = 12;
+    static final int CATEGORY_WIDTH = 15;
+    static final int AMOUNT_WIDTH = 10;
+
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final Writer out;
+    private final char[] buffer = new char[BUFFER_CHARS];
+    private int length;
+    private final char[] digits = new char[24];
+    private final char[] cachedDate = new char[10];
+    private int cachedDay = Integer.MIN_VALUE;
+    private String cachedDateText;
+
+    TableRenderer(Writer out) {
+        this.out = out;
+    }
+
+    // the header of the expense table
+    TableRenderer expenseHeader() {
+        return left("Id", ID_WIDTH).separator().left("Date", DATE_WIDTH).separator()
+                .left("Category", CATEGORY_WIDTH).separator().right("Amount", AMOUNT_WIDTH).newline()
+                .text("----------------------------------------------------").newline();
+    }
+
+    // the expenses at positions [from, to) of the date order, one line each
+    TableRenderer expenseRows(ExpenseTracker tracker, int from, int to) {
+        ExpenseStore store = tracker.store();
+        DateOrderIndex dateOrder = tracker.dateOrder();
+        CategoryDictionary categories = tracker.categories();
+        for (int position = from; position < to; position++) {
+            int row = dateOrder.rowAt(position);
+            number(row, ID_WIDTH).separator()
+                    .date(store.epochDayAt(row), DATE_WIDTH).separator()
+                    .left(categories.name(store.categoryIdAt(row)), CATEGORY_WIDTH).separator()
+                    .money(store.amountCentsAt(row), AMOUNT_WIDTH).newline();
+        }
+        return this;
+    }
+
+    // null is written as "null", like %s (a null category is accepted by addExpense)
+    TableRenderer text(String text) {
+        String value = String.valueOf(text);
+        int count = value.length();
+        if (count > buffer.length - length) {
+            flush();
+            if (count > buffer.length) {
+                write(value);
+                return this;
+            }
+        }
+        value.getChars(0, count, buffer, length);
+        length += count;
+        return this;
+    }
+
+    // text padded with spaces on the right to width
+    TableRenderer left(String text, int width) {
+        String value = String.valueOf(text);
+        return text(value).spaces(width - value.length());
+    }
+
+    // text padded with spaces on the left to width
+    TableRenderer right(String text, int width) {
+        String value = String.valueOf(text);
+        return spaces(width - value.length()).text(value);
+    }
+
+    TableRenderer separator() {
+        return text(" | ");
+    }
+
+    TableRenderer newline() {
+        return text(LINE_SEPARATOR);
+    }
+
+    TableRenderer spaces(int count) {
+        for (int i = 0; i < count; i++) {
+            append(' ');
+        }
+        return this;
+    }
+
+    // a whole number, left aligned like %-6d
+    TableRenderer number(long value, int width) {
+        int start = digits(value, digits.length);
+        chars(start);
+        return spaces(width - (digits.length - start));
+    }
+
+    // cents with two decimals, right aligned like %10.2f
+    TableRenderer money(long cents, int width) {
+        int end = digits.length;
+        int fraction = (int) Math.abs(cents % 100);
+        digits[--end] = (char) ('0' + fraction % 10);
+        digits[--end] = (char) ('0' + fraction / 10);
+        digits[--end] = '.';
+        int start = digits(Math.abs(cents / 100), end);
+        if (cents < 0) {
+            digits[--start] = '-';
+        }
+        spaces(width - (digits.length - start));
+        chars(start);
+        return this;
+    }
+
+    // an ISO date, left aligned like %-12s
+    TableRenderer date(int epochDay, int width) {
+        if (epochDay != cachedDay) {
+            cachedDay = epochDay;
+            LocalDate date = LocalDate.ofEpochDay(epochDay);
+            int year = date.getYear();
+            if (year >= 0 && year <= 9999) {
+                cachedDateText = null;
+                put4(cachedDate, 0, year);
+                cachedDate[4] = '-';
+                put2(cachedDate, 5, date.getMonthValue());
+                cachedDate[7] = '-';
+                put2(cachedDate, 8, date.getDayOfMonth());
+            } else {
+                cachedDateText = date.toString();
+            }
+        }
+        if (cachedDateText != null) {
+            return left(cachedDateText, width);
+        }
+        for (char c : cachedDate) {
+            append(c);
+        }
+        return spaces(width - cachedDate.length);
+    }
+
+    // writes out everything rendered so far
+    void flush() {
+        if (length > 0) {
+            try {
+                out.write(buffer, 0, length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            length = 0;
+        }
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void write(String text) {
+        try {
+            out.write(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void append(char c) {
+        if (length == buffer.length) {
+            flush();
+        }
+        buffer[length++] = c;
+    }
+
+    // writes the digits of value so they end before end, returns where they start
+    private int digits(long value, int end) {
+        int start = end;
+        if (value < 0) {
+            // not needed for ids and money, but Long.MIN_VALUE has no positive counterpart to take digits from
+            String text = Long.toString(value);
+            start -= text.length();
+            text.getChars(0, text.length(), digits, start);
+            return start;
+        }
+        do {
+            digits[--start] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        return start;
+    }
+
+    private void chars(int start) {
+        for (int i = start; i < digits.length; i++) {
+            append(digits[i]);
+        }
+    }
+
+    private static void put4(char[] chars, int at, int value) {
+        put2(chars, at, value / 100);
+        put2(chars, at + 2, value % 100);
+    }
+
+    private static void put2(char[] chars, int at, int value) {
+        chars[at] = (char) ('0' + value / 10);
+        chars[at + 1] = (char) ('0' + value % 10);
+    }
+}
@@ -0,0 +1,36 @@
+package com.capgemini.expensetracker;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+// granularity for bucketed totals; weeks start on Monday
+public enum TimeBucket {
+    DAY,
+    WEEK,
+    MONTH;
+
+    // returns the first day of the bucket containing date
+    public LocalDate start(LocalDate date) {
+        switch (this) {
+            case WEEK:
+                return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH:
+                return date.withDayOfMonth(1);
+            default:
+                return date;
+        }
+    }
+
+    // returns the first day of the bucket after the one starting at bucketStart
+    public LocalDate next(LocalDate bucketStart) {
+        switch (this) {
+            case WEEK:
+                return bucketStart.plusWeeks(1);
+            case MONTH:
+                return bucketStart.plusMonths(1);
+            default:
+                return bucketStart.plusDays(1);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.capgemini.expensetracker;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// optional metrics of one ExpenseTracker: a call count and latency histogram per operation, memory gauges
+// for the expense store and the categories, and optionally the bytes each operation allocates
+//
+// a tracker without metrics pays one null check per operation. with metrics attached an operation costs
+// two System.nanoTime calls and a few plain increments, since like the tracker the operations are only
+// recorded from one thread; measuring allocations adds two reads of the thread's allocation counter, so it
+// is off unless asked for. everything can be read from another thread, over JMX once registered, or as
+// text with dump()
+public class TrackerMetrics implements TrackerMetricsMXBean {
+
+    // the instrumented tracker operations
+    public enum Operation {
+        ADD_EXPENSE, ADD_EXPENSES, UPDATE_EXPENSE, REMOVE_EXPENSE,
+        TOTAL_BY_CATEGORY, CATEGORY_EXTREMES, CATEGORY_RANKING, LARGEST_EXPENSES, AMOUNT_QUANTILE,
+        TOTAL_BETWEEN, TOTALS_BY_BUCKET, QUERY
+    }
+
+    private static final String DOMAIN = "com.capgemini.expensetracker";
+
+    private final LatencyHistogram[] operations = new LatencyHistogram[Operation.values().length];
+    private final LongAdder[] allocatedBytes = new LongAdder[Operation.values().length];
+    // synchronized on itself, so actions may be recorded from any thread
+    private final Map<String, LatencyHistogram> actions = new TreeMap<>();
+    private final com.sun.management.ThreadMXBean allocationCounter;
+    // allocation counter readings of the operations in progress on the tracker's thread, innermost last
+    private final long[] allocationStarts = new long[8];
+    private int depth;
+
+    private volatile ExpenseTracker tracker;
+    private ObjectName registeredName;
+
+    public TrackerMetrics() {
+        this(false);
+    }
+
+    // measureAllocations: also record the bytes each operation allocates, where the JVM can tell
+    public TrackerMetrics(boolean measureAllocations) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (measureAllocations && threads instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()) {
+            allocationCounter = (com.sun.management.ThreadMXBean) threads;
+            allocationCounter.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            allocationCounter = null;
+        }
+        for (int i = 0; i < operations.length; i++) {
+            operations[i] = new LatencyHistogram();
+            allocatedBytes[i] = new LongAdder();
+        }
+    }
+
+    // called by ExpenseTracker.setMetrics, the gauges read this tracker
+    void attach(ExpenseTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    // start and stop bracket one operation on the tracker's thread; start returns the value to pass to stop
+    long start() {
+        if (allocationCounter != null && depth < allocationStarts.length) {
+            allocationStarts[depth] = allocationCounter.getCurrentThreadAllocatedBytes();
+        }
+        depth++;
+        return System.nanoTime();
+    }
+
+    void stop(Operation operation, long start) {
+        long nanos = System.nanoTime() - start;
+        depth--;
+        operations[operation.ordinal()].record(nanos);
+        if (allocationCounter != null && depth < allocationStarts.length) {
+            allocatedBytes[operation.ordinal()].add(allocationCounter.getCurrentThreadAllocatedBytes() - allocationStarts[depth]);
+        }
+    }
+
+    // records the duration of anything else worth watching, such as a menu action, under its name
+    public void recordAction(String name, long nanos) {
+        synchronized (actions) {
+            actions.computeIfAbsent(name, key -> new LatencyHistogram()).record(nanos);
+        }
+    }
+
+    public OperationStats getStats(Operation operation) {
+        return new OperationStats(operation.name(), operations[operation.ordinal()],
+                allocationCounter == null ? -1 : allocatedBytes[operation.ordinal()].sum());
+    }
+
+    @Override
+    public List<OperationStats> getOperations() {
+        List<OperationStats> stats = new ArrayList<>();
+        for (Operation operation : Operation.values()) {
+            stats.add(getStats(operation));
+        }
+        synchronized (actions) {
+            for (Map.Entry<String, LatencyHistogram> action : actions.entrySet()) {
+                stats.add(new OperationStats(action.getKey(), action.getValue(), -1));
+            }
+        }
+        return stats;
+    }
+
+    // gauges, 0 while no tracker is attached
+    @Override
+    public int getExpenseCount() {
+        ExpenseTracker current = tracker;
+        return current == null ? 0 : current.store().liveCount();
+    }
+
+    @Override
+    public int getCategoryCount() {
+        ExpenseTracker current = tracker;
+        return current == null ? 0 : current.categories().size();
+    }
+
+    @Override
+    public long getStoreBytes() {
+        ExpenseTracker current = tracker;
+        return current == null ? 0 : current.storeEstimatedBytes();
+    }
+
+    @Override
+    public long getCategoryBytes() {
+        ExpenseTracker current = tracker;
+        return current == null ? 0 : current.categoryEstimatedBytes();
+    }
+
+    @Override
+    public double getQueryCacheHitRate() {
+        ExpenseTracker current = tracker;
+        return current == null ? 0.0 : current.getQueryCacheStats().getHitRate();
+    }
+
+    // forgets every recorded timing and allocation, the gauges are unaffected
+    @Override
+    public void reset() {
+        for (int i = 0; i < operations.length; i++) {
+            operations[i] = new LatencyHistogram();
+            allocatedBytes[i].reset();
+        }
+        synchronized (actions) {
+            actions.clear();
+        }
+    }
+
+    // registers the metrics with the platform MBean server under com.capgemini.expensetracker:type=TrackerMetrics
+    public synchronized void register(String name) throws JMException {
+        if (registeredName != null) {
+            throw new IllegalStateException("Metrics are already registered as " + registeredName);
+        }
+        ObjectName objectName = new ObjectName(DOMAIN + ":type=TrackerMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        registeredName = objectName;
+    }
+
+    public synchronized void unregister() throws JMException {
+        if (registeredName == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.unregisterMBean(registeredName);
+        registeredName = null;
+    }
+
+    // every gauge and every operation that has been called, one per line
+    public String dump() {
+        StringBuilder out = new StringBuilder();
+        out.append("Expenses: ").append(getExpenseCount())
+                .append(", categories: ").append(getCategoryCount()).append('\n');
+        out.append("Memory: store ~").append(getStoreBytes() / 1024)
+                .append(" KB, categories ~").append(getCategoryBytes() / 1024).append(" KB\n");
+        out.append(String.format("Query cache hit rate: %.1f%%%n", getQueryCacheHitRate() * 100));
+        for (OperationStats stats : getOperations()) {
+            if (stats.getCount() > 0) {
+                out.append(stats).append('\n');
+            }
+        }
+        return out.toString();
+    }
+}
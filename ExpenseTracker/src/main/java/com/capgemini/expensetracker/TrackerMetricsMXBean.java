@@ -0,0 +1,22 @@
+package com.capgemini.expensetracker;
+
+import java.util.List;
+
+// what TrackerMetrics shows over JMX, e.g. in JConsole under com.capgemini.expensetracker
+public interface TrackerMetricsMXBean {
+    int getExpenseCount();
+
+    int getCategoryCount();
+
+    // approximate heap footprint of the expense columns and date index, and of everything kept per category
+    long getStoreBytes();
+
+    long getCategoryBytes();
+
+    double getQueryCacheHitRate();
+
+    // timings of the tracker operations and of any actions recorded with recordAction
+    List<OperationStats> getOperations();
+
+    void reset();
+}
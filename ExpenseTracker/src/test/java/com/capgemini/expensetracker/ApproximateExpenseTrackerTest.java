@@ -0,0 +1,120 @@
+package com.capgemini.expensetracker;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ApproximateExpenseTrackerTest {
+    private static final LocalDate DATE = LocalDate.of(2025, 12, 13);
+
+    // free-text categories with a long tail: a few hundred busy ones and many seen only a handful of times
+    private void feed(ExpenseTracker exact, ApproximateExpenseTracker approximate, int count, int cardinality) {
+        Random random = new Random(42);
+        for (int i = 0; i < count; i++) {
+            int id = random.nextInt(4) == 0 ? random.nextInt(cardinality) : random.nextInt(random.nextInt(500) + 1);
+            String category = "Category" + id;
+            long cents = 100 + random.nextInt(20_000);
+            LocalDate date = DATE.minusDays(random.nextInt(365));
+            exact.addExpenseCents(category, cents, date);
+            approximate.addExpenseCents(category, cents, date);
+        }
+    }
+
+    @Test
+    void testEstimatesAreWithinBounds() {
+        ExpenseTracker exact = new ExpenseTracker();
+        ApproximateExpenseTracker approximate = new ApproximateExpenseTracker();
+        feed(exact, approximate, 300_000, 200_000);
+
+        assertEquals(exact.getTotalCents(), approximate.getTotalCents());
+        assertEquals(300_000, approximate.getExpenseCount());
+        assertEquals(exact.getTotalBetween(DATE.minusDays(40), DATE.minusDays(10)),
+                approximate.getTotalBetween(DATE.minusDays(40), DATE.minusDays(10)), 0.0);
+
+        Map<String, Long> totals = exact.getTotalByCategoryCents();
+        long bound = approximate.getOverestimateBoundCents();
+        int outside = 0;
+        for (Map.Entry<String, Long> entry : totals.entrySet()) {
+            long estimate = approximate.getEstimatedTotalCents(entry.getKey());
+            assertTrue(estimate >= entry.getValue(), "Estimates of positive amounts never fall short");
+            if (estimate > entry.getValue() + bound) {
+                outside++;
+            }
+        }
+        assertTrue(outside <= totals.size() * approximate.getErrorProbability(),
+                outside + " of " + totals.size() + " estimates are past the bound");
+
+        long distinct = approximate.getDistinctCategoryCount();
+        assertEquals(totals.size(), distinct, totals.size() * 4 * approximate.getDistinctCountStandardError());
+    }
+
+    @Test
+    void testHeavyHittersAreFound() {
+        ExpenseTracker exact = new ExpenseTracker();
+        ApproximateExpenseTracker approximate = new ApproximateExpenseTracker(256, 8192, 5, 14);
+        feed(exact, approximate, 300_000, 200_000);
+
+        Map<String, Double> heavy = approximate.getTotalByCategory();
+        assertTrue(heavy.size() <= 256);
+        long threshold = exact.getTotalCents() / 256;
+        exact.getTotalByCategoryCents().forEach((category, cents) -> {
+            if (cents > threshold) {
+                assertTrue(heavy.containsKey(category), category + " is above 1/256 of the total");
+            }
+        });
+
+        List<CategoryRank> exactTop = exact.getTopCategories(10);
+        List<CategoryRank> approximateTop = approximate.getTopCategories(10);
+        assertEquals(10, approximateTop.size());
+        for (int i = 0; i < 10; i++) {
+            // neighbours in the exact ranking may swap places, but not by more than the error bound
+            long difference = Math.abs(exactTop.get(i).getAmountCents() - approximateTop.get(i).getAmountCents());
+            assertTrue(difference <= approximate.getOverestimateBoundCents(), "Rank " + (i + 1) + " differs by " + difference);
+        }
+    }
+
+    @Test
+    void testMemoryDoesNotGrowWithCategories() {
+        ApproximateExpenseTracker approximate = new ApproximateExpenseTracker();
+        approximate.addExpense("Food", 1.0, DATE);
+        long before = approximate.estimatedBytes();
+        for (int i = 0; i < 100_000; i++) {
+            approximate.addExpense("Category" + i, 1.0, DATE);
+        }
+        assertEquals(before, approximate.estimatedBytes());
+        assertTrue(before < 1024 * 1024, "Defaults should stay under 1 MB: " + before);
+    }
+
+    @Test
+    void testRefundsAreSubtracted() {
+        ApproximateExpenseTracker approximate = new ApproximateExpenseTracker();
+        approximate.addExpense("Food", 12.50, DATE);
+        approximate.addExpense("Food", -2.50, DATE);
+        approximate.addExpense("Rent", 800.00, DATE);
+        assertEquals(10.0, approximate.getEstimatedTotal("Food"), 0.0);
+        assertEquals(810.0, approximate.getTotal(), 0.0);
+        assertEquals(0.0, approximate.getEstimatedTotal("Travel"), 0.0);
+        assertEquals(2, approximate.getDistinctCategoryCount());
+        assertEquals("Rent", approximate.getTopCategories(1).get(0).getCategory());
+    }
+
+    @Test
+    void testSketches() {
+        HyperLogLog small = new HyperLogLog(14);
+        for (int i = 0; i < 1000; i++) {
+            small.add(ApproximateExpenseTracker.hash("key" + (i % 100)));
+        }
+        assertEquals(100, small.estimate(), 1, "Small counts come from linear counting");
+
+        SpaceSaving slots = new SpaceSaving(2);
+        slots.add("a", 10);
+        slots.add("b", 1);
+        slots.add("c", 2);
+        assertEquals(List.of("a", "c"), slots.keys().stream().sorted().toList());
+        assertEquals(3, slots.upperBound("c"), "c starts from the evicted b's sum");
+        assertThrows(IllegalArgumentException.class, () -> slots.add("a", -1));
+    }
+}
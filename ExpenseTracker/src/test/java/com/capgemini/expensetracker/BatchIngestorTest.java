@@ -0,0 +1,200 @@
+package com.capgemini.expensetracker;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchIngestorTest {
+    private static final LocalDate DATE = LocalDate.of(2025, 12, 13);
+    private static final String[] CATEGORIES = {"Food", "Transport", "Entertainment", "Rent", "Health"};
+
+    private ExpenseBatch batch(int rows, String category, long cents) {
+        ExpenseBatch batch = new ExpenseBatch(rows);
+        for (int i = 0; i < rows; i++) {
+            batch.addCents(category, cents, DATE.minusDays(i % 30));
+        }
+        return batch;
+    }
+
+    @Test
+    void testManyProducersAreAllApplied() throws Exception {
+        int producers = 8;
+        int batchesPerProducer = 200;
+        int rowsPerBatch = 50;
+        ExpenseTracker tracker = new ExpenseTracker();
+        ExecutorService pool = Executors.newFixedThreadPool(producers);
+        try (BatchIngestor ingestor = new BatchIngestor(tracker, 4, 4096)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                int producer = p;
+                futures.add(pool.submit(() -> {
+                    for (int b = 0; b < batchesPerProducer; b++) {
+                        ingestor.submit(batch(rowsPerBatch, CATEGORIES[producer % CATEGORIES.length], producer + 1));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+            ingestor.flush();
+
+            long rows = (long) producers * batchesPerProducer * rowsPerBatch;
+            assertEquals(rows, ingestor.getAppliedRows());
+            assertEquals(producers * batchesPerProducer, ingestor.getAppliedBatches());
+            assertTrue(ingestor.getMergedBatches() <= ingestor.getAppliedBatches());
+            long expectedTotal = 0;
+            for (int p = 0; p < producers; p++) {
+                expectedTotal += (long) batchesPerProducer * rowsPerBatch * (p + 1);
+            }
+            assertEquals(expectedTotal, ingestor.read(ExpenseTracker::getTotalCents));
+            int stored = ingestor.read(t -> t.getExpensesByDate().size());
+            assertEquals(rows, stored);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testFullQueuePushesBack() throws Exception {
+        ExpenseTracker tracker = new ExpenseTracker();
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try (BatchIngestor ingestor = new BatchIngestor(tracker, 1, 1024)) {
+            // a slow query holds the tracker, so the writer cannot add what it takes from the queue
+            CountDownLatch querying = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            Future<?> query = pool.submit(() -> ingestor.read(t -> {
+                querying.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return null;
+            }));
+            querying.await();
+
+            int accepted = 1;
+            try {
+                ingestor.submit(batch(10, "Food", 100));
+                // the writer takes what is queued and blocks on the tracker, after which the one slot stays full
+                // and an offer times out; how many batches it took first depends on scheduling
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+                while (ingestor.offer(batch(10, "Food", 100), 50, TimeUnit.MILLISECONDS)) {
+                    accepted++;
+                    assertTrue(System.nanoTime() < deadline, "A full queue should turn batches away");
+                }
+            } finally {
+                // close waits for the writer, which waits for the query
+                release.countDown();
+            }
+            query.get(10, TimeUnit.SECONDS);
+            ingestor.flush();
+            assertEquals(10L * accepted, ingestor.getAppliedRows());
+            assertEquals(1000L * accepted, tracker.getTotalCents());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testQueriesSeeWholeBatches() throws Exception {
+        int rowsPerBatch = 100;
+        ExpenseTracker tracker = new ExpenseTracker();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try (BatchIngestor ingestor = new BatchIngestor(tracker, 8, 1000)) {
+            Future<Integer> reader = pool.submit(() -> {
+                int reads = 0;
+                while (writing.get()) {
+                    long total = ingestor.read(ExpenseTracker::getTotalCents);
+                    assertEquals(0, total % rowsPerBatch, "A query should never see part of a batch");
+                    reads++;
+                }
+                return reads;
+            });
+            for (int b = 0; b < 500; b++) {
+                ingestor.submit(batch(rowsPerBatch, CATEGORIES[b % CATEGORIES.length], 1));
+            }
+            ingestor.flush();
+            writing.set(false);
+            assertTrue(reader.get(10, TimeUnit.SECONDS) > 0);
+            assertEquals(500 * rowsPerBatch, tracker.getTotalCents());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testCloseAppliesQueuedBatches() throws Exception {
+        ExpenseTracker tracker = new ExpenseTracker();
+        BatchIngestor ingestor = new BatchIngestor(tracker);
+        for (int b = 0; b < 20; b++) {
+            ingestor.submit(batch(5, "Food", 1));
+        }
+        ingestor.close();
+        assertEquals(100, tracker.getTotalCents());
+        assertThrows(IllegalStateException.class, () -> ingestor.submit(batch(1, "Food", 1)));
+    }
+
+    // producers racing close(): every batch whose submit returned is applied, the others are refused
+    @Test
+    void testCloseWhileProducersSubmit() throws Exception {
+        int producers = 8;
+        ExpenseTracker tracker = new ExpenseTracker();
+        ExecutorService pool = Executors.newFixedThreadPool(producers);
+        try {
+            BatchIngestor ingestor = new BatchIngestor(tracker, 2, 64);
+            CountDownLatch started = new CountDownLatch(producers);
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                futures.add(pool.submit(() -> {
+                    long accepted = 0;
+                    started.countDown();
+                    try {
+                        while (true) {
+                            ingestor.submit(batch(3, "Food", 1));
+                            accepted += 3;
+                        }
+                    } catch (IllegalStateException closed) {
+                        return accepted;
+                    }
+                }));
+            }
+            started.await();
+            Thread.sleep(20);
+            ingestor.close();
+
+            long accepted = 0;
+            for (Future<Long> future : futures) {
+                accepted += future.get(10, TimeUnit.SECONDS);
+            }
+            assertEquals(accepted, tracker.getTotalCents());
+            assertEquals(accepted, ingestor.getAppliedRows());
+            ingestor.flush();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testFailureIsReported() throws Exception {
+        ExpenseTracker failing = new ExpenseTracker() {
+            @Override
+            public long addExpenses(ExpenseBatch batch) {
+                throw new IllegalStateException("Disk full");
+            }
+        };
+        BatchIngestor ingestor = new BatchIngestor(failing, 1, 16);
+        ingestor.submit(batch(1, "Food", 1));
+        IllegalStateException failure = assertThrows(IllegalStateException.class, ingestor::flush);
+        assertEquals("Disk full", failure.getCause().getMessage());
+        assertThrows(IllegalStateException.class, () -> ingestor.submit(batch(1, "Food", 1)));
+        assertThrows(IllegalStateException.class, ingestor::close);
+    }
+}
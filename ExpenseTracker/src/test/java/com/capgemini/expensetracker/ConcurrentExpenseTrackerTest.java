@@ -0,0 +1,203 @@
+package com.capgemini.expensetracker;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentExpenseTrackerTest {
+    private static final LocalDate DATE = LocalDate.of(2025, 12, 13);
+    private static final String[] CATEGORIES = {"Food", "Transport", "Entertainment", "Rent", "Health"};
+
+    @Test
+    void testSingleThreadedBehaviourMatchesExpenseTracker() {
+        ConcurrentExpenseTracker concurrent = new ConcurrentExpenseTracker();
+        ExpenseTracker tracker = new ExpenseTracker();
+        assertFalse(concurrent.getCategoryExtremes().isPresent());
+
+        Random random = new Random(4);
+        for (int i = 0; i < 5000; i++) {
+            String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+            double amount = random.nextInt(10_000) / 100.0;
+            LocalDate date = DATE.minusDays(random.nextInt(100));
+            concurrent.addExpense(category, amount, date);
+            tracker.addExpense(category, amount, date);
+        }
+
+        assertEquals(tracker.getTotal(), concurrent.getTotal(), 0.001);
+        Map<String, Double> expected = tracker.getTotalByCategory();
+        Map<String, Double> actual = concurrent.getTotalByCategory();
+        assertEquals(expected.keySet(), actual.keySet());
+        for (String category : expected.keySet()) {
+            assertEquals(expected.get(category), actual.get(category), 0.001);
+        }
+        CategoryExtreme expectedExtreme = tracker.getCategoryExtremes().orElseThrow();
+        CategoryExtreme actualExtreme = concurrent.getCategoryExtremes().orElseThrow();
+        assertEquals(expectedExtreme.getHighestCategory(), actualExtreme.getHighestCategory());
+        assertEquals(expectedExtreme.getLowestCategory(), actualExtreme.getLowestCategory());
+
+        List<Expense> expenses = concurrent.getExpenses();
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(tracker.getExpenses().get(i).getCategory(), expenses.get(i).getCategory());
+            assertEquals(tracker.getExpenses().get(i).getAmount(), expenses.get(i).getAmount(), 0.0);
+            assertEquals(tracker.getExpenses().get(i).getDate(), expenses.get(i).getDate());
+        }
+    }
+
+    @Test
+    void testSnapshotIsStable() {
+        ConcurrentExpenseTracker tracker = new ConcurrentExpenseTracker();
+        tracker.addExpense("Food", 12.50, DATE);
+        List<Expense> snapshot = tracker.getExpenses();
+        tracker.addExpense("Travel", 5.00, DATE);
+
+        assertEquals(1, snapshot.size(), "Snapshot should not see later adds");
+        assertEquals(2, tracker.getExpenses().size());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.add(new Expense("Rent", 1.0, DATE)));
+    }
+
+    // every snapshot taken while writers run agrees with itself: its totals are those of the rows it lists
+    @Test
+    void testSnapshotTotalsMatchItsRows() throws Exception {
+        int writers = 4;
+        int perWriter = 20_000;
+        ConcurrentExpenseTracker tracker = new ConcurrentExpenseTracker();
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < perWriter; i++) {
+                    tracker.addExpenseCents("Category" + (writer * 1000 + i) % 50, 1 + i % 997, DATE);
+                }
+            }));
+        }
+
+        int snapshots = 0;
+        while (snapshots == 0 || !futures.stream().allMatch(Future::isDone)) {
+            ConcurrentExpenseTracker.Snapshot snapshot = tracker.snapshot();
+            long rowTotal = 0;
+            Map<String, Long> rowTotals = new HashMap<>();
+            for (Expense expense : snapshot.getExpenses()) {
+                rowTotal += expense.getAmountCents();
+                rowTotals.merge(expense.getCategory(), expense.getAmountCents(), Long::sum);
+            }
+            assertEquals(rowTotal, snapshot.getTotalCents());
+            Map<String, Double> expected = new HashMap<>();
+            rowTotals.forEach((category, cents) -> expected.put(category, Money.toAmount(cents)));
+            assertEquals(expected, snapshot.getTotalByCategory(), "Only categories with rows, with their totals");
+            snapshots++;
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        assertEquals(writers * perWriter, tracker.getExpenses().size());
+    }
+
+    // the total is read without a snapshot, but still only ever sees whole adds
+    @Test
+    void testTotalWhileWritersRun() throws Exception {
+        int writers = 4;
+        int perWriter = 20_000;
+        ConcurrentExpenseTracker tracker = new ConcurrentExpenseTracker();
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < perWriter; i++) {
+                    tracker.addExpenseCents(CATEGORIES[i % CATEGORIES.length], 100, DATE);
+                }
+            }));
+        }
+
+        long last = 0;
+        while (!futures.stream().allMatch(Future::isDone)) {
+            long total = tracker.getTotalCents();
+            assertTrue(total >= last && total % 100 == 0, "Total " + total + " after " + last);
+            last = total;
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        assertEquals(100L * writers * perWriter, tracker.getTotalCents());
+        assertEquals(writers * perWriter, tracker.getTotal(), 0.0);
+    }
+
+    @Test
+    void testTotalsStayExactUnderContention() throws Exception {
+        int writers = 8;
+        int perWriter = 50_000;
+        ConcurrentExpenseTracker tracker = new ConcurrentExpenseTracker();
+        ExecutorService pool = Executors.newFixedThreadPool(writers + 2);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < perWriter; i++) {
+                    // quarters are exact in binary, so the sum does not depend on the order of the adds
+                    tracker.addExpense(CATEGORIES[(writer + i) % CATEGORIES.length], (i % 400) * 0.25, DATE.plusDays(i % 30));
+                }
+                return null;
+            }));
+        }
+
+        // readers iterate snapshots while the writers run
+        List<Future<Integer>> readers = new ArrayList<>();
+        for (int r = 0; r < 2; r++) {
+            readers.add(pool.submit(() -> {
+                start.await();
+                int previousSize = 0;
+                int snapshots = 0;
+                while (writing.get()) {
+                    List<Expense> snapshot = tracker.getExpenses();
+                    assertTrue(snapshot.size() >= previousSize, "Snapshots should only grow");
+                    for (Expense expense : snapshot) {
+                        assertNotNull(expense.getCategory(), "Every published row should be complete");
+                    }
+                    previousSize = snapshot.size();
+                    snapshots++;
+                }
+                return snapshots;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        writing.set(false);
+        for (Future<Integer> reader : readers) {
+            assertTrue(reader.get(60, TimeUnit.SECONDS) > 0);
+        }
+        pool.shutdown();
+
+        double expectedTotal = 0.0;
+        Map<String, Double> expectedByCategory = new HashMap<>();
+        for (int w = 0; w < writers; w++) {
+            for (int i = 0; i < perWriter; i++) {
+                expectedTotal += (i % 400) * 0.25;
+                expectedByCategory.merge(CATEGORIES[(w + i) % CATEGORIES.length], (i % 400) * 0.25, Double::sum);
+            }
+        }
+
+        assertEquals(expectedTotal, tracker.getTotal(), 0.0, "Total should be exact");
+        assertEquals(expectedByCategory, tracker.getTotalByCategory(), "Category totals should be exact");
+        List<Expense> expenses = tracker.getExpenses();
+        assertEquals(writers * perWriter, expenses.size());
+        double rescan = 0.0;
+        for (Expense expense : expenses) {
+            rescan += expense.getAmount();
+        }
+        assertEquals(expectedTotal, rescan, 0.0, "Every row should have been stored once");
+    }
+}
@@ -0,0 +1,225 @@
+package com.capgemini.expensetracker;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpenseCsvTest {
+    private static final LocalDate DATE = LocalDate.of(2025, 12, 13);
+
+    private ExpenseCsv.ImportResult importString(String csv, ExpenseTracker tracker) throws IOException {
+        return ExpenseCsv.importFrom(new StringReader(csv), tracker);
+    }
+
+    @Test
+    void testImport() throws IOException {
+        ExpenseTracker tracker = new ExpenseTracker();
+        ExpenseCsv.ImportResult result = importString(
+                "category,amount,date\n" +
+                "Food,12.50,2025-12-13\n" +
+                "Transport,3.75,2025-12-14\n" +
+                "Food,2.5,2025-12-15\n", tracker);
+
+        assertEquals(3, result.getImported());
+        assertEquals(0, result.getRejected());
+        assertEquals(3, tracker.getExpenses().size());
+        assertEquals(15.0, tracker.getTotalByCategory().get("Food"), 0.001);
+        Expense e = tracker.getExpenses().get(1);
+        assertEquals("Transport", e.getCategory());
+        assertEquals(3.75, e.getAmount(), 0.001);
+        assertEquals(LocalDate.of(2025, 12, 14), e.getDate());
+    }
+
+    @Test
+    void testImportWithoutHeaderAndWithWindowsLineEndings() throws IOException {
+        ExpenseTracker tracker = new ExpenseTracker();
+        ExpenseCsv.ImportResult result = importString("Food,12.50,2025-12-13\r\n\r\n  Rent , 800 , 2025-12-01 \r\nTravel,1,2025-12-02", tracker);
+
+        assertEquals(3, result.getImported());
+        assertEquals("Rent", tracker.getExpenses().get(1).getCategory(), "Fields should be trimmed");
+        assertEquals(LocalDate.of(2025, 12, 2), tracker.getExpenses().get(2).getDate(), "Last row has no line break");
+    }
+
+    @Test
+    void testQuotedCategories() throws IOException {
+        ExpenseTracker tracker = new ExpenseTracker();
+        importString("\"Food, takeaway\",10,2025-12-13\n\"Say \"\"hi\"\"\",5,2025-12-13\n\"Two\nlines\",1,2025-12-13\n", tracker);
+
+        List<Expense> expenses = tracker.getExpenses();
+        assertEquals(3, expenses.size());
+        assertEquals("Food, takeaway", expenses.get(0).getCategory());
+        assertEquals("Say \"hi\"", expenses.get(1).getCategory());
+        assertEquals("Two\nlines", expenses.get(2).getCategory());
+    }
+
+    @Test
+    void testRejectsRowsLikeAddExpense() throws IOException {
+        ExpenseTracker tracker = new ExpenseTracker();
+        ExpenseCsv.ImportResult result = importString(
+                "category,amount,date\n" +
+                " ,10,2025-12-13\n" +
+                "Food,abc,2025-12-13\n" +
+                "Food,0,2025-12-13\n" +
+                "Food,-5,2025-12-13\n" +
+                "Food,10,13/12/2025\n" +
+                "Food,10,2025-02-30\n" +
+                "Food,10\n" +
+                "Food,10,2025-12-13,extra\n" +
+                "Food,10,2025-12-13\n", tracker);
+
+        assertEquals(1, result.getImported());
+        assertEquals(8, result.getRejected());
+        assertEquals(List.of(
+                "Line 2: Category cannot be empty!",
+                "Line 3: Invalid amount!",
+                "Line 4: Amount must be positive!",
+                "Line 5: Amount must be positive!",
+                "Line 6: Invalid date format!",
+                "Line 7: Invalid date format!",
+                "Line 8: Expected category,amount,date",
+                "Line 9: Expected category,amount,date"), result.getErrors());
+        assertEquals(10.0, tracker.getTotal(), 0.001);
+    }
+
+    @Test
+    void testHeaderAfterByteOrderMark() throws IOException {
+        ExpenseTracker tracker = new ExpenseTracker();
+        ExpenseCsv.ImportResult result = importString("\uFEFFcategory,amount,date\r\nFood,1,2025-12-13\r\n", tracker);
+
+        assertEquals(1, result.getImported());
+        assertEquals(0, result.getRejected(), "The header should not be rejected");
+
+        tracker = new ExpenseTracker();
+        importString("\uFEFFFood,1,2025-12-13\n", tracker);
+        assertEquals("Food", tracker.getExpenses().get(0).getCategory(), "The BOM is not part of the category");
+    }
+
+    @Test
+    void testErrorsCountLinesInsideQuotedCategories() throws IOException {
+        ExpenseTracker tracker = new ExpenseTracker();
+        ExpenseCsv.ImportResult result = importString(
+                "category,amount,date\n" +
+                "\"Two\nlines\",1,2025-12-13\n" +
+                "Food,abc,2025-12-13\n" +
+                "\"Three\r\nmore\nlines\",abc,2025-12-13\n" +
+                "Food,10\n", tracker);
+
+        assertEquals(1, result.getImported());
+        assertEquals(List.of(
+                "Line 4: Invalid amount!",
+                "Line 5: Invalid amount!",
+                "Line 8: Expected category,amount,date"), result.getErrors());
+    }
+
+    @Test
+    void testRepeatedCategoriesShareInstances() throws IOException {
+        ExpenseTracker tracker = new ExpenseTracker();
+        importString("Food,1,2025-12-13\nFood,2,2025-12-13\n", tracker);
+        assertSame(tracker.getExpenses().get(0).getCategory(), tracker.getExpenses().get(1).getCategory());
+    }
+
+    @Test
+    void testRejectsAmountsThatAreNotWholeCents() throws IOException {
+        ExpenseTracker tracker = new ExpenseTracker();
+        ExpenseCsv.ImportResult result = importString("Food,12.345,2025-12-13\nFood,1e3,2025-12-13\nFood,0.10,2025-12-13\n", tracker);
+
+        assertEquals(1, result.getImported());
+        assertEquals(List.of("Line 1: Invalid amount!", "Line 2: Invalid amount!"), result.getErrors());
+        assertEquals(10, tracker.getTotalCents());
+    }
+
+    @Test
+    void testParseEpochDayMatchesLocalDate() {
+        for (LocalDate date = LocalDate.of(1899, 1, 1); date.isBefore(LocalDate.of(2101, 1, 1)); date = date.plusDays(1)) {
+            char[] chars = date.toString().toCharArray();
+            assertEquals(date.toEpochDay(), ExpenseCsv.parseEpochDay(chars, 0, chars.length), date.toString());
+        }
+        char[] extended = "+12345-06-07".toCharArray();
+        assertEquals(LocalDate.of(12345, 6, 7).toEpochDay(), ExpenseCsv.parseEpochDay(extended, 0, extended.length));
+        for (String invalid : List.of("2024-02-30", "2023-02-29", "2025-13-01", "2025-00-10", "2025-1-1", "20x5-01-01", "")) {
+            char[] chars = invalid.toCharArray();
+            assertEquals(Long.MIN_VALUE, ExpenseCsv.parseEpochDay(chars, 0, chars.length), invalid);
+        }
+    }
+
+    @Test
+    void testExportRoundTrip(@TempDir Path directory) throws IOException {
+        ExpenseTracker tracker = new ExpenseTracker();
+        tracker.addExpense("Food", 12.50, DATE);
+        tracker.addExpense("Food, takeaway", 0.1, DATE.minusDays(400));
+        tracker.addExpense("Say \"hi\"", 1234567.89, LocalDate.of(12, 3, 4));
+        tracker.addExpense("Line\nbreak", 3, DATE.plusYears(9000));
+
+        Path file = directory.resolve("expenses.csv");
+        assertEquals(4, ExpenseCsv.exportTo(tracker, file));
+
+        ExpenseTracker imported = new ExpenseTracker();
+        ExpenseCsv.ImportResult result = ExpenseCsv.importFrom(file, imported);
+        assertEquals(4, result.getImported(), () -> "Rejected: " + result.getErrors());
+        for (int i = 0; i < 4; i++) {
+            Expense expected = tracker.getExpenses().get(i);
+            Expense actual = imported.getExpenses().get(i);
+            assertEquals(expected.getCategory(), actual.getCategory());
+            assertEquals(expected.getAmount(), actual.getAmount(), 0.0);
+            assertEquals(expected.getDate(), actual.getDate());
+        }
+    }
+
+    @Test
+    void testExportFormat() throws IOException {
+        ExpenseTracker tracker = new ExpenseTracker();
+        tracker.addExpense("Food", 12.5, LocalDate.of(2025, 1, 2));
+        tracker.addExpense("A,B", 3, LocalDate.of(987, 11, 30));
+
+        StringWriter out = new StringWriter();
+        ExpenseCsv.exportTo(tracker, out);
+        assertEquals("category,amount,date\nFood,12.50,2025-01-02\n\"A,B\",3.00,0987-11-30\n", out.toString());
+    }
+
+    @Test
+    void testStreamsLargeInputInBatches() throws IOException {
+        int rows = 3 * ExpenseCsv.BATCH_SIZE + 17;
+        // generates rows on the fly so the whole file never exists as one String
+        Reader reader = new Reader() {
+            private int row;
+            private String pending = "";
+            private int offset;
+
+            @Override
+            public int read(char[] buffer, int off, int len) {
+                if (offset == pending.length()) {
+                    if (row == rows) {
+                        return -1;
+                    }
+                    pending = "Category" + (row % 50) + "," + (row % 1000 + 1) + ".25," + DATE.minusDays(row % 365) + "\n";
+                    offset = 0;
+                    row++;
+                }
+                int count = Math.min(len, pending.length() - offset);
+                pending.getChars(offset, offset + count, buffer, off);
+                offset += count;
+                return count;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        ExpenseTracker tracker = new ExpenseTracker();
+        ExpenseCsv.ImportResult result = ExpenseCsv.importFrom(reader, tracker);
+        assertEquals(rows, result.getImported());
+        assertEquals(50, tracker.getTotalByCategory().size());
+        assertEquals(tracker.rescanTotal(), tracker.getTotal(), 0.001);
+        assertEquals(DATE.minusDays(364), tracker.getExpensesByDate().get(0).getDate());
+    }
+}
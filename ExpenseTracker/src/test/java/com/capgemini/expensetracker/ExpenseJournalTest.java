@@ -0,0 +1,330 @@
+package com.capgemini.expensetracker;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpenseJournalTest {
+    private static final LocalDate DATE = LocalDate.of(2025, 12, 13);
+
+    @TempDir
+    Path directory;
+
+    // opens a fresh tracker over the directory
+    private ExpenseTracker restore(ExpenseJournal.SyncPolicy policy, int snapshotInterval) throws IOException {
+        ExpenseTracker tracker = new ExpenseTracker();
+        ExpenseJournal.open(directory, tracker, policy, 10, snapshotInterval).close();
+        return tracker;
+    }
+
+    private ExpenseTracker restore() throws IOException {
+        return restore(ExpenseJournal.SyncPolicy.BATCH, ExpenseJournal.DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    // adds count expenses with a few categories and shuffled dates
+    private void addExpenses(ExpenseTracker tracker, int from, int count) {
+        for (int i = from; i < from + count; i++) {
+            tracker.addExpense("Category" + (i % 13), i / 4.0, DATE.minusDays((i * 37L) % 400));
+        }
+    }
+
+    private void assertSameExpenses(ExpenseTracker expected, ExpenseTracker actual) {
+        List<Expense> expectedExpenses = expected.getExpenses();
+        List<Expense> actualExpenses = actual.getExpenses();
+        assertEquals(expectedExpenses.size(), actualExpenses.size(), "Expense count should match");
+        for (int i = 0; i < expectedExpenses.size(); i++) {
+            assertEquals(expectedExpenses.get(i).getCategory(), actualExpenses.get(i).getCategory());
+            assertEquals(expectedExpenses.get(i).getAmount(), actualExpenses.get(i).getAmount(), 0.0);
+            assertEquals(expectedExpenses.get(i).getDate(), actualExpenses.get(i).getDate());
+            assertEquals(expectedExpenses.get(i).getId(), actualExpenses.get(i).getId());
+        }
+        assertEquals(expected.getTotal(), actual.getTotal(), 0.001);
+        assertEquals(expected.getTotalByCategory(), actual.getTotalByCategory());
+        assertEquals(expected.getExpensesByDate().get(0).getDate(), actual.getExpensesByDate().get(0).getDate());
+    }
+
+    @Test
+    void testRestoreEmptyDirectory() throws IOException {
+        ExpenseTracker tracker = restore();
+        assertTrue(tracker.getExpenses().isEmpty());
+        assertTrue(Files.exists(directory.resolve(ExpenseJournal.JOURNAL_FILE)));
+    }
+
+    @Test
+    void testRestoreFromJournal() throws IOException {
+        ExpenseTracker tracker = new ExpenseTracker();
+        try (ExpenseJournal journal = ExpenseJournal.open(directory, tracker)) {
+            addExpenses(tracker, 0, 2500);
+            assertEquals(2500, journal.getSequence());
+        }
+
+        assertSameExpenses(tracker, restore());
+        assertFalse(Files.exists(directory.resolve(ExpenseJournal.SNAPSHOT_FILE)), "No snapshot should be needed yet");
+    }
+
+    @Test
+    void testRestoreAfterSeveralSessions() throws IOException {
+        ExpenseTracker expected = new ExpenseTracker();
+        for (int session = 0; session < 3; session++) {
+            ExpenseTracker restored = new ExpenseTracker();
+            ExpenseJournal journal = ExpenseJournal.open(directory, restored);
+            try {
+                addExpenses(restored, session * 100, 100);
+            } finally {
+                journal.close();
+            }
+            addExpenses(expected, session * 100, 100);
+        }
+        assertSameExpenses(expected, restore());
+    }
+
+    @Test
+    void testSnapshotBoundsJournal() throws IOException {
+        ExpenseTracker tracker = new ExpenseTracker();
+        ExpenseJournal journal = ExpenseJournal.open(directory, tracker, ExpenseJournal.SyncPolicy.OS, 10, 1000);
+        try {
+            addExpenses(tracker, 0, 2500);
+        } finally {
+            journal.close();
+        }
+
+        assertTrue(Files.exists(directory.resolve(ExpenseJournal.SNAPSHOT_FILE)));
+        // 2 snapshots at 1000 and 2000, so the journal only holds the last 500 expenses
+        assertTrue(Files.size(directory.resolve(ExpenseJournal.JOURNAL_FILE)) < 600 * 17 + 1000,
+                "Journal should only hold the expenses since the last snapshot");
+        assertSameExpenses(tracker, restore(ExpenseJournal.SyncPolicy.OS, 1000));
+    }
+
+    @Test
+    void testNewCategoriesAfterSnapshot() throws IOException {
+        ExpenseTracker tracker = new ExpenseTracker();
+        try (ExpenseJournal journal = ExpenseJournal.open(directory, tracker)) {
+            tracker.addExpense("Food", 10.0, DATE);
+            journal.snapshot();
+            tracker.addExpense("Travel", 5.0, DATE);
+            tracker.addExpense("Food", 2.5, DATE);
+        }
+
+        ExpenseTracker restored = restore();
+        assertSameExpenses(tracker, restored);
+        assertEquals(12.5, restored.getTotalByCategory().get("Food"), 0.001);
+    }
+
+    @Test
+    void testCrashBetweenSnapshotAndJournalReset() throws IOException {
+        ExpenseTracker tracker = new ExpenseTracker();
+        Path staleJournal = directory.resolve("stale.journal");
+        try (ExpenseJournal journal = ExpenseJournal.open(directory, tracker)) {
+            addExpenses(tracker, 0, 300);
+            journal.sync();
+            Files.copy(directory.resolve(ExpenseJournal.JOURNAL_FILE), staleJournal);
+            journal.snapshot();
+        }
+        // put back the journal as it was before the snapshot replaced it
+        Files.move(staleJournal, directory.resolve(ExpenseJournal.JOURNAL_FILE), StandardCopyOption.REPLACE_EXISTING);
+
+        assertSameExpenses(tracker, restore());
+    }
+
+    @Test
+    void testTornRecordIsDropped() throws IOException {
+        ExpenseTracker tracker = new ExpenseTracker();
+        ExpenseJournal journal = ExpenseJournal.open(directory, tracker);
+        try {
+            addExpenses(tracker, 0, 10);
+        } finally {
+            journal.close();
+        }
+        Path journalFile = directory.resolve(ExpenseJournal.JOURNAL_FILE);
+        try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+
+        ExpenseTracker restored = new ExpenseTracker();
+        try (ExpenseJournal reopened = ExpenseJournal.open(directory, restored)) {
+            assertEquals(9, restored.getExpenses().size(), "The torn last expense should be dropped");
+            assertEquals(9, reopened.getSequence());
+            restored.addExpense("Late", 1.0, DATE);
+        }
+
+        ExpenseTracker again = restore();
+        assertEquals(10, again.getExpenses().size(), "Appends after a torn record should be readable");
+        assertEquals("Late", again.getExpenses().get(9).getCategory());
+    }
+
+    @Test
+    void testEveryWritePolicyIsDurableWithoutClose() throws IOException {
+        ExpenseTracker tracker = new ExpenseTracker();
+        ExpenseJournal journal = ExpenseJournal.open(directory, tracker, ExpenseJournal.SyncPolicy.EVERY_WRITE, 1, 100);
+        tracker.addExpense("Food", 10.0, DATE);
+        tracker.addExpense("Travel", 5.0, DATE);
+
+        // copy the journal while it is still open, as if the process had crashed here
+        Path copy = Files.createDirectory(directory.resolve("copy"));
+        Files.copy(directory.resolve(ExpenseJournal.JOURNAL_FILE), copy.resolve(ExpenseJournal.JOURNAL_FILE));
+        ExpenseTracker restored = new ExpenseTracker();
+        ExpenseJournal.open(copy, restored).close();
+        journal.close();
+
+        assertEquals(2, restored.getExpenses().size());
+        assertEquals(15.0, restored.getTotal(), 0.001);
+    }
+
+    @Test
+    void testBatchesAreJournaled() throws IOException {
+        ExpenseTracker tracker = new ExpenseTracker();
+        try (ExpenseJournal journal = ExpenseJournal.open(directory, tracker, ExpenseJournal.SyncPolicy.EVERY_WRITE, 1, 100)) {
+            ExpenseBatch batch = new ExpenseBatch(64);
+            for (int i = 0; i < 250; i++) {
+                batch.add("Category" + (i % 3), i + 1, DATE.minusDays(i));
+                if (batch.isFull()) {
+                    tracker.addExpenses(batch);
+                    batch.clear();
+                }
+            }
+            tracker.addExpenses(batch);
+            assertEquals(250, journal.getSequence());
+        }
+
+        assertSameExpenses(tracker, restore());
+    }
+
+    @Test
+    void testClosedJournalDetaches() throws IOException {
+        ExpenseTracker tracker = new ExpenseTracker();
+        ExpenseJournal.open(directory, tracker).close();
+        tracker.addExpense("Food", 10.0, DATE);
+
+        assertTrue(restore().getExpenses().isEmpty(), "Expenses added after close should not be journaled");
+    }
+
+    @Test
+    void testUpgradesDoubleAmountJournal() throws IOException {
+        // a version 1 journal, which stored amounts as doubles
+        ByteBuffer v1 = ByteBuffer.allocate(16 + 13 + 2 * 17);
+        v1.putInt(0x4558504A).putInt(1).putLong(0);
+        v1.put((byte) 1).putInt(0).putInt(4).put("Food".getBytes(StandardCharsets.UTF_8));
+        v1.put((byte) 2).putInt(0).putInt((int) DATE.toEpochDay()).putDouble(0.1);
+        v1.put((byte) 2).putInt(0).putInt((int) DATE.toEpochDay()).putDouble(0.2);
+        Files.write(directory.resolve(ExpenseJournal.JOURNAL_FILE), v1.array());
+
+        ExpenseTracker tracker = new ExpenseTracker();
+        ExpenseJournal journal = ExpenseJournal.open(directory, tracker);
+        try {
+            assertEquals(30, tracker.getTotalCents());
+            tracker.addExpense("Food", 0.05, DATE);
+        } finally {
+            journal.close();
+        }
+        assertTrue(Files.exists(directory.resolve(ExpenseJournal.SNAPSHOT_FILE)), "Restoring should rewrite the files");
+
+        ExpenseTracker restored = restore();
+        assertSameExpenses(tracker, restored);
+        assertEquals(35, restored.getTotalCents());
+    }
+
+    // removes every third expense and moves every fifth one to another category and date
+    private void changeExpenses(ExpenseTracker tracker, int count) {
+        for (int id = 0; id < count; id += 3) {
+            assertTrue(tracker.removeExpense(id));
+        }
+        for (int id = 1; id < count; id += 5) {
+            if (tracker.getExpense(id).isPresent()) {
+                assertTrue(tracker.updateExpense(id, "Moved" + (id % 3), id / 8.0, DATE.plusDays(id % 50)));
+            }
+        }
+    }
+
+    @Test
+    void testRemovalsAndUpdatesAreJournaled() throws IOException {
+        ExpenseTracker tracker = new ExpenseTracker();
+        ExpenseJournal journal = ExpenseJournal.open(directory, tracker);
+        try {
+            addExpenses(tracker, 0, 1500);
+            changeExpenses(tracker, 1500);
+            addExpenses(tracker, 1500, 100);
+        } finally {
+            journal.close();
+        }
+
+        ExpenseTracker restored = restore();
+        assertSameExpenses(tracker, restored);
+        assertFalse(restored.getExpense(0).isPresent(), "Removed expenses should stay removed");
+        assertEquals(tracker.getCategoryExtremes().orElseThrow().getHighestCategory(),
+                restored.getCategoryExtremes().orElseThrow().getHighestCategory());
+        assertEquals(1600, restored.addExpense("Food", 1.0, DATE), "Ids should not be reused");
+    }
+
+    @Test
+    void testRemovalsSurviveSnapshot() throws IOException {
+        ExpenseTracker tracker = new ExpenseTracker();
+        try (ExpenseJournal journal = ExpenseJournal.open(directory, tracker)) {
+            addExpenses(tracker, 0, 1000);
+            changeExpenses(tracker, 1000);
+            journal.snapshot();
+            tracker.removeExpense(1);
+            tracker.updateExpense(2, "Food", 3.0, DATE);
+        }
+
+        ExpenseTracker restored = restore();
+        assertSameExpenses(tracker, restored);
+        assertFalse(restored.getExpense(3).isPresent());
+        assertFalse(restored.getExpense(1).isPresent());
+        assertEquals("Food", restored.getExpense(2).orElseThrow().getCategory());
+    }
+
+    @Test
+    void testRejectsNonEmptyTracker() {
+        ExpenseTracker tracker = new ExpenseTracker();
+        tracker.addExpense("Food", 10.0, DATE);
+        assertThrows(IllegalArgumentException.class, () -> ExpenseJournal.open(directory, tracker));
+    }
+
+    @Test
+    void testRejectsTrackerWithCategories() throws IOException {
+        ExpenseTracker tracker = new ExpenseTracker();
+        ExpenseJournal journal = ExpenseJournal.open(directory, tracker);
+        try {
+            tracker.addExpense("Food", 10.0, DATE);
+            tracker.addExpense("Rent", 800.0, DATE);
+        } finally {
+            journal.close();
+        }
+
+        // a budget numbers its category before the journal's categories are restored
+        ExpenseTracker budgeted = new ExpenseTracker();
+        budgeted.addBudget("Rent", 1000.0, 30, alert -> { });
+        assertThrows(IllegalArgumentException.class, () -> ExpenseJournal.open(directory, budgeted));
+
+        // budgets added after opening see the restored expenses
+        ExpenseTracker restored = new ExpenseTracker();
+        List<BudgetAlert> alerts = new ArrayList<>();
+        journal = ExpenseJournal.open(directory, restored);
+        try {
+            restored.addBudget("Rent", 1000.0, 30, alerts::add);
+            assertEquals(Map.of("Food", 10.0, "Rent", 800.0), restored.getTotalByCategory());
+            restored.addExpense("Rent", 250.0, DATE);
+            assertEquals(1, alerts.size());
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    void testRejectsForeignFile() throws IOException {
+        Files.write(directory.resolve(ExpenseJournal.JOURNAL_FILE), new byte[64]);
+        assertThrows(IOException.class, () -> ExpenseJournal.open(directory, new ExpenseTracker()));
+    }
+}
@@ -0,0 +1,220 @@
+package com.capgemini.expensetracker;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpenseQueryTest {
+    private static final LocalDate START = LocalDate.of(2025, 1, 1);
+    private static final String[] CATEGORIES = {"Food", "Transport", "Entertainment", "Rent", "Health", "Travel"};
+
+    private ExpenseTracker randomTracker(Random random, int count) {
+        ExpenseTracker tracker = new ExpenseTracker();
+        for (int i = 0; i < count; i++) {
+            tracker.addExpenseCents(CATEGORIES[random.nextInt(CATEGORIES.length)], random.nextInt(20_000) - 500,
+                    START.plusDays(random.nextInt(400)));
+        }
+        for (int i = 0; i < count / 10; i++) {
+            tracker.removeExpense(random.nextInt(count));
+        }
+        return tracker;
+    }
+
+    // the same query worked out from the expense list: group key -> {count, sum, min, max}
+    private Map<List<Object>, long[]> expected(ExpenseTracker tracker, Set<String> categories, long minCents,
+                                               long maxCents, LocalDate from, LocalDate to, ExpenseQuery.GroupBy groupBy) {
+        Map<List<Object>, long[]> groups = new TreeMap<>(Comparator.comparing(Object::toString));
+        for (Expense expense : tracker.getExpenses()) {
+            if (categories != null && !categories.contains(expense.getCategory())
+                    || expense.getAmountCents() < minCents || expense.getAmountCents() > maxCents
+                    || from != null && (expense.getDate().isBefore(from) || expense.getDate().isAfter(to))) {
+                continue;
+            }
+            List<Object> key = new ArrayList<>();
+            if (groupBy == ExpenseQuery.GroupBy.MONTH || groupBy == ExpenseQuery.GroupBy.CATEGORY_AND_MONTH) {
+                key.add(YearMonth.from(expense.getDate()));
+            }
+            if (groupBy == ExpenseQuery.GroupBy.CATEGORY || groupBy == ExpenseQuery.GroupBy.CATEGORY_AND_MONTH) {
+                key.add(expense.getCategory());
+            }
+            long cents = expense.getAmountCents();
+            groups.merge(key, new long[]{1, cents, cents, cents},
+                    (a, b) -> new long[]{a[0] + 1, a[1] + b[1], Math.min(a[2], b[2]), Math.max(a[3], b[3])});
+        }
+        return groups;
+    }
+
+    private Map<List<Object>, long[]> actual(List<QueryRow> rows, boolean minMax, boolean count) {
+        Map<List<Object>, long[]> groups = new TreeMap<>(Comparator.comparing(Object::toString));
+        for (QueryRow row : rows) {
+            List<Object> key = new ArrayList<>();
+            if (row.getMonth() != null) {
+                key.add(row.getMonth());
+            }
+            if (row.getCategory() != null) {
+                key.add(row.getCategory());
+            }
+            long min = minMax ? row.getMinCents().orElse(0) : 0;
+            long max = minMax ? row.getMaxCents().orElse(0) : 0;
+            groups.put(key, new long[]{count ? row.getCount() : 0, row.getSumCents(), min, max});
+        }
+        return groups;
+    }
+
+    @Test
+    void testRandomQueriesMatchExpenseList() {
+        Random random = new Random(42);
+        ExpenseTracker tracker = randomTracker(random, 5_000);
+        Set<ExpenseQuery.Plan> plans = EnumSet.noneOf(ExpenseQuery.Plan.class);
+        for (int i = 0; i < 500; i++) {
+            ExpenseQuery query = tracker.query();
+            Set<String> categories = null;
+            if (random.nextBoolean()) {
+                categories = new HashSet<>(List.of(CATEGORIES[random.nextInt(CATEGORIES.length)], "Unknown"));
+                if (random.nextBoolean()) {
+                    categories.add(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+                }
+                query.categories(categories);
+            }
+            long minCents = Long.MIN_VALUE;
+            long maxCents = Long.MAX_VALUE;
+            if (random.nextBoolean()) {
+                minCents = random.nextInt(10_000);
+                maxCents = minCents + random.nextInt(10_000);
+                query.amountCentsBetween(minCents, maxCents);
+            }
+            LocalDate from = null;
+            LocalDate to = null;
+            if (random.nextBoolean()) {
+                from = START.plusDays(random.nextInt(420) - 10);
+                to = from.plusDays(random.nextInt(200));
+                query.between(from, to);
+            }
+            ExpenseQuery.GroupBy groupBy = ExpenseQuery.GroupBy.values()[random.nextInt(4)];
+            query.groupBy(groupBy);
+            int aggregates = random.nextInt(3);
+            boolean minMax = aggregates == 0;
+            boolean count = aggregates != 2;
+            if (aggregates == 1) {
+                query.aggregates(ExpenseQuery.Aggregate.COUNT, ExpenseQuery.Aggregate.SUM);
+            } else if (aggregates == 2) {
+                query.aggregates(ExpenseQuery.Aggregate.SUM);
+            }
+
+            Map<List<Object>, long[]> expected = expected(tracker, categories, minCents, maxCents, from, to, groupBy);
+            if (groupBy == ExpenseQuery.GroupBy.NONE && expected.isEmpty()) {
+                expected.put(List.of(), new long[]{0, 0, 0, 0});
+            }
+            if (!minMax) {
+                expected.values().forEach(values -> values[2] = values[3] = 0);
+            }
+            if (!count) {
+                expected.values().forEach(values -> values[0] = 0);
+            }
+            Map<List<Object>, long[]> actual = actual(query.run(), minMax, count);
+            plans.add(query.plan());
+            assertEquals(expected.keySet(), actual.keySet(), "Query " + i + " with plan " + query.plan());
+            for (List<Object> key : expected.keySet()) {
+                assertArrayEquals(expected.get(key), actual.get(key), "Query " + i + " group " + key);
+            }
+        }
+        assertEquals(EnumSet.allOf(ExpenseQuery.Plan.class), plans, "Every plan should be compared");
+    }
+
+    @Test
+    void testLargeScanMatchesExpenseList() {
+        // enough rows for the scan to be split over the fork/join pool
+        ExpenseTracker tracker = randomTracker(new Random(7), 200_000);
+        Set<String> categories = Set.of("Food", "Rent", "Travel");
+        for (ExpenseQuery.GroupBy groupBy : List.of(ExpenseQuery.GroupBy.NONE, ExpenseQuery.GroupBy.CATEGORY)) {
+            ExpenseQuery query = tracker.query().categories(categories).amountCentsBetween(1_000, 15_000).groupBy(groupBy);
+            assertEquals(ExpenseQuery.Plan.SCAN, query.plan());
+            Map<List<Object>, long[]> expected = expected(tracker, categories, 1_000, 15_000, null, null, groupBy);
+            Map<List<Object>, long[]> actual = actual(query.run(), true, true);
+            assertEquals(expected.keySet(), actual.keySet());
+            for (List<Object> key : expected.keySet()) {
+                assertArrayEquals(expected.get(key), actual.get(key), "Group " + key);
+            }
+        }
+    }
+
+    @Test
+    void testPlans() {
+        ExpenseTracker tracker = new ExpenseTracker();
+        LocalDate date = LocalDate.of(2025, 12, 13);
+        assertEquals(ExpenseQuery.Plan.SCAN, tracker.query().plan());
+        assertEquals(ExpenseQuery.Plan.TOTALS, tracker.query().groupBy(ExpenseQuery.GroupBy.CATEGORY)
+                .aggregates(ExpenseQuery.Aggregate.SUM, ExpenseQuery.Aggregate.AVG).plan());
+        assertEquals(ExpenseQuery.Plan.DAILY_TOTALS, tracker.query().categories("Food").between(date, date)
+                .aggregates(ExpenseQuery.Aggregate.SUM).plan());
+        assertEquals(ExpenseQuery.Plan.DATE_INDEX, tracker.query().between(date, date).groupBy(ExpenseQuery.GroupBy.CATEGORY).plan());
+        assertEquals(ExpenseQuery.Plan.DATE_INDEX, tracker.query().groupBy(ExpenseQuery.GroupBy.MONTH)
+                .aggregates(ExpenseQuery.Aggregate.SUM).plan());
+        assertEquals(ExpenseQuery.Plan.SCAN, tracker.query().amountBetween(1, 2)
+                .aggregates(ExpenseQuery.Aggregate.SUM).plan());
+    }
+
+    @Test
+    void testGroupsAndAggregates() {
+        ExpenseTracker tracker = new ExpenseTracker();
+        tracker.addExpense("Food", 12.50, LocalDate.of(2025, 11, 30));
+        tracker.addExpense("Food", 7.50, LocalDate.of(2025, 12, 1));
+        tracker.addExpense("Rent", 800.00, LocalDate.of(2025, 12, 1));
+        tracker.addExpense("Food", 2.00, LocalDate.of(2025, 12, 24));
+
+        List<QueryRow> rows = tracker.query().groupBy(ExpenseQuery.GroupBy.CATEGORY_AND_MONTH).run();
+        assertEquals(3, rows.size());
+        assertEquals(YearMonth.of(2025, 11), rows.get(0).getMonth());
+        assertEquals("Food", rows.get(1).getCategory());
+        assertEquals(YearMonth.of(2025, 12), rows.get(1).getMonth());
+        assertEquals(2, rows.get(1).getCount());
+        assertEquals(9.50, rows.get(1).getSum(), 0.0);
+        assertEquals(4.75, rows.get(1).getAverage().getAsDouble(), 0.0);
+        assertEquals(2.00, rows.get(1).getMin().getAsDouble(), 0.0);
+        assertEquals(7.50, rows.get(1).getMax().getAsDouble(), 0.0);
+        assertEquals("Rent", rows.get(2).getCategory());
+
+        QueryRow none = tracker.query().categories("Travel").run().get(0);
+        assertEquals(0, none.getCount());
+        assertTrue(none.getMin().isEmpty());
+        assertTrue(none.getAverage().isEmpty());
+
+        QueryRow sumOnly = tracker.query().between(LocalDate.of(2025, 12, 1), LocalDate.of(2025, 12, 31))
+                .aggregates(ExpenseQuery.Aggregate.SUM).run().get(0);
+        assertEquals(809.50, sumOnly.getSum(), 0.0);
+        assertThrows(IllegalStateException.class, sumOnly::getCount);
+    }
+
+    @Test
+    void testNullCategorySortsFirst() {
+        ExpenseTracker tracker = new ExpenseTracker();
+        LocalDate date = LocalDate.of(2025, 12, 13);
+        tracker.addExpense("Food", 2.00, date);
+        tracker.addExpense(null, 1.00, date);
+
+        List<ExpenseQuery> queries = List.of(
+                tracker.query().groupBy(ExpenseQuery.GroupBy.CATEGORY).aggregates(ExpenseQuery.Aggregate.SUM),
+                tracker.query().groupBy(ExpenseQuery.GroupBy.CATEGORY),
+                tracker.query().groupBy(ExpenseQuery.GroupBy.CATEGORY).between(date, date));
+        for (ExpenseQuery query : queries) {
+            List<QueryRow> rows = query.run();
+            assertEquals(2, rows.size(), "Plan " + query.plan());
+            assertNull(rows.get(0).getCategory());
+            assertEquals(1.00, rows.get(0).getSum(), 0.0);
+            assertEquals("Food", rows.get(1).getCategory());
+        }
+    }
+
+    @Test
+    void testRejectsBadFilters() {
+        ExpenseTracker tracker = new ExpenseTracker();
+        LocalDate date = LocalDate.of(2025, 12, 13);
+        assertThrows(IllegalArgumentException.class, () -> tracker.query().between(date, date.minusDays(1)));
+        assertThrows(IllegalArgumentException.class, () -> tracker.query().amountBetween(2, 1));
+        assertThrows(IllegalArgumentException.class, () -> tracker.query().aggregates());
+    }
+}
@@ -0,0 +1,212 @@
+package com.capgemini.expensetracker;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpenseSegmentTest {
+    private static final LocalDate START = LocalDate.of(2025, 1, 1);
+    private static final String[] CATEGORIES = {"Food", "Transport", "Entertainment", "Rent", "Health"};
+
+    @TempDir
+    Path directory;
+
+    // a year of random expenses, several blocks' worth
+    private ExpenseTracker randomTracker(int count) {
+        Random random = new Random(42);
+        ExpenseTracker tracker = new ExpenseTracker();
+        for (int i = 0; i < count; i++) {
+            tracker.addExpenseCents(CATEGORIES[random.nextInt(CATEGORIES.length)], random.nextInt(100_000) - 1000,
+                    START.plusDays(random.nextInt(365)));
+        }
+        return tracker;
+    }
+
+    @Test
+    void testQueriesMatchTracker() throws IOException {
+        ExpenseTracker tracker = randomTracker(20_000);
+        Path file = directory.resolve("2025.segment");
+        assertEquals(20_000, ExpenseSegment.write(tracker, START, START.plusDays(364), file));
+        ExpenseSegment segment = ExpenseSegment.open(file);
+
+        assertEquals(20_000, segment.getExpenseCount());
+        assertTrue(segment.blockCount() >= 20_000 / ExpenseSegment.BLOCK_ROWS);
+        assertEquals(tracker.getTotalCents(), segment.getTotalCents());
+        assertEquals(tracker.getTotalByCategoryCents(), segment.getTotalByCategoryCents());
+        assertEquals(tracker.getExpensesByDate().get(0).getDate(), segment.getFirstDate().get());
+
+        Random random = new Random(7);
+        for (int i = 0; i < 200; i++) {
+            LocalDate from = START.plusDays(random.nextInt(400) - 20);
+            LocalDate to = from.plusDays(random.nextInt(120));
+            assertEquals(tracker.getTotalBetween(from, to), segment.getTotalBetween(from, to), 0.0, from + ".." + to);
+            String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+            assertEquals(tracker.getTotalBetween(category, from, to), segment.getTotalBetween(category, from, to), 0.0);
+        }
+        assertEquals(0.0, segment.getTotalBetween("Travel", START, START.plusDays(364)), 0.0);
+        assertThrows(IllegalArgumentException.class, () -> segment.getTotalBetween(START, START.minusDays(1)));
+    }
+
+    @Test
+    void testFootersAnswerWithoutScanning() throws IOException {
+        ExpenseTracker tracker = randomTracker(20_000);
+        Path file = directory.resolve("2025.segment");
+        ExpenseSegment.write(tracker, START, START.plusDays(364), file);
+        ExpenseSegment segment = ExpenseSegment.open(file);
+
+        segment.getTotal();
+        segment.getTotalByCategory();
+        segment.getTotalBetween(START.minusDays(10), START.plusDays(400));
+        assertEquals(0, segment.rowsScanned(), "Whole blocks should be answered from their footers");
+
+        // a single day cuts through at most two blocks
+        segment.getTotalBetween(START.plusDays(100), START.plusDays(100));
+        assertTrue(segment.rowsScanned() <= 2L * ExpenseSegment.BLOCK_ROWS, "Scanned " + segment.rowsScanned());
+    }
+
+    @Test
+    void testWritesOnlyTheRange() throws IOException {
+        ExpenseTracker tracker = new ExpenseTracker();
+        tracker.addExpense("Food", 12.50, LocalDate.of(2025, 1, 31));
+        tracker.addExpense("Rent", 800.00, LocalDate.of(2025, 2, 1));
+        tracker.addExpense("Food", 0.00, LocalDate.of(2025, 2, 28));
+        long removed = tracker.addExpense("Travel", 99.00, LocalDate.of(2025, 2, 10));
+        tracker.removeExpense(removed);
+        tracker.addExpense("Health", 30.00, LocalDate.of(2025, 3, 1));
+
+        Path file = directory.resolve("2025-02.segment");
+        assertEquals(2, ExpenseSegment.write(tracker, LocalDate.of(2025, 2, 1), LocalDate.of(2025, 2, 28), file));
+        ExpenseSegment segment = ExpenseSegment.open(file);
+        assertEquals(800.0, segment.getTotal(), 0.0);
+        assertEquals(Map.of("Rent", 800.0, "Food", 0.0), segment.getTotalByCategory());
+        assertEquals(LocalDate.of(2025, 2, 28), segment.getLastDate().get());
+        assertEquals(OptionalLong.of(80000), segment.getMaxAmountCents());
+        assertFalse(Files.exists(directory.resolve("2025-02.segment.tmp")));
+
+        Path empty = directory.resolve("empty.segment");
+        assertEquals(0, ExpenseSegment.write(tracker, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31), empty));
+        assertEquals(0.0, ExpenseSegment.open(empty).getTotal(), 0.0);
+        assertTrue(ExpenseSegment.open(empty).getFirstDate().isEmpty());
+    }
+
+    @Test
+    void testDatesFarApartStartNewBlocks() throws IOException {
+        ExpenseTracker tracker = new ExpenseTracker();
+        tracker.addExpense("Food", 1.00, LocalDate.of(1900, 1, 1));
+        tracker.addExpense("Food", 2.00, LocalDate.of(2100, 1, 1));
+        Path file = directory.resolve("wide.segment");
+        ExpenseSegment.write(tracker, LocalDate.of(1900, 1, 1), LocalDate.of(2100, 1, 1), file);
+        ExpenseSegment segment = ExpenseSegment.open(file);
+        assertEquals(2, segment.blockCount());
+        assertEquals(2.0, segment.getTotalBetween(LocalDate.of(2000, 1, 1), LocalDate.of(2100, 1, 1)), 0.0);
+    }
+
+    @Test
+    void testRejectsOtherFiles() throws IOException {
+        Path file = directory.resolve("bad.segment");
+        Files.writeString(file, "Category,Amount,Date\nFood,12.50,2025-12-13\n");
+        assertThrows(IOException.class, () -> ExpenseSegment.open(file));
+    }
+
+    @Test
+    void testArchiveFreezesMonths() throws IOException {
+        ExpenseTracker tracker = randomTracker(5_000);
+        ExpenseTracker expected = randomTracker(5_000);
+        ExpenseArchive archive = new ExpenseArchive(directory.resolve("archive"), tracker);
+        archive.freeze(YearMonth.of(2025, 1));
+        archive.freeze(YearMonth.of(2025, 2));
+        assertThrows(IllegalStateException.class, () -> archive.freeze(YearMonth.of(2025, 1)));
+
+        assertEquals(0.0, tracker.getTotalBetween(START, LocalDate.of(2025, 2, 28)), 0.0,
+                "Frozen expenses should leave the live tracker");
+        assertEquals(expected.getTotal(), archive.getTotal(), 0.0);
+        assertEquals(expected.getTotalByCategory(), archive.getTotalByCategory());
+        LocalDate from = LocalDate.of(2025, 1, 20);
+        LocalDate to = LocalDate.of(2025, 3, 10);
+        assertEquals(expected.getTotalBetween(from, to), archive.getTotalBetween(from, to), 0.0);
+        assertEquals(expected.getTotalBetween("Rent", from, to), archive.getTotalBetween("Rent", from, to), 0.0);
+
+        // segments are found again on the next start
+        ExpenseArchive reopened = new ExpenseArchive(directory.resolve("archive"), tracker);
+        assertEquals(List.of(YearMonth.of(2025, 1), YearMonth.of(2025, 2)), new ArrayList<>(reopened.getSegments().keySet()));
+        assertEquals(expected.getTotal(), reopened.getTotal(), 0.0);
+    }
+
+    @Test
+    void testReopeningFinishesAnInterruptedFreeze() throws IOException {
+        Path journalDirectory = directory.resolve("journal");
+        Path archiveDirectory = directory.resolve("archive");
+        ExpenseTracker expected = randomTracker(5_000);
+        ExpenseTracker tracker = new ExpenseTracker();
+        try (ExpenseJournal journal = ExpenseJournal.open(journalDirectory, tracker)) {
+            Random random = new Random(42);
+            for (int i = 0; i < 5_000; i++) {
+                tracker.addExpenseCents(CATEGORIES[random.nextInt(CATEGORIES.length)], random.nextInt(100_000) - 1000,
+                        START.plusDays(random.nextInt(365)));
+            }
+            // the crash comes after the segment is in place and a few of the month's rows are removed
+            Files.createDirectories(archiveDirectory);
+            ExpenseSegment.write(tracker, START, LocalDate.of(2025, 1, 31), archiveDirectory.resolve("2025-01.segment"));
+            int[] rows = tracker.rowsBetween(Math.toIntExact(START.toEpochDay()), Math.toIntExact(START.plusDays(30).toEpochDay()));
+            for (int i = 0; i < 10; i++) {
+                tracker.removeExpense(rows[i]);
+            }
+            journal.sync();
+        }
+
+        ExpenseTracker restored = new ExpenseTracker();
+        ExpenseJournal restoredJournal = ExpenseJournal.open(journalDirectory, restored);
+        try (ExpenseArchive archive = new ExpenseArchive(archiveDirectory, restored)) {
+            assertEquals(0.0, restored.getTotalBetween(START, LocalDate.of(2025, 1, 31)), 0.0);
+            assertEquals(expected.getTotal(), archive.getTotal(), 1e-6);
+            assertEquals(expected.getTotalBetween(START, LocalDate.of(2025, 2, 10)),
+                    archive.getTotalBetween(START, LocalDate.of(2025, 2, 10)), 1e-6);
+
+            // an expense added to the frozen month afterwards is not one the segment took
+            restored.addExpense("Food", 12.50, LocalDate.of(2025, 1, 15));
+            try (ExpenseArchive reopened = new ExpenseArchive(archiveDirectory, restored)) {
+                assertEquals(expected.getTotal() + 12.50, reopened.getTotal(), 1e-6);
+            }
+        } finally {
+            restoredJournal.close();
+        }
+    }
+
+    @Test
+    void testClosedSegmentIsNotRead() throws IOException {
+        ExpenseTracker tracker = randomTracker(1_000);
+        Path file = directory.resolve("2025.segment");
+        ExpenseSegment.write(tracker, START, START.plusDays(364), file);
+        ExpenseSegment segment = ExpenseSegment.open(file);
+        segment.close();
+        segment.close();
+        assertThrows(IllegalStateException.class, () -> segment.getTotalBetween(START.plusDays(3), START.plusDays(3)));
+        // the footers are still there
+        assertEquals(tracker.getTotalCents(), segment.getTotalCents());
+    }
+
+    @Test
+    void testArchiveSkipsStrayFilesAndClosesOnFailure() throws IOException {
+        Path archiveDirectory = directory.resolve("archive");
+        ExpenseTracker tracker = randomTracker(2_000);
+        try (ExpenseArchive archive = new ExpenseArchive(archiveDirectory, tracker)) {
+            archive.freeze(YearMonth.of(2025, 1));
+        }
+        Files.writeString(archiveDirectory.resolve("notes.segment"), "not a month");
+        try (ExpenseArchive reopened = new ExpenseArchive(archiveDirectory, tracker)) {
+            assertEquals(List.of(YearMonth.of(2025, 1)), new ArrayList<>(reopened.getSegments().keySet()));
+        }
+
+        // a month file that is not a segment fails the whole archive
+        Files.writeString(archiveDirectory.resolve("2025-02.segment"), "not a segment either");
+        assertThrows(IOException.class, () -> new ExpenseArchive(archiveDirectory, tracker));
+    }
+}
@@ -4,9 +4,8 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDate;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -266,4 +265,1124 @@ class ExpenseTrackerTest {
         }
     }
 
+    @Nested
+    class RunningTotalsTests {
+        private final String[] categories = {"Food", "Transport", "Entertainment", "Rent", "Refund"};
+
+        // builds a tracker with a deterministic mix of categories, amounts and dates
+        private ExpenseTracker trackerWith(int count) {
+            ExpenseTracker tracker = new ExpenseTracker();
+            Random random = new Random(42);
+            for (int i = 0; i < count; i++) {
+                String category = categories[random.nextInt(categories.length)];
+                double amount = random.nextInt(100_000) / 100.0 - (category.equals("Refund") ? 500 : 0);
+                tracker.addExpense(category, amount, DATE.plusDays(random.nextInt(365)));
+            }
+            return tracker;
+        }
+
+        // recomputes the totals by walking every expense, the way the tracker used to
+        private Map<String, Double> rescanByCategory(ExpenseTracker tracker) {
+            Map<String, Double> totals = new HashMap<>();
+            for (Expense expense : tracker.getExpenses()) {
+                totals.merge(expense.getCategory(), expense.getAmount(), Double::sum);
+            }
+            return totals;
+        }
+
+        @Test
+        void testTotalMatchesRescan() {
+            ExpenseTracker tracker = trackerWith(10_000);
+            double rescan = 0.0;
+            for (Expense expense : tracker.getExpenses()) {
+                rescan += expense.getAmount();
+            }
+            assertEquals(rescan, tracker.getTotal(), 0.001, "Running total should match a full rescan");
+        }
+
+        @Test
+        void testTotalByCategoryMatchesRescan() {
+            ExpenseTracker tracker = trackerWith(10_000);
+            Map<String, Double> rescan = rescanByCategory(tracker);
+            Map<String, Double> totals = tracker.getTotalByCategory();
+
+            assertEquals(rescan.keySet(), totals.keySet(), "Same categories should be reported");
+            for (Map.Entry<String, Double> entry : rescan.entrySet()) {
+                assertEquals(entry.getValue(), totals.get(entry.getKey()), 0.001,
+                        "Running total for " + entry.getKey() + " should match a full rescan");
+            }
+        }
+
+        @Test
+        void testCategoryExtremesMatchRescan() {
+            ExpenseTracker tracker = trackerWith(10_000);
+            Map<String, Double> rescan = rescanByCategory(tracker);
+            String highest = Collections.max(rescan.entrySet(), Map.Entry.comparingByValue()).getKey();
+            String lowest = Collections.min(rescan.entrySet(), Map.Entry.comparingByValue()).getKey();
+
+            CategoryExtreme extreme = tracker.getCategoryExtremes().orElseThrow();
+            assertEquals(highest, extreme.getHighestCategory());
+            assertEquals(rescan.get(highest), extreme.getHighestAmount(), 0.001);
+            assertEquals(lowest, extreme.getLowestCategory());
+            assertEquals(rescan.get(lowest), extreme.getLowestAmount(), 0.001);
+        }
+
+        @Test
+        void testTotalByCategoryIsReadOnly() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            tracker.addExpense("Food", 12.50, DATE);
+
+            assertThrows(UnsupportedOperationException.class, () -> tracker.getTotalByCategory().put("Food", 0.0),
+                    "The returned map is shared with later callers");
+            assertEquals(12.50, tracker.getTotalByCategory().get("Food"), 0.001);
+        }
+
+        @Test
+        void testTotalsUpdateAfterQuery() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            tracker.addExpense("Food", 12.50, DATE);
+            assertEquals(12.50, tracker.getTotal(), 0.001);
+
+            tracker.addExpense("Food", 7.50, DATE);
+            tracker.addExpense("Travel", 30.00, DATE);
+            assertEquals(50.00, tracker.getTotal(), 0.001, "Total should include expenses added after a query");
+            assertEquals(20.00, tracker.getTotalByCategory().get("Food"), 0.001);
+            assertEquals("Travel", tracker.getCategoryExtremes().orElseThrow().getHighestCategory());
+        }
+    }
+
+    @Nested
+    class ColumnarStoreTests {
+        @Test
+        void testExpensesViewIsReadOnly() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            tracker.addExpense("Food", 12.50, DATE);
+
+            List<Expense> expenses = tracker.getExpenses();
+            assertThrows(UnsupportedOperationException.class, () -> expenses.add(new Expense("Travel", 1.0, DATE)));
+            assertThrows(UnsupportedOperationException.class, () -> expenses.remove(0));
+            assertThrows(IndexOutOfBoundsException.class, () -> expenses.get(1));
+        }
+
+        @Test
+        void testExpensesViewSeesLaterAdds() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            List<Expense> expenses = tracker.getExpenses();
+            tracker.addExpense("Food", 12.50, DATE);
+            tracker.addExpense("Travel", 5.00, DATE.plusDays(1));
+
+            assertEquals(2, expenses.size(), "View should reflect expenses added after it was taken");
+            assertEquals("Travel", expenses.get(1).getCategory());
+            assertEquals(DATE.plusDays(1), expenses.get(1).getDate());
+        }
+
+        @Test
+        void testStoreGrowsPastInitialCapacity() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            for (int i = 0; i < 1000; i++) {
+                tracker.addExpense("Category" + (i % 7), i, DATE.minusDays(i));
+            }
+
+            List<Expense> expenses = tracker.getExpenses();
+            assertEquals(1000, expenses.size());
+            for (int i = 0; i < 1000; i++) {
+                Expense e = expenses.get(i);
+                assertEquals("Category" + (i % 7), e.getCategory());
+                assertEquals(i, e.getAmount(), 0.001);
+                assertEquals(DATE.minusDays(i), e.getDate());
+            }
+        }
+
+        @Test
+        void testColumnScansMatchRunningTotals() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            Random random = new Random(7);
+            for (int i = 0; i < 5000; i++) {
+                tracker.addExpense("Category" + random.nextInt(20), random.nextInt(10_000) / 100.0, DATE);
+            }
+
+            assertEquals(tracker.getTotal(), tracker.rescanTotal(), 0.001);
+            Map<String, Double> totals = tracker.getTotalByCategory();
+            Map<String, Double> rescan = tracker.rescanTotalByCategory();
+            assertEquals(totals.keySet(), rescan.keySet());
+            for (String category : totals.keySet()) {
+                assertEquals(totals.get(category), rescan.get(category), 0.001);
+            }
+        }
+    }
+
+    @Nested
+    class CategoryDictionaryTests {
+        @Test
+        void testCategoryNamesAreInterned() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            tracker.addExpense(new String("Food"), 12.50, DATE);
+            tracker.addExpense(new String("Food"), 3.75, DATE);
+
+            List<Expense> expenses = tracker.getExpenses();
+            assertSame(expenses.get(0).getCategory(), expenses.get(1).getCategory(),
+                    "Equal category names should share one String instance");
+        }
+
+        @Test
+        void testIdsAreDenseInFirstSeenOrder() {
+            CategoryDictionary dictionary = new CategoryDictionary();
+            assertEquals(0, dictionary.intern("Food"));
+            assertEquals(1, dictionary.intern("Travel"));
+            assertEquals(0, dictionary.intern("Food"));
+            assertEquals(2, dictionary.size());
+            assertEquals(1, dictionary.idOf("Travel"));
+            assertEquals(-1, dictionary.idOf("Rent"), "Unknown categories should not be assigned an id");
+            assertEquals("Travel", dictionary.name(1));
+            assertThrows(IndexOutOfBoundsException.class, () -> dictionary.name(2));
+        }
+
+        @Test
+        void testManyCategories() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            for (int i = 0; i < 1000; i++) {
+                tracker.addExpense("Category" + i, i + 1, DATE);
+                tracker.addExpense("Category" + i, 1.0, DATE);
+            }
+
+            Map<String, Double> totals = tracker.getTotalByCategory();
+            assertEquals(1000, totals.size());
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(i + 2, totals.get("Category" + i), 0.001);
+            }
+            CategoryExtreme extreme = tracker.getCategoryExtremes().orElseThrow();
+            assertEquals("Category999", extreme.getHighestCategory());
+            assertEquals("Category0", extreme.getLowestCategory());
+        }
+    }
+
+    @Nested
+    class DateRangeTests {
+        private final String[] categories = {"Food", "Transport", "Rent"};
+
+        // expenses spread over two years, added in random date order
+        private ExpenseTracker trackerWith(int count) {
+            ExpenseTracker tracker = new ExpenseTracker();
+            Random random = new Random(11);
+            for (int i = 0; i < count; i++) {
+                tracker.addExpense(categories[random.nextInt(categories.length)],
+                        random.nextInt(10_000) / 100.0, DATE.minusDays(random.nextInt(730)));
+            }
+            return tracker;
+        }
+
+        private double rescanBetween(ExpenseTracker tracker, String category, LocalDate from, LocalDate to) {
+            double total = 0.0;
+            for (Expense e : tracker.getExpenses()) {
+                if ((category == null || category.equals(e.getCategory()))
+                        && !e.getDate().isBefore(from) && !e.getDate().isAfter(to)) {
+                    total += e.getAmount();
+                }
+            }
+            return total;
+        }
+
+        @Test
+        void testTotalBetweenMatchesRescan() {
+            ExpenseTracker tracker = trackerWith(5000);
+            Random random = new Random(3);
+            for (int i = 0; i < 200; i++) {
+                LocalDate from = DATE.minusDays(random.nextInt(800));
+                LocalDate to = from.plusDays(random.nextInt(400));
+                assertEquals(rescanBetween(tracker, null, from, to), tracker.getTotalBetween(from, to), 0.001);
+                assertEquals(rescanBetween(tracker, "Food", from, to), tracker.getTotalBetween("Food", from, to), 0.001);
+            }
+        }
+
+        @Test
+        void testTotalBetweenIsInclusive() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            tracker.addExpense("Food", 10.0, DATE);
+            tracker.addExpense("Food", 5.0, DATE.plusDays(1));
+            tracker.addExpense("Travel", 2.5, DATE.plusDays(2));
+
+            assertEquals(10.0, tracker.getTotalBetween(DATE, DATE), 0.001);
+            assertEquals(17.5, tracker.getTotalBetween(DATE, DATE.plusDays(2)), 0.001);
+            assertEquals(0.0, tracker.getTotalBetween(DATE.minusYears(5), DATE.minusDays(1)), 0.001);
+            assertEquals(17.5, tracker.getTotalBetween(LocalDate.MIN, LocalDate.MAX), 0.001,
+                    "Open-ended bounds should cover every expense");
+        }
+
+        @Test
+        void testTotalBetweenUnknownCategory() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            tracker.addExpense("Food", 10.0, DATE);
+            assertEquals(0.0, tracker.getTotalBetween("Rent", DATE, DATE), 0.001);
+        }
+
+        @Test
+        void testCategoryIndexKeepsUpWithLaterAdds() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            tracker.addExpense("Food", 10.0, DATE);
+            assertEquals(10.0, tracker.getTotalBetween("Food", DATE, DATE), 0.001);
+
+            tracker.addExpense("Food", 4.0, DATE);
+            tracker.addExpense("Food", 6.0, DATE.minusYears(3));
+            assertEquals(14.0, tracker.getTotalBetween("Food", DATE, DATE), 0.001);
+            assertEquals(20.0, tracker.getTotalBetween("Food", DATE.minusYears(3), DATE), 0.001);
+        }
+
+        @Test
+        void testTotalBetweenRejectsReversedRange() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            assertThrows(IllegalArgumentException.class, () -> tracker.getTotalBetween(DATE, DATE.minusDays(1)));
+        }
+
+        @Test
+        void testTotalsByMonth() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            tracker.addExpense("Food", 10.0, LocalDate.of(2025, 10, 31));
+            tracker.addExpense("Food", 5.0, LocalDate.of(2025, 12, 1));
+            tracker.addExpense("Travel", 2.5, LocalDate.of(2025, 12, 31));
+
+            SortedMap<LocalDate, Double> totals = tracker.getTotalsByBucket(
+                    TimeBucket.MONTH, LocalDate.of(2025, 10, 15), LocalDate.of(2025, 12, 31));
+            assertEquals(List.of(LocalDate.of(2025, 10, 1), LocalDate.of(2025, 11, 1), LocalDate.of(2025, 12, 1)),
+                    new ArrayList<>(totals.keySet()), "Every month in the range should be present");
+            assertEquals(10.0, totals.get(LocalDate.of(2025, 10, 1)), 0.001);
+            assertEquals(0.0, totals.get(LocalDate.of(2025, 11, 1)), 0.001);
+            assertEquals(7.5, totals.get(LocalDate.of(2025, 12, 1)), 0.001);
+
+            SortedMap<LocalDate, Double> food = tracker.getTotalsByBucket(
+                    "Food", TimeBucket.MONTH, LocalDate.of(2025, 10, 15), LocalDate.of(2025, 12, 31));
+            assertEquals(5.0, food.get(LocalDate.of(2025, 12, 1)), 0.001);
+        }
+
+        @Test
+        void testTotalsByWeekAreClippedToRange() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            // 2025-12-13 is a Saturday, its week starts on Monday 2025-12-08
+            tracker.addExpense("Food", 10.0, LocalDate.of(2025, 12, 8));
+            tracker.addExpense("Food", 5.0, DATE);
+            tracker.addExpense("Food", 1.0, LocalDate.of(2025, 12, 15));
+
+            SortedMap<LocalDate, Double> totals = tracker.getTotalsByBucket(TimeBucket.WEEK, DATE, DATE.plusDays(2));
+            assertEquals(2, totals.size());
+            assertEquals(5.0, totals.get(LocalDate.of(2025, 12, 8)), 0.001,
+                    "Expenses before the start date should not be counted in the first week");
+            assertEquals(1.0, totals.get(LocalDate.of(2025, 12, 15)), 0.001);
+        }
+
+        @Test
+        void testTotalsByBucketSumToRangeTotal() {
+            ExpenseTracker tracker = trackerWith(5000);
+            LocalDate from = DATE.minusDays(500);
+            for (TimeBucket bucket : TimeBucket.values()) {
+                double sum = 0.0;
+                for (double amount : tracker.getTotalsByBucket(bucket, from, DATE).values()) {
+                    sum += amount;
+                }
+                assertEquals(tracker.getTotalBetween(from, DATE), sum, 0.001, "Buckets should add up for " + bucket);
+            }
+        }
+
+        @Test
+        void testFirstAndLastDate() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            assertFalse(tracker.getFirstDate().isPresent());
+            tracker.addExpense("Food", 10.0, DATE);
+            tracker.addExpense("Food", 10.0, DATE.minusYears(20));
+            tracker.addExpense("Food", 10.0, DATE.plusYears(20));
+            assertEquals(DATE.minusYears(20), tracker.getFirstDate().orElseThrow());
+            assertEquals(DATE.plusYears(20), tracker.getLastDate().orElseThrow());
+            assertEquals(30.0, tracker.getTotalBetween(DATE.minusYears(20), DATE.plusYears(20)), 0.001);
+        }
+    }
+
+        @Test
+        void testExtremeDatesStayOffTheDenseRange() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            LocalDate far = LocalDate.of(5_000_000, 1, 1);
+            tracker.addExpense("Food", 10.0, DATE);
+            tracker.addExpense("Food", 2.5, far);
+            tracker.addExpense("Rent", 1.0, LocalDate.of(-5_000_000, 1, 1));
+            tracker.addExpense("Food", 4.0, DATE.minusYears(50));
+
+            assertEquals(17.5, tracker.getTotal(), 0.001);
+            assertEquals(14.0, tracker.getTotalBetween(DATE.minusYears(100), DATE), 0.001);
+            assertEquals(2.5, tracker.getTotalBetween("Food", far, far), 0.001);
+            assertEquals(17.5, tracker.getTotalBetween(LocalDate.MIN, LocalDate.MAX), 0.001);
+            assertTrue(tracker.estimatedBytes() < 8L << 20, "The far dates should not widen the per-day arrays");
+
+            tracker.removeExpense(1);
+            assertEquals(0.0, tracker.getTotalBetween(far, far), 0.001);
+            assertEquals(15.0, tracker.getTotalBetween(LocalDate.MIN, LocalDate.MAX), 0.001);
+        }
+
+    @Nested
+    class DateOrderTests {
+        // the date order the old showTrends produced with a stable sort
+        private List<Expense> sortedCopy(ExpenseTracker tracker) {
+            List<Expense> sorted = new ArrayList<>(tracker.getExpenses());
+            sorted.sort(Comparator.comparing(Expense::getDate));
+            return sorted;
+        }
+
+        private void assertSameExpenses(List<Expense> expected, List<Expense> actual) {
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getDate(), actual.get(i).getDate(), "Date at " + i);
+                assertEquals(expected.get(i).getCategory(), actual.get(i).getCategory(), "Category at " + i);
+                assertEquals(expected.get(i).getAmount(), actual.get(i).getAmount(), 0.001, "Amount at " + i);
+            }
+        }
+
+        @Test
+        void testMatchesStableSort() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            Random random = new Random(5);
+            for (int i = 0; i < 3000; i++) {
+                tracker.addExpense("Category" + i, i, DATE.minusDays(random.nextInt(100)));
+            }
+            assertSameExpenses(sortedCopy(tracker), tracker.getExpensesByDate());
+        }
+
+        @Test
+        void testMostlyInOrderFeed() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            for (int i = 0; i < 1000; i++) {
+                // every tenth expense arrives a few days late
+                LocalDate date = i % 10 == 9 ? DATE.plusDays(i - 5) : DATE.plusDays(i);
+                tracker.addExpense("Food", i, date);
+            }
+            assertSameExpenses(sortedCopy(tracker), tracker.getExpensesByDate());
+        }
+
+        @Test
+        void testSameDateKeepsInsertionOrder() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            tracker.addExpense("First", 1.0, DATE);
+            tracker.addExpense("Later", 1.0, DATE.plusDays(1));
+            tracker.addExpense("Second", 1.0, DATE);
+
+            List<Expense> byDate = tracker.getExpensesByDate();
+            assertEquals("First", byDate.get(0).getCategory());
+            assertEquals("Second", byDate.get(1).getCategory());
+            assertEquals("Later", byDate.get(2).getCategory());
+        }
+
+        @Test
+        void testPaging() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            for (int i = 99; i >= 0; i--) {
+                tracker.addExpense("Food", i, DATE.plusDays(i));
+            }
+
+            List<Expense> page = tracker.getExpensesByDate(20, 10);
+            assertEquals(10, page.size());
+            assertEquals(DATE.plusDays(20), page.get(0).getDate());
+            assertEquals(DATE.plusDays(29), page.get(9).getDate());
+
+            assertEquals(5, tracker.getExpensesByDate(95, 10).size(), "Last page should be cut short");
+            assertTrue(tracker.getExpensesByDate(200, 10).isEmpty(), "Offset past the end should give an empty page");
+            assertEquals(100, tracker.getExpensesByDate(0, Integer.MAX_VALUE).size());
+            assertThrows(IllegalArgumentException.class, () -> tracker.getExpensesByDate(-1, 10));
+        }
+
+        @Test
+        void testBulkInsertMatchesStableSort() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            Random random = new Random(9);
+            for (int i = 0; i < 500; i++) {
+                tracker.addExpense("Single", i, DATE.plusDays(random.nextInt(50)));
+            }
+
+            int count = 2000;
+            int[] categoryIds = new int[count];
+            long[] amounts = new long[count];
+            int[] epochDays = new int[count];
+            int bulk = tracker.categories().intern("Bulk");
+            for (int i = 0; i < count; i++) {
+                categoryIds[i] = bulk;
+                amounts[i] = i;
+                epochDays[i] = (int) DATE.plusDays(random.nextInt(100) - 25).toEpochDay();
+            }
+            tracker.addRows(categoryIds, amounts, epochDays, count);
+
+            assertSameExpenses(sortedCopy(tracker), tracker.getExpensesByDate());
+        }
+
+        @Test
+        void testViewIsReadOnlyAndLive() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            List<Expense> byDate = tracker.getExpensesByDate();
+            tracker.addExpense("Food", 1.0, DATE);
+            tracker.addExpense("Travel", 2.0, DATE.minusDays(1));
+
+            assertEquals(2, byDate.size());
+            assertEquals("Travel", byDate.get(0).getCategory());
+            assertThrows(UnsupportedOperationException.class, () -> byDate.remove(0));
+        }
+    }
+
+    @Nested
+    class AddExpensesBatchTests {
+        @Test
+        void testBatchMatchesSingleAdds() {
+            ExpenseTracker single = new ExpenseTracker();
+            ExpenseTracker batched = new ExpenseTracker();
+            ExpenseBatch batch = new ExpenseBatch(4);
+            Random random = new Random(21);
+            for (int i = 0; i < 100; i++) {
+                String category = "Category" + random.nextInt(5);
+                double amount = random.nextInt(10_000) / 100.0;
+                LocalDate date = DATE.minusDays(random.nextInt(60));
+                single.addExpense(category, amount, date);
+                batch.add(category, amount, date);
+            }
+            assertEquals(100, batch.size(), "Batch should grow past its initial capacity");
+            batched.addExpenses(batch);
+
+            assertEquals(single.getTotal(), batched.getTotal(), 0.0);
+            assertEquals(single.getTotalByCategory(), batched.getTotalByCategory());
+            for (int i = 0; i < 100; i++) {
+                assertEquals(single.getExpensesByDate().get(i).getAmount(), batched.getExpensesByDate().get(i).getAmount(), 0.0);
+            }
+        }
+
+        @Test
+        void testClearedBatchCanBeReused() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            ExpenseBatch batch = new ExpenseBatch(2);
+            batch.add("Food", 1.0, DATE);
+            batch.add("Food", 2.0, DATE);
+            assertTrue(batch.isFull());
+            tracker.addExpenses(batch);
+            batch.clear();
+            assertTrue(batch.isEmpty());
+
+            batch.add("Travel", 4.0, DATE);
+            tracker.addExpenses(batch);
+            assertEquals(3, tracker.getExpenses().size());
+            assertEquals(7.0, tracker.getTotal(), 0.001);
+        }
+    }
+
+    @Nested
+    class FixedPointTests {
+        @Test
+        void testDecimalAmountsSumExactly() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            for (int i = 0; i < 10; i++) {
+                tracker.addExpense("Food", 0.1, DATE);
+            }
+            assertEquals(100, tracker.getTotalCents());
+            assertEquals(1.0, tracker.getTotal(), 0.0, "0.1 ten times should be exactly 1.00");
+            assertEquals(1.0, tracker.getTotalBetween(DATE, DATE), 0.0);
+        }
+
+        @Test
+        void testTotalsDoNotDependOnInsertionOrder() {
+            List<Double> amounts = new ArrayList<>();
+            Random random = new Random(9);
+            for (int i = 0; i < 10_000; i++) {
+                amounts.add(random.nextInt(1_000_000) / 100.0);
+            }
+            ExpenseTracker inOrder = new ExpenseTracker();
+            amounts.forEach(amount -> inOrder.addExpense("Food", amount, DATE));
+            Collections.shuffle(amounts, random);
+            ExpenseTracker shuffled = new ExpenseTracker();
+            amounts.forEach(amount -> shuffled.addExpense("Food", amount, DATE));
+
+            assertEquals(inOrder.getTotal(), shuffled.getTotal(), 0.0);
+            assertEquals(inOrder.getTotalByCategory(), shuffled.getTotalByCategory());
+        }
+
+        @Test
+        void testCentsApi() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            tracker.addExpenseCents("Food", 1250, DATE);
+            tracker.addExpense("Travel", 0.005, DATE);
+            tracker.addExpense("Food", 2.499, DATE);
+
+            assertEquals(1250 + 1 + 250, tracker.getTotalCents(), "Amounts should be rounded to the nearest cent");
+            assertEquals(Map.of("Food", 1500L, "Travel", 1L), tracker.getTotalByCategoryCents());
+            assertEquals(1250, tracker.getExpenses().get(0).getAmountCents());
+            assertEquals(12.5, tracker.getExpenses().get(0).getAmount(), 0.0);
+            assertEquals(1500, tracker.getCategoryExtremes().orElseThrow().getHighestAmountCents());
+        }
+    }
+
+    @Nested
+    class ParallelAggregationTests {
+        private ExpenseTracker largeTracker(int rows, int categories) {
+            ExpenseTracker tracker = new ExpenseTracker();
+            Random random = new Random(17);
+            for (int i = 0; i < rows; i++) {
+                tracker.addExpense("Category" + random.nextInt(categories), random.nextInt(100_000) / 100.0, DATE.minusDays(i % 90));
+            }
+            return tracker;
+        }
+
+        @Test
+        void testParallelSumsMatchSequentialScan() {
+            ExpenseTracker tracker = largeTracker(200_000, 50);
+            ExpenseStore store = tracker.store();
+            long[] sequential = store.sumAmountsByCategory();
+            ForkJoinPool pool = new ForkJoinPool(4);
+            try {
+                for (int threshold : new int[]{1, 100, 4096, 1 << 16, 1 << 20}) {
+                    assertArrayEquals(sequential, ParallelAggregation.sumByCategory(store, 50, pool, threshold),
+                            "Threshold " + threshold + " should give the sequential result");
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        @Test
+        void testFilteredScansMatchAcrossThresholds() {
+            ExpenseTracker tracker = largeTracker(200_000, 50);
+            for (int id = 0; id < 200_000; id += 7) {
+                tracker.removeExpense(id);
+            }
+            boolean[] selected = new boolean[50];
+            for (int id = 0; id < 50; id += 3) {
+                selected[id] = true;
+            }
+            ParallelAggregation.Scan scan = new ParallelAggregation.Scan(tracker.store(), selected, 10_000, 60_000, true, 50);
+            ParallelAggregation.Partial sequential = new ParallelAggregation.Partial(50);
+            scan.fold(0, tracker.store().size(), sequential);
+            ForkJoinPool pool = new ForkJoinPool(4);
+            try {
+                for (int threshold : new int[]{1, 4096, 1 << 20}) {
+                    ParallelAggregation.Partial partial = ParallelAggregation.aggregate(scan, pool, threshold);
+                    assertArrayEquals(sequential.counts, partial.counts, "Threshold " + threshold);
+                    assertArrayEquals(sequential.sums, partial.sums, "Threshold " + threshold);
+                    assertArrayEquals(sequential.mins, partial.mins, "Threshold " + threshold);
+                    assertArrayEquals(sequential.maxes, partial.maxes, "Threshold " + threshold);
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        @Test
+        void testRescansMatchRunningTotals() {
+            ExpenseTracker tracker = largeTracker(150_000, 1000);
+            assertEquals(tracker.getTotalByCategory(), tracker.rescanTotalByCategory());
+
+            CategoryExtreme running = tracker.getCategoryExtremes().orElseThrow();
+            CategoryExtreme rescan = tracker.rescanCategoryExtremes().orElseThrow();
+            assertEquals(running.getHighestCategory(), rescan.getHighestCategory());
+            assertEquals(running.getHighestAmountCents(), rescan.getHighestAmountCents());
+            assertEquals(running.getLowestCategory(), rescan.getLowestCategory());
+            assertEquals(running.getLowestAmountCents(), rescan.getLowestAmountCents());
+        }
+
+        @Test
+        void testRescansTakeCategoriesFromTheRows() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            long food = tracker.addExpense("Food", 10.0, DATE);
+            long rent = tracker.addExpense("Rent", 20.0, DATE);
+            tracker.removeExpense(rent);
+            tracker.addExpense("Travel", 0.0, DATE);
+
+            // rows written straight to the store, behind the running aggregates' back
+            ExpenseStore store = tracker.store();
+            store.remove((int) food);
+            store.add(tracker.categories().idOf("Rent"), 500, (int) DATE.toEpochDay());
+
+            assertEquals(Map.of("Rent", 5.0, "Travel", 0.0), tracker.rescanTotalByCategory());
+            CategoryExtreme rescan = tracker.rescanCategoryExtremes().orElseThrow();
+            assertEquals("Rent", rescan.getHighestCategory());
+            assertEquals("Travel", rescan.getLowestCategory());
+        }
+
+        @Test
+        void testEmptyStore() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            assertTrue(tracker.rescanTotalByCategory().isEmpty());
+            assertFalse(tracker.rescanCategoryExtremes().isPresent());
+        }
+    }
+
+    @Nested
+    class RankingTests {
+        @Test
+        void testTopAndBottomCategories() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            tracker.addExpense("Food", 50.0, DATE);
+            tracker.addExpense("Rent", 800.0, DATE);
+            tracker.addExpense("Travel", 20.0, DATE);
+            tracker.addExpense("Gifts", 50.0, DATE);
+            tracker.addExpense("Food", 5.0, DATE);
+
+            List<CategoryRank> top = tracker.getTopCategories(3);
+            assertEquals(List.of("Rent", "Food", "Gifts"), top.stream().map(CategoryRank::getCategory).toList());
+            assertEquals(List.of(1, 2, 3), top.stream().map(CategoryRank::getRank).toList());
+            assertEquals(55.0, top.get(1).getAmount(), 0.0);
+
+            List<CategoryRank> bottom = tracker.getBottomCategories(2);
+            assertEquals(List.of("Travel", "Gifts"), bottom.stream().map(CategoryRank::getCategory).toList());
+            assertEquals(4, tracker.getTopCategories(10).size(), "Asking for more than exist returns them all");
+            assertTrue(tracker.getTopCategories(0).isEmpty());
+            assertThrows(IllegalArgumentException.class, () -> tracker.getTopCategories(-1));
+        }
+
+        @Test
+        void testRankingsMatchFullSort() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            Random random = new Random(12);
+            for (int i = 0; i < 20_000; i++) {
+                tracker.addExpense("Category" + random.nextInt(300), random.nextInt(5000) / 100.0 + 0.01, DATE);
+            }
+
+            List<Map.Entry<String, Long>> sorted = new ArrayList<>(tracker.getTotalByCategoryCents().entrySet());
+            sorted.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+            List<CategoryRank> top = tracker.getTopCategories(25);
+            for (int i = 0; i < 25; i++) {
+                assertEquals(sorted.get(i).getValue(), top.get(i).getAmountCents(), "Rank " + (i + 1));
+            }
+
+            List<Expense> byAmount = new ArrayList<>(tracker.getExpenses());
+            byAmount.sort(Comparator.comparingDouble(Expense::getAmount).reversed());
+            for (int k : new int[]{10, ExpenseTracker.LARGEST_TRACKED, ExpenseTracker.LARGEST_TRACKED + 100}) {
+                List<Expense> largest = tracker.getLargestExpenses(k);
+                assertEquals(k, largest.size());
+                for (int i = 0; i < k; i++) {
+                    assertEquals(byAmount.get(i).getAmount(), largest.get(i).getAmount(), 0.0, "Position " + i + " of " + k);
+                }
+            }
+        }
+
+        @Test
+        void testLargestExpensesKeepInsertionOrderOnTies() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            tracker.addExpense("First", 10.0, DATE);
+            tracker.addExpense("Small", 1.0, DATE);
+            tracker.addExpense("Second", 10.0, DATE);
+            tracker.addExpense("Largest", 99.0, DATE);
+
+            List<Expense> largest = tracker.getLargestExpenses(3);
+            assertEquals(List.of("Largest", "First", "Second"), largest.stream().map(Expense::getCategory).toList());
+        }
+
+        @Test
+        void testAmountQuantiles() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            for (int i = 1; i <= 1000; i++) {
+                tracker.addExpense("Food", i, DATE);
+            }
+            tracker.addExpense("Rent", 800.0, DATE);
+
+            assertEquals(500.0, tracker.getAmountQuantile("Food", 0.5).orElseThrow(), 500 * 0.01);
+            assertEquals(900.0, tracker.getAmountQuantile("Food", 0.9).orElseThrow(), 900 * 0.01);
+            assertEquals(990.0, tracker.getAmountQuantile("Food", 0.99).orElseThrow(), 990 * 0.01);
+            assertEquals(800.0, tracker.getAmountQuantile("Rent", 0.5).orElseThrow(), 0.0, "A single value is exact");
+            assertFalse(tracker.getAmountQuantile("Travel", 0.5).isPresent());
+            assertThrows(IllegalArgumentException.class, () -> tracker.getAmountQuantile("Food", 1.5));
+        }
+    }
+
+    @Nested
+    class RemoveAndUpdateTests {
+        private final String[] names = {"Food", "Rent", "Travel", "Gifts", "Health", "Books"};
+
+        // compares every aggregate of the tracker with a recomputation from the live expenses
+        private void assertMatchesModel(ExpenseTracker tracker, Map<Long, Expense> live) {
+            long total = 0;
+            Map<String, Long> byCategory = new HashMap<>();
+            for (Expense expense : live.values()) {
+                total += expense.getAmountCents();
+                byCategory.merge(expense.getCategory(), expense.getAmountCents(), Long::sum);
+            }
+            assertEquals(total, tracker.getTotalCents());
+            assertEquals(byCategory, tracker.getTotalByCategoryCents());
+            assertEquals(live.size(), tracker.getExpenses().size());
+            assertEquals(live.size(), tracker.getExpensesByDate().size());
+
+            List<Map.Entry<String, Long>> ranked = new ArrayList<>(byCategory.entrySet());
+            ranked.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+            List<CategoryRank> top = tracker.getTopCategories(byCategory.size());
+            for (int i = 0; i < ranked.size(); i++) {
+                assertEquals(ranked.get(i).getValue(), top.get(i).getAmountCents());
+            }
+            Optional<CategoryExtreme> extreme = tracker.getCategoryExtremes();
+            assertEquals(byCategory.isEmpty(), !extreme.isPresent());
+            if (!byCategory.isEmpty()) {
+                assertEquals(Collections.max(byCategory.values()), extreme.get().getHighestAmountCents());
+                assertEquals(Collections.min(byCategory.values()), extreme.get().getLowestAmountCents());
+                assertEquals(byCategory.get(extreme.get().getHighestCategory()), extreme.get().getHighestAmountCents());
+            }
+
+            List<Expense> byDate = tracker.getExpensesByDate();
+            for (int i = 1; i < byDate.size(); i++) {
+                Expense previous = byDate.get(i - 1);
+                Expense current = byDate.get(i);
+                assertTrue(previous.getDate().isBefore(current.getDate())
+                        || (previous.getDate().equals(current.getDate()) && previous.getId() < current.getId()),
+                        "Date order should be by date, then by id");
+            }
+            long inRange = live.values().stream()
+                    .filter(e -> !e.getDate().isBefore(DATE.minusDays(20)) && !e.getDate().isAfter(DATE.minusDays(5)))
+                    .mapToLong(Expense::getAmountCents).sum();
+            assertEquals(Money.toAmount(inRange), tracker.getTotalBetween(DATE.minusDays(20), DATE.minusDays(5)), 0.0);
+
+            long largest = live.values().stream().mapToLong(Expense::getAmountCents).max().orElse(-1);
+            List<Expense> largestExpenses = tracker.getLargestExpenses(1);
+            assertEquals(largest, largestExpenses.isEmpty() ? -1 : largestExpenses.get(0).getAmountCents());
+        }
+
+        @Test
+        void testRemoveAndUpdate() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            long food = tracker.addExpense("Food", 50.0, DATE);
+            long rent = tracker.addExpense("Rent", 800.0, DATE.minusDays(3));
+            long travel = tracker.addExpense("Travel", 20.0, DATE.minusDays(1));
+
+            assertTrue(tracker.removeExpense(rent));
+            assertFalse(tracker.removeExpense(rent), "A removed expense cannot be removed again");
+            assertFalse(tracker.getExpense(rent).isPresent());
+            assertEquals(70.0, tracker.getTotal(), 0.0);
+            assertFalse(tracker.getTotalByCategory().containsKey("Rent"), "Categories without expenses drop out");
+            assertEquals("Food", tracker.getCategoryExtremes().orElseThrow().getHighestCategory());
+            assertEquals(DATE.minusDays(1), tracker.getFirstDate().orElseThrow());
+
+            assertTrue(tracker.updateExpense(travel, "Food", 25.0, DATE.minusDays(10)));
+            assertEquals(75.0, tracker.getTotalByCategory().get("Food"), 0.0);
+            assertEquals(DATE.minusDays(10), tracker.getFirstDate().orElseThrow());
+            assertEquals(List.of(travel, food), tracker.getExpensesByDate().stream().map(Expense::getId).toList());
+            assertEquals(List.of(food, travel), tracker.getExpenses().stream().map(Expense::getId).toList(),
+                    "Ids should not change");
+            assertEquals(25.0, tracker.getExpense(travel).orElseThrow().getAmount(), 0.0);
+
+            assertFalse(tracker.updateExpense(99, "Food", 1.0, DATE));
+            assertFalse(tracker.removeExpense(-1));
+        }
+
+        @Test
+        void testDateOrderAcrossManyBlocks() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            Random random = new Random(21);
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < 20_000; i++) {
+                ids.add(tracker.addExpense("Food", 1.0, DATE.minusDays(random.nextInt(200))));
+            }
+            ExpenseBatch batch = new ExpenseBatch(5000);
+            for (int i = 0; i < 5000; i++) {
+                batch.add("Rent", 2.0, DATE.minusDays(random.nextInt(200)));
+            }
+            tracker.addExpenses(batch);
+            // a short batch is inserted row by row instead of being merged with the whole index
+            batch.clear();
+            for (int i = 0; i < 10; i++) {
+                batch.add("Gifts", 3.0, DATE.minusDays(random.nextInt(200)));
+            }
+            tracker.addExpenses(batch);
+            for (int i = 0; i < 10_000; i++) {
+                long id = ids.get(random.nextInt(ids.size()));
+                if (random.nextBoolean()) {
+                    tracker.updateExpense(id, "Food", 1.0, DATE.minusDays(random.nextInt(200)));
+                } else {
+                    tracker.removeExpense(id);
+                }
+            }
+
+            List<Expense> expected = new ArrayList<>(tracker.getExpenses());
+            expected.sort(Comparator.comparing(Expense::getDate).thenComparingLong(Expense::getId));
+            List<Expense> byDate = tracker.getExpensesByDate();
+            assertEquals(expected.size(), byDate.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getId(), byDate.get(i).getId());
+            }
+            assertEquals(expected.get(expected.size() - 1).getId(), byDate.get(byDate.size() - 1).getId(),
+                    "Jumping to the end should find the same row as walking there");
+        }
+
+        @Test
+        void testRandomChangesMatchRecomputation() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            Map<Long, Expense> live = new LinkedHashMap<>();
+            List<Long> ids = new ArrayList<>();
+            Random random = new Random(13);
+            for (int step = 0; step < 3000; step++) {
+                int action = random.nextInt(10);
+                String category = names[random.nextInt(names.length)];
+                long cents = 1 + random.nextInt(random.nextBoolean() ? 1000 : 100_000);
+                LocalDate date = DATE.minusDays(random.nextInt(30));
+                if (action < 5 || ids.isEmpty()) {
+                    long id = tracker.addExpenseCents(category, cents, date);
+                    live.put(id, Expense.ofCents(category, cents, date));
+                    ids.add(id);
+                } else if (action < 8) {
+                    long id = ids.get(random.nextInt(ids.size()));
+                    assertTrue(tracker.updateExpenseCents(id, category, cents, date));
+                    live.put(id, Expense.ofCents(category, cents, date));
+                } else {
+                    long id = ids.remove(random.nextInt(ids.size()));
+                    assertTrue(tracker.removeExpense(id));
+                    live.remove(id);
+                }
+                if (step % 100 == 0) {
+                    assertMatchesModel(tracker, live);
+                }
+            }
+            assertMatchesModel(tracker, live);
+
+            // the views skip removed expenses and keep the rest in id order
+            List<Long> expectedIds = new ArrayList<>(live.keySet());
+            Collections.sort(expectedIds);
+            assertEquals(expectedIds, tracker.getExpenses().stream().map(Expense::getId).toList());
+            assertEquals(tracker.getTotalByCategory(), tracker.rescanTotalByCategory());
+
+            while (!ids.isEmpty()) {
+                long id = ids.remove(ids.size() - 1);
+                tracker.removeExpense(id);
+                live.remove(id);
+            }
+            assertMatchesModel(tracker, live);
+            assertFalse(tracker.getFirstDate().isPresent());
+            assertTrue(tracker.getTopCategories(3).isEmpty());
+        }
+    }
+
+    @Nested
+    class QueryCacheTests {
+        @Test
+        void testUnchangedDataIsServedFromCache() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            tracker.addExpense("Food", 12.50, DATE);
+            tracker.addExpense("Rent", 800.00, DATE.minusDays(40));
+
+            Map<String, Double> first = tracker.getTotalByCategory();
+            assertSame(first, tracker.getTotalByCategory(), "Unchanged data should not be recomputed");
+            SortedMap<LocalDate, Double> months = tracker.getTotalsByBucket(TimeBucket.MONTH, DATE.minusDays(60), DATE);
+            assertSame(months, tracker.getTotalsByBucket(TimeBucket.MONTH, DATE.minusDays(60), DATE));
+            assertSame(tracker.getTopCategories(2), tracker.getTopCategories(2));
+
+            CacheStats stats = tracker.getQueryCacheStats();
+            assertEquals(3, stats.getHits());
+            assertEquals(3, stats.getMisses());
+            assertEquals(0.5, stats.getHitRate(), 0.0);
+        }
+
+        @Test
+        void testParametersAreSeparateEntries() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            tracker.addExpense("Food", 12.50, DATE);
+            tracker.addExpense("Rent", 800.00, DATE.minusDays(40));
+
+            assertEquals(1, tracker.getTopCategories(1).size());
+            assertEquals(2, tracker.getTopCategories(2).size());
+            assertEquals("Food", tracker.getBottomCategories(1).get(0).getCategory());
+            assertEquals(12.50, tracker.getTotalsByBucket("Food", TimeBucket.MONTH, DATE, DATE).get(DATE.withDayOfMonth(1)), 0.0);
+            assertEquals(0.0, tracker.getTotalsByBucket("Rent", TimeBucket.MONTH, DATE, DATE).get(DATE.withDayOfMonth(1)), 0.0);
+            assertEquals(5, tracker.getQueryCacheStats().getMisses());
+        }
+
+        @Test
+        void testEveryChangeInvalidates() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            long food = tracker.addExpense("Food", 12.50, DATE);
+            assertEquals(Map.of("Food", 12.50), tracker.getTotalByCategory());
+
+            tracker.addExpense("Food", 2.50, DATE);
+            assertEquals(Map.of("Food", 15.00), tracker.getTotalByCategory());
+            tracker.updateExpense(food, "Rent", 5.00, DATE);
+            assertEquals(Map.of("Food", 2.50, "Rent", 5.00), tracker.getTotalByCategory());
+            tracker.removeExpense(food);
+            assertEquals(Map.of("Food", 2.50), tracker.getTotalByCategory());
+            ExpenseBatch batch = new ExpenseBatch(1);
+            batch.add("Gifts", 1.00, DATE);
+            tracker.addExpenses(batch);
+            assertEquals(Map.of("Food", 2.50, "Gifts", 1.00), tracker.getTotalByCategory());
+            assertEquals(1.00, tracker.getLargestExpenses(2).get(1).getAmount(), 0.0);
+            tracker.addExpense("Gifts", 9.00, DATE);
+            assertEquals(9.00, tracker.getLargestExpenses(2).get(0).getAmount(), 0.0);
+            assertEquals(0, tracker.getQueryCacheStats().getHits());
+        }
+
+        @Test
+        void testCacheIsBounded() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            tracker.addExpense("Food", 12.50, DATE);
+            for (int k = 1; k <= 1000; k++) {
+                tracker.getTopCategories(k);
+            }
+            assertEquals(QueryCache.DEFAULT_CAPACITY, tracker.getQueryCacheStats().getSize());
+        }
+    }
+
+    @Nested
+    class BudgetTests {
+        // the budget's category is new and past the initial capacity of the per-category arrays
+        @Test
+        void testBudgetOnCategoryWithoutExpenses() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            for (int i = 0; i < 16; i++) {
+                tracker.addExpense("Category" + i, 10.00, DATE);
+            }
+            List<BudgetAlert> alerts = new ArrayList<>();
+            Budget budget = tracker.addBudget("New", 10.00, 7, alerts::add);
+            assertEquals(0, budget.getWindowTotalCents());
+            assertEquals(0.0, tracker.getTotalBetween("New", DATE.minusDays(7), DATE), 0.0);
+            assertTrue(tracker.getAmountQuantile("New", 0.5).isEmpty());
+            ExpenseQuery query = tracker.query().categories("New").between(DATE.minusDays(7), DATE)
+                    .aggregates(ExpenseQuery.Aggregate.SUM);
+            assertEquals(ExpenseQuery.Plan.DAILY_TOTALS, query.plan());
+            assertEquals(0, query.run().get(0).getSumCents());
+            assertFalse(tracker.getTotalByCategory().containsKey("New"));
+
+            tracker.addExpense("New", 11.00, DATE);
+            assertEquals(1, alerts.size());
+            assertEquals(11.00, tracker.getTotalBetween("New", DATE, DATE), 0.0);
+        }
+
+        @Test
+        void testAlertWhenRollingWindowGoesOver() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            List<BudgetAlert> alerts = new ArrayList<>();
+            Budget budget = tracker.addBudget("Food", 500.00, 30, alerts::add);
+            tracker.addExpense("Food", 200.00, DATE);
+            tracker.addExpense("Rent", 900.00, DATE.plusDays(5));
+            tracker.addExpense("Food", 200.00, DATE.plusDays(10));
+            assertTrue(alerts.isEmpty());
+            tracker.addExpense("Food", 200.00, DATE.plusDays(20));
+
+            assertEquals(1, alerts.size());
+            BudgetAlert alert = alerts.get(0);
+            assertSame(budget, alert.getBudget());
+            assertEquals(600.00, alert.getTotal(), 0.0);
+            assertEquals(DATE.plusDays(20).minusDays(29), alert.getWindowStart());
+            assertEquals(DATE.plusDays(20), alert.getWindowEnd());
+            assertTrue(budget.isOver());
+
+            // still over: no second alert until the total has been back under the limit
+            tracker.addExpense("Food", 50.00, DATE.plusDays(21));
+            assertEquals(1, alerts.size());
+            // the first expense leaves the window, 450 is back under
+            tracker.addExpense("Food", 0.00, DATE.plusDays(30));
+            assertFalse(budget.isOver());
+            assertEquals(450.00, budget.getWindowTotal(), 0.0);
+            long id = tracker.addExpense("Food", 100.00, DATE.plusDays(31));
+            assertEquals(2, alerts.size());
+
+            // a removal can bring it back under, and a late expense inside the window counts
+            tracker.removeExpense(id);
+            assertFalse(budget.isOver());
+            tracker.addExpense("Food", 200.00, DATE.plusDays(15));
+            assertEquals(3, alerts.size());
+        }
+
+        @Test
+        void testBudgetStartsFromHistory() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            tracker.addExpense("Food", 300.00, DATE.minusDays(40));
+            tracker.addExpense("Food", 300.00, DATE.minusDays(3));
+            tracker.addExpense("Rent", 800.00, DATE);
+            List<BudgetAlert> alerts = new ArrayList<>();
+            Budget week = tracker.addBudget("Food", 200.00, 7, alerts::add);
+            Budget quarter = tracker.addBudget("Food", 1000.00, 90, alerts::add);
+            assertEquals(300.00, week.getWindowTotal(), 0.0);
+            assertTrue(week.isOver(), "Already over, without an alert");
+            assertEquals(600.00, quarter.getWindowTotal(), 0.0);
+            assertEquals(List.of(week, quarter), tracker.getBudgets());
+
+            tracker.addExpense("Food", 500.00, DATE);
+            assertEquals(1, alerts.size());
+            assertSame(quarter, alerts.get(0).getBudget());
+
+            assertTrue(tracker.removeBudget(quarter));
+            assertFalse(tracker.removeBudget(quarter));
+            assertEquals(List.of(week), tracker.getBudgets());
+            assertThrows(IllegalArgumentException.class, () -> tracker.addBudget("Food", 1.00, 0, alerts::add));
+        }
+
+        @Test
+        void testListenerSeesUpdatedTracker() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            tracker.addBudget("Food", 10.00, 1, alert -> {
+                assertEquals(15.00, tracker.getTotal(), 0.0);
+                assertEquals(2, tracker.getExpensesByDate().size());
+                throw new IllegalStateException("Over budget");
+            });
+            tracker.addExpense("Food", 5.00, DATE);
+            assertThrows(IllegalStateException.class, () -> tracker.addExpense("Food", 10.00, DATE));
+            assertEquals(15.00, tracker.getTotal(), 0.0);
+            assertEquals(2, tracker.getExpensesByDate().size(), "The expense is added before the listener runs");
+        }
+
+        @Test
+        void testWindowsEndAtTheCategorysLatestDay() {
+            ExpenseTracker tracker = new ExpenseTracker();
+            List<BudgetAlert> alerts = new ArrayList<>();
+            tracker.addExpense("Food", 10.00, DATE.minusDays(10));
+            tracker.addExpense("Rent", 800.00, DATE);
+
+            Budget food = tracker.addBudget("Food", 8.00, 5, alerts::add);
+            assertEquals(1000, food.getWindowTotalCents(), "The window should end at Food's own latest day");
+            assertTrue(alerts.isEmpty(), "A budget that starts out over does not alert");
+
+            tracker.addExpense("Food", 1.00, DATE.minusDays(8));
+            assertEquals(1100, food.getWindowTotalCents());
+            Budget travel = tracker.addBudget("Travel", 1.00, 5, alerts::add);
+            assertEquals(0, travel.getWindowTotalCents());
+        }
+
+        @Test
+        void testRandomChangesMatchRecomputation() {
+            Random random = new Random(42);
+            String[] names = {"Food", "Rent", "Travel"};
+            ExpenseTracker tracker = new ExpenseTracker();
+            Map<Budget, Integer> alerts = new HashMap<>();
+            List<Budget> budgets = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                budgets.add(tracker.addBudgetCents(names[i % names.length], 10_000 + random.nextInt(100_000),
+                        1 + random.nextInt(i < 20 ? 10 : 100), alert -> alerts.merge(alert.getBudget(), 1, Integer::sum)));
+            }
+            Map<String, LocalDate> heads = new HashMap<>();
+            Map<Budget, Integer> expectedAlerts = new HashMap<>();
+            Map<Budget, Boolean> over = new HashMap<>();
+            List<Long> ids = new ArrayList<>();
+            LocalDate today = DATE;
+            for (int step = 0; step < 3000; step++) {
+                today = today.plusDays(random.nextInt(10) == 0 ? random.nextInt(40) : 0);
+                String category = names[random.nextInt(names.length)];
+                LocalDate date = random.nextInt(5) == 0 ? today.minusDays(random.nextInt(120)) : today;
+                int operation = random.nextInt(10);
+                if (operation < 7 || ids.isEmpty()) {
+                    ids.add(tracker.addExpenseCents(category, random.nextInt(20_000) - 2000, date));
+                } else {
+                    long id = ids.get(random.nextInt(ids.size()));
+                    Optional<Expense> old = tracker.getExpense(id);
+                    if (old.isEmpty()) {
+                        continue;
+                    }
+                    if (operation < 9) {
+                        tracker.updateExpenseCents(id, category, random.nextInt(20_000), date);
+                    } else {
+                        tracker.removeExpense(id);
+                    }
+                    // taking the old expense out moves its category's head if it was dated later, like any change
+                    heads.merge(old.get().getCategory(), old.get().getDate(), (a, b) -> a.isAfter(b) ? a : b);
+                }
+                if (operation < 9) {
+                    heads.merge(category, date, (a, b) -> a.isAfter(b) ? a : b);
+                }
+
+                for (Budget budget : budgets) {
+                    LocalDate head = heads.get(budget.getCategory());
+                    if (head == null) {
+                        continue;
+                    }
+                    long expected = Money.toCents(tracker.getTotalBetween(budget.getCategory(),
+                            head.minusDays(budget.getWindowDays() - 1), head));
+                    assertEquals(expected, budget.getWindowTotalCents(), "Step " + step + ": " + budget);
+                    boolean isOver = expected > budget.getLimitCents();
+                    if (isOver && !over.getOrDefault(budget, false)) {
+                        expectedAlerts.merge(budget, 1, Integer::sum);
+                    }
+                    over.put(budget, isOver);
+                }
+            }
+            assertEquals(expectedAlerts, alerts);
+        }
+    }
+
 }
\ No newline at end of file
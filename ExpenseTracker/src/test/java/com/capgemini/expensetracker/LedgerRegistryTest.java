@@ -0,0 +1,189 @@
+package com.capgemini.expensetracker;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerRegistryTest {
+    private static final LocalDate DATE = LocalDate.of(2025, 12, 13);
+    private static final long UNLIMITED = Long.MAX_VALUE;
+
+    @TempDir
+    Path root;
+
+    // estimated footprint of one empty ledger
+    private long emptyLedgerBytes() throws IOException {
+        try (LedgerRegistry registry = new LedgerRegistry(root.resolve("probe"), UNLIMITED)) {
+            registry.withLedger("probe", tracker -> null);
+            return registry.getLoadedBytes();
+        }
+    }
+
+    @Test
+    void testLedgersArePersistedPerAccount() throws IOException {
+        try (LedgerRegistry registry = new LedgerRegistry(root, UNLIMITED)) {
+            registry.addExpense("alice", "Food", 12.50, DATE);
+            registry.addExpense("bob", "Rent", 800.00, DATE);
+            registry.addExpense("alice", "Travel", 7.50, DATE.minusDays(1));
+            assertEquals(20.0, registry.getTotal("alice"), 0.0);
+        }
+
+        try (LedgerRegistry registry = new LedgerRegistry(root, UNLIMITED)) {
+            assertEquals(new TreeSet<>(List.of("alice", "bob")), registry.getAccountIds());
+            assertFalse(registry.isLoaded("alice"), "Ledgers should only be loaded when used");
+            LedgerSummary alice = registry.getSummary("alice");
+            assertEquals(2, alice.getExpenseCount());
+            assertEquals(2000, alice.getTotalCents());
+            assertEquals(Map.of("Food", 1250L, "Travel", 750L), alice.getTotalByCategoryCents());
+            assertEquals(800.0, registry.getTotal("bob"), 0.0);
+            assertEquals(2, registry.getLoadCount());
+        }
+    }
+
+    @Test
+    void testLeastRecentlyUsedLedgerIsEvicted() throws IOException {
+        // three ledgers and room for the summary of an evicted one
+        long budget = emptyLedgerBytes() * 3 + 1024;
+        try (LedgerRegistry registry = new LedgerRegistry(root, budget)) {
+            for (String account : List.of("a", "b", "c")) {
+                registry.withLedger(account, tracker -> null);
+            }
+            assertEquals(3, registry.getLoadedCount());
+            registry.withLedger("a", tracker -> null);
+            registry.withLedger("d", tracker -> null);
+
+            assertFalse(registry.isLoaded("b"), "The least recently used ledger should go first");
+            assertTrue(registry.isLoaded("a"));
+            assertTrue(registry.isLoaded("d"));
+            assertEquals(1, registry.getEvictionCount());
+            assertTrue(registry.getLoadedBytes() + registry.getSummaryBytes() <= budget);
+        }
+    }
+
+    @Test
+    void testEvictedLedgersAnswerFromSummary() throws IOException {
+        long budget = emptyLedgerBytes() * 8;
+        try (LedgerRegistry registry = new LedgerRegistry(root, budget)) {
+            for (int account = 0; account < 200; account++) {
+                for (int i = 0; i <= account % 5; i++) {
+                    registry.addExpense("account" + account, "Category" + i, account + i, DATE.minusDays(i));
+                }
+                assertTrue(registry.getLoadedBytes() + registry.getSummaryBytes() <= budget,
+                        "The loaded ledgers and the summaries should stay within the budget");
+            }
+            assertTrue(registry.getEvictionCount() >= 192);
+            assertEquals(0, registry.getDroppedSummaryCount(), "The summaries should fit their share of the budget");
+
+            long loads = registry.getLoadCount();
+            for (int account = 0; account < 200; account++) {
+                double expected = 0;
+                for (int i = 0; i <= account % 5; i++) {
+                    expected += account + i;
+                }
+                assertEquals(expected, registry.getTotal("account" + account), 0.0);
+            }
+            assertEquals(loads, registry.getLoadCount(), "Summaries should answer without loading ledgers");
+
+            // using an evicted ledger loads it back with its expenses
+            int count = registry.withLedger("account7", tracker -> tracker.getExpenses().size());
+            assertEquals(3, count);
+            assertEquals(loads + 1, registry.getLoadCount());
+        }
+    }
+
+    @Test
+    void testSummariesStayWithinTheirShare() throws IOException {
+        long budget = emptyLedgerBytes() * 2;
+        try (LedgerRegistry registry = new LedgerRegistry(root, budget)) {
+            for (int account = 0; account < 300; account++) {
+                for (int i = 0; i < 5; i++) {
+                    registry.addExpense("account" + account, "Category" + i, account, DATE);
+                }
+                assertTrue(registry.getSummaryBytes() <= budget * LedgerRegistry.SUMMARY_SHARE);
+            }
+            assertTrue(registry.getDroppedSummaryCount() > 0, "Cold summaries should be dropped");
+
+            // an account whose summary was dropped is loaded from its journal again
+            long loads = registry.getLoadCount();
+            assertEquals(0.0, registry.getTotal("account0"), 0.0);
+            assertEquals(5.0, registry.getTotal("account1"), 0.0);
+            assertTrue(registry.getLoadCount() > loads);
+        }
+    }
+
+    // an action holding one ledger does not hold up the others, and its ledger is not evicted meanwhile
+    @Test
+    void testLedgersAreUsedConcurrently() throws Exception {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try (LedgerRegistry registry = new LedgerRegistry(root, 1)) {
+            CountDownLatch inside = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            Future<Long> slow = pool.submit(() -> registry.withLedger("slow", tracker -> {
+                inside.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return tracker.addExpense("Food", 1.0, DATE);
+            }));
+            inside.await();
+
+            registry.addExpense("other", "Rent", 800.00, DATE);
+            assertEquals(800.0, registry.getTotal("other"), 0.0);
+            assertTrue(registry.isLoaded("slow"), "A ledger in use should not be evicted");
+            assertFalse(registry.evict("slow"));
+
+            release.countDown();
+            assertEquals(0L, slow.get(10, TimeUnit.SECONDS));
+            assertEquals(1.0, registry.getTotal("slow"), 0.0);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testLedgerOverBudgetStaysLoadedWhileInUse() throws IOException {
+        try (LedgerRegistry registry = new LedgerRegistry(root, 1)) {
+            registry.withLedger("big", tracker -> null);
+            assertTrue(registry.isLoaded("big"));
+            registry.withLedger("other", tracker -> null);
+            assertFalse(registry.isLoaded("big"));
+            assertTrue(registry.isLoaded("other"));
+        }
+    }
+
+    @Test
+    void testGrowingLedgerIsReestimated() throws IOException {
+        try (LedgerRegistry registry = new LedgerRegistry(root, UNLIMITED)) {
+            registry.withLedger("a", tracker -> null);
+            long empty = registry.getLoadedBytes();
+            registry.withLedger("a", tracker -> {
+                for (int i = 0; i < 10 * LedgerRegistry.ESTIMATE_STEP; i++) {
+                    tracker.addExpense("Food", 1.0, DATE);
+                }
+                return null;
+            });
+            assertTrue(registry.getLoadedBytes() > empty + 10L * LedgerRegistry.ESTIMATE_STEP * 16,
+                    "Estimate should cover at least the stored columns");
+        }
+    }
+
+    @Test
+    void testRejectsUnsafeAccountIds() throws IOException {
+        try (LedgerRegistry registry = new LedgerRegistry(root, UNLIMITED)) {
+            assertThrows(IllegalArgumentException.class, () -> registry.withLedger("../other", tracker -> null));
+            assertThrows(IllegalArgumentException.class, () -> registry.getSummary(""));
+        }
+        LedgerRegistry closed = new LedgerRegistry(root, UNLIMITED);
+        closed.close();
+        assertThrows(IllegalStateException.class, () -> closed.withLedger("a", tracker -> null));
+    }
+}
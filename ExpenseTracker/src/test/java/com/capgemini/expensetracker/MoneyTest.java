@@ -0,0 +1,56 @@
+package com.capgemini.expensetracker;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+    @Test
+    void testToCentsRoundsToNearestCent() {
+        assertEquals(1250, Money.toCents(12.5));
+        assertEquals(10, Money.toCents(0.1));
+        assertEquals(30, Money.toCents(0.1 + 0.2));
+        assertEquals(1, Money.toCents(0.005));
+        assertEquals(-199, Money.toCents(-1.99));
+        assertThrows(IllegalArgumentException.class, () -> Money.toCents(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> Money.toCents(Double.POSITIVE_INFINITY));
+        assertThrows(IllegalArgumentException.class, () -> Money.toCents(1e18));
+    }
+
+    @Test
+    void testParseCents() {
+        Map<String, Long> expected = new LinkedHashMap<>();
+        expected.put("0.1", 10L);
+        expected.put("12.50", 1250L);
+        expected.put("1.", 100L);
+        expected.put(".5", 50L);
+        expected.put("+3", 300L);
+        expected.put("-0.05", -5L);
+        expected.put("007", 700L);
+        expected.put("9999999999999999.99", 999999999999999999L);
+        for (Map.Entry<String, Long> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), Money.parseCents(entry.getKey()), entry.getKey());
+        }
+
+        Random random = new Random(1);
+        for (int i = 0; i < 10_000; i++) {
+            long cents = random.nextInt(100_000_000);
+            assertEquals(cents, Money.parseCents(Money.format(cents)));
+        }
+
+        for (String invalid : List.of("", ".", "-", "1.2.3", "12d", "1.234", "1e3", "NaN", "1,5", "0x10", "12345678901234567")) {
+            assertThrows(NumberFormatException.class, () -> Money.parseCents(invalid), invalid);
+        }
+    }
+
+    @Test
+    void testFormat() {
+        assertEquals("12.50", Money.format(1250));
+        assertEquals("0.05", Money.format(5));
+        assertEquals("-0.05", Money.format(-5));
+        assertEquals("-12.00", Money.format(-1200));
+        assertEquals("0.00", Money.format(0));
+    }
+}
@@ -0,0 +1,66 @@
+package com.capgemini.expensetracker;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuantileSketchTest {
+    private static final double[] QUANTILES = {0.0, 0.01, 0.25, 0.5, 0.75, 0.9, 0.99, 1.0};
+
+    // every estimate should be within the relative accuracy of the exact value at the same rank
+    private void assertWithinAccuracy(long[] values) {
+        QuantileSketch sketch = new QuantileSketch();
+        for (long value : values) {
+            sketch.add(value);
+        }
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (double quantile : QUANTILES) {
+            long exact = sorted[(int) (quantile * (sorted.length - 1))];
+            long estimate = sketch.quantile(quantile);
+            assertEquals(exact, estimate, Math.abs(exact) * QuantileSketch.RELATIVE_ACCURACY + 1, "Quantile " + quantile);
+        }
+    }
+
+    @Test
+    void testUniformAmounts() {
+        Random random = new Random(3);
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 1 + random.nextInt(100_000);
+        }
+        assertWithinAccuracy(values);
+    }
+
+    @Test
+    void testHeavyTailedAmounts() {
+        Random random = new Random(5);
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 1 + (long) Math.exp(random.nextGaussian() * 3 + 8);
+        }
+        assertWithinAccuracy(values);
+    }
+
+    @Test
+    void testNegativeAndZeroAmounts() {
+        long[] values = new long[2001];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (i - 1000) * 37L;
+        }
+        assertWithinAccuracy(values);
+    }
+
+    @Test
+    void testExtremesAreExact() {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(1234);
+        sketch.add(99_999);
+        sketch.add(Long.MAX_VALUE / 2);
+        assertEquals(1234, sketch.quantile(0.0));
+        assertEquals(Long.MAX_VALUE / 2, sketch.quantile(1.0));
+        assertEquals(3, sketch.count());
+    }
+}
@@ -0,0 +1,81 @@
+package com.capgemini.expensetracker;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TableRendererTest {
+
+    // the expense table as Main printed it with printf
+    private String printf(ExpenseTracker tracker) {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%-6s | %-12s | %-15s | %10s%n", "Id", "Date", "Category", "Amount"));
+        out.append("----------------------------------------------------").append(System.lineSeparator());
+        for (Expense expense : tracker.getExpensesByDate()) {
+            out.append(String.format("%-6d | %-12s | %-15s | %10.2f%n",
+                    expense.getId(), expense.getDate(), expense.getCategory(), expense.getAmount()));
+        }
+        return out.toString();
+    }
+
+    // amounts stay below 10^10 units, where going through a double as printf did still gives exact cents
+    @Test
+    void testExpenseTableMatchesPrintf() {
+        Random random = new Random(42);
+        ExpenseTracker tracker = new ExpenseTracker();
+        String[] categories = {"Food", "Transport", "A category longer than fifteen", "", "Ünïcödé"};
+        for (int i = 0; i < 30_000; i++) {
+            long cents = random.nextInt(5) == 0 ? random.nextLong() % 1_000_000_000_000L : random.nextInt(200_000) - 1000;
+            tracker.addExpenseCents(categories[random.nextInt(categories.length)], cents,
+                    LocalDate.of(2025, 1, 1).plusDays(random.nextInt(2000) - 1000));
+        }
+        tracker.addExpenseCents("Food", -5, LocalDate.of(-5, 1, 1));
+        tracker.addExpenseCents("Food", 0, LocalDate.of(12_345, 6, 7));
+        tracker.removeExpense(7);
+
+        StringWriter out = new StringWriter();
+        TableRenderer renderer = new TableRenderer(out);
+        renderer.expenseHeader().expenseRows(tracker, 0, tracker.getExpensesByDate().size()).flush();
+        assertTrue(out.toString().length() > TableRenderer.BUFFER_CHARS, "The output should span several buffers");
+        assertEquals(printf(tracker), out.toString());
+    }
+
+    @Test
+    void testNullCategoryPrintsLikePrintf() {
+        ExpenseTracker tracker = new ExpenseTracker();
+        tracker.addExpense(null, 1.00, LocalDate.of(2025, 12, 13));
+        tracker.addExpense("Food", 2.00, LocalDate.of(2025, 12, 14));
+
+        StringWriter out = new StringWriter();
+        new TableRenderer(out).expenseHeader().expenseRows(tracker, 0, 2).flush();
+        assertEquals(printf(tracker), out.toString());
+
+        StringWriter columns = new StringWriter();
+        new TableRenderer(columns).left(null, 6).text("|").right(null, 6).text("|").text(null).flush();
+        assertEquals("null  |  null|null", columns.toString());
+    }
+
+    @Test
+    void testColumns() {
+        StringWriter out = new StringWriter();
+        new TableRenderer(out)
+                .left("Food", 6).text("|").right("ab", 4).text("|")
+                .money(1250, 8).text("|").money(-5, 0).text("|").money(0, 5).text("|")
+                .number(42, 4).text("|").number(Long.MIN_VALUE, 0).text("|")
+                .date(0, 11).text("|")
+                .money(Long.MAX_VALUE, 0).text("|")
+                .text("xxx")
+                .flush();
+        assertEquals("Food  |  ab|   12.50|-0.05| 0.00|42  |-9223372036854775808|1970-01-01 |92233720368547758.07|xxx", out.toString());
+
+        // text longer than the buffer is written through, after what came before it
+        StringWriter large = new StringWriter();
+        String text = "y".repeat(TableRenderer.BUFFER_CHARS * 2);
+        new TableRenderer(large).text("a").text(text).text("b").flush();
+        assertEquals("a" + text + "b", large.toString());
+    }
+}
@@ -0,0 +1,141 @@
+package com.capgemini.expensetracker;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrackerMetricsTest {
+    private static final LocalDate DATE = LocalDate.of(2025, 12, 13);
+
+    private ExpenseTracker trackerWith(TrackerMetrics metrics) {
+        ExpenseTracker tracker = new ExpenseTracker();
+        tracker.setMetrics(metrics);
+        return tracker;
+    }
+
+    @Test
+    void testOperationsAreCounted() {
+        TrackerMetrics metrics = new TrackerMetrics();
+        ExpenseTracker tracker = trackerWith(metrics);
+        long id = tracker.addExpense("Food", 12.50, DATE);
+        tracker.addExpense("Rent", 800.00, DATE);
+        tracker.updateExpense(id, "Food", 10.00, DATE);
+        tracker.getTotalByCategory();
+        tracker.getTotalByCategory();
+        tracker.getTopCategories(1);
+        tracker.getBottomCategories(1);
+        tracker.removeExpense(id);
+
+        assertEquals(2, metrics.getStats(TrackerMetrics.Operation.ADD_EXPENSE).getCount());
+        assertEquals(1, metrics.getStats(TrackerMetrics.Operation.UPDATE_EXPENSE).getCount(),
+                "updateExpense goes through updateExpenseCents but is one call");
+        assertEquals(2, metrics.getStats(TrackerMetrics.Operation.TOTAL_BY_CATEGORY).getCount());
+        assertEquals(2, metrics.getStats(TrackerMetrics.Operation.CATEGORY_RANKING).getCount());
+        assertEquals(1, metrics.getStats(TrackerMetrics.Operation.REMOVE_EXPENSE).getCount());
+        assertEquals(0, metrics.getStats(TrackerMetrics.Operation.TOTALS_BY_BUCKET).getCount());
+        assertEquals(-1, metrics.getStats(TrackerMetrics.Operation.ADD_EXPENSE).getAllocatedBytesPerCall(),
+                "Allocations are only measured when asked for");
+        assertTrue(metrics.getStats(TrackerMetrics.Operation.ADD_EXPENSE).getMaxMicros() > 0);
+
+        metrics.reset();
+        assertEquals(0, metrics.getStats(TrackerMetrics.Operation.ADD_EXPENSE).getCount());
+    }
+
+    @Test
+    void testFailedOperationsAreTimed() {
+        TrackerMetrics metrics = new TrackerMetrics();
+        ExpenseTracker tracker = trackerWith(metrics);
+        assertThrows(IllegalArgumentException.class, () -> tracker.getTotalBetween(DATE, DATE.minusDays(1)));
+        assertEquals(1, metrics.getStats(TrackerMetrics.Operation.TOTAL_BETWEEN).getCount());
+    }
+
+    @Test
+    void testAllocationsAreMeasured() {
+        TrackerMetrics metrics = new TrackerMetrics(true);
+        ExpenseTracker tracker = trackerWith(metrics);
+        for (int i = 0; i < 100; i++) {
+            tracker.addExpense("Category" + i, i, DATE);
+        }
+        tracker.getTotalByCategory();
+        // -1 on a JVM that cannot count allocations per thread
+        long allocated = metrics.getStats(TrackerMetrics.Operation.TOTAL_BY_CATEGORY).getAllocatedBytesPerCall();
+        assertTrue(allocated == -1 || allocated > 100 * 16, "Building a 100 entry map allocates: " + allocated);
+    }
+
+    @Test
+    void testGauges() {
+        TrackerMetrics metrics = new TrackerMetrics();
+        assertEquals(0, metrics.getExpenseCount(), "No tracker attached yet");
+        ExpenseTracker tracker = trackerWith(metrics);
+        long storeBytes = metrics.getStoreBytes();
+        for (int i = 0; i < 10_000; i++) {
+            tracker.addExpense("Category" + (i % 50), 1.0, DATE.minusDays(i % 300));
+        }
+        assertEquals(10_000, metrics.getExpenseCount());
+        assertEquals(50, metrics.getCategoryCount());
+        assertTrue(metrics.getStoreBytes() > storeBytes + 10_000L * 16);
+        assertTrue(metrics.getCategoryBytes() > 0);
+        tracker.getTotalByCategory();
+        tracker.getTotalByCategory();
+        assertEquals(0.5, metrics.getQueryCacheHitRate(), 0.0);
+        assertTrue(metrics.dump().contains("Expenses: 10000, categories: 50"));
+    }
+
+    @Test
+    void testActionsAreListedAfterOperations() {
+        TrackerMetrics metrics = new TrackerMetrics();
+        metrics.recordAction("MENU_TOTAL", 2_000_000);
+        metrics.recordAction("MENU_TOTAL", 4_000_000);
+        List<OperationStats> stats = metrics.getOperations();
+        OperationStats action = stats.get(stats.size() - 1);
+        assertEquals("MENU_TOTAL", action.getName());
+        assertEquals(2, action.getCount());
+        assertEquals(3000.0, action.getMeanMicros(), 0.0);
+        assertEquals(4000.0, action.getMaxMicros(), 0.0);
+    }
+
+    @Test
+    void testHistogramPercentilesAreWithinBucketWidth() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            histogram.record(nanos);
+        }
+        long median = histogram.percentileNanos(0.5);
+        assertTrue(median >= 50_000 && median <= 50_000 * 1.25, "Median " + median);
+        long p99 = histogram.percentileNanos(0.99);
+        assertTrue(p99 >= 99_000 && p99 <= 100_000, "p99 " + p99);
+        assertEquals(100_000, histogram.percentileNanos(1.0));
+
+        for (long value : new long[]{0, 3, 4, 7, 8, 1000, 123_456_789, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucket(value);
+            assertTrue(value <= LatencyHistogram.upperBound(bucket), "Bucket of " + value);
+            assertTrue(bucket == 0 || value > LatencyHistogram.upperBound(bucket - 1), "Bucket of " + value);
+        }
+    }
+
+    @Test
+    void testReadableOverJmx() throws Exception {
+        TrackerMetrics metrics = new TrackerMetrics();
+        ExpenseTracker tracker = trackerWith(metrics);
+        tracker.addExpense("Food", 12.50, DATE);
+        metrics.register("jmx-test");
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("com.capgemini.expensetracker:type=TrackerMetrics,name=\"jmx-test\"");
+            assertEquals(1, server.getAttribute(name, "ExpenseCount"));
+            CompositeData[] operations = (CompositeData[]) server.getAttribute(name, "Operations");
+            assertEquals("ADD_EXPENSE", operations[0].get("name"));
+            assertEquals(1L, operations[0].get("count"));
+            assertThrows(IllegalStateException.class, () -> metrics.register("again"));
+        } finally {
+            metrics.unregister();
+        }
+    }
+}